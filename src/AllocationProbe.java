@@ -0,0 +1,165 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures bytes allocated by the current thread between begin() and end(),
+ * using the HotSpot per-thread allocation counter. Disabled probes cost one
+ * volatile read. The probe itself allocates nothing while recording.
+ *
+ * Running this class checks the simulation, with the game's sprite sizes and collision
+ * masks, against an allocation budget: once as played and once with the pool kept full
+ * of bullets. It exits non-zero when steady-state ticks allocate more than that:
+ * {@code java -cp out AllocationProbe [averageBytesPerTick]}
+ */
+public class AllocationProbe {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    // Average bytes per tick tolerated by the check; leaves room for rare JIT/runtime noise only
+    private static final double DEFAULT_TICK_BUDGET = 1.0;
+
+    // Bullets kept in play for the second run, enough for collisions to go through the grid
+    private static final int HEAVY_BULLETS = 256;
+
+    private final String name;
+    private volatile boolean enabled;
+    private long start = -1;
+
+    // Stats since the last reset
+    private long samples;
+    private long totalBytes;
+    private long maxBytes;
+    private long lastBytes;
+
+    public AllocationProbe(String name) {
+        this.name = name;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    public void begin() {
+        if (enabled) {
+            start = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    public void end() {
+        if (enabled && start >= 0) {
+            long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+            start = -1;
+            lastBytes = bytes;
+            samples++;
+            totalBytes += bytes;
+            if (bytes > maxBytes) {
+                maxBytes = bytes;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled && THREADS != null;
+        start = -1;
+    }
+
+    public void reset() {
+        samples = 0;
+        totalBytes = 0;
+        maxBytes = 0;
+        lastBytes = 0;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public double getAverageBytes() {
+        return samples == 0 ? 0 : (double) totalBytes / samples;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getLastBytes() {
+        return lastBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d samples, avg %.3f B, max %d B", name, samples, getAverageBytes(), maxBytes);
+    }
+
+    public static void main(String[] args) {
+        double budget = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_TICK_BUDGET;
+        if (!isSupported()) {
+            System.out.println("Thread allocation counters not supported by this JVM");
+            System.exit(2);
+        }
+
+        CollisionMask[] masks = Replay.sessionMasks();
+        GameWorld world = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+        world.setCollisionMasks(masks[0], masks[1]);
+        TickInput input = new TickInput();
+        input.mouseControl = false;
+
+        boolean ok = check(world, input, new AllocationProbe("tick"), 0, budget);
+        ok &= check(world, input, new AllocationProbe("tick with " + HEAVY_BULLETS + " bullets"), HEAVY_BULLETS, budget);
+        if (!ok) {
+            System.exit(1);
+        }
+        System.out.println("OK: within " + budget + " B per tick");
+    }
+
+    private static boolean check(GameWorld world, TickInput input, AllocationProbe probe, int bullets, double budget) {
+        Random random = new Random(6);
+        // Warm up so the JIT and pool growth are out of the way
+        runTicks(world, input, probe, 200_000, 0, bullets, random);
+        probe.setEnabled(true);
+        runTicks(world, input, probe, 100_000, 200_000, bullets, random);
+        probe.setEnabled(false);
+
+        System.out.println(probe);
+        if (probe.getAverageBytes() > budget) {
+            System.out.println("FAIL: steady-state ticks allocate more than " + budget + " B on average");
+            return false;
+        }
+        return true;
+    }
+
+    // With bullets > 0 the pool is refilled to that many whenever it runs low or a run ends
+    private static void runTicks(GameWorld world, TickInput input, AllocationProbe probe, int ticks, long seedBase,
+                                 int bullets, Random random) {
+        Difficulty[] difficulties = Difficulty.values();
+        for (int i = 0; i < ticks; i++) {
+            boolean over = world.isGameOver() || world.isLevelCompleted();
+            if (over) {
+                world.reset(difficulties[i % difficulties.length], seedBase + i);
+            }
+            if (bullets > 0 && (over || world.getBullets().size() < bullets / 2)) {
+                Benchmarks.fill(world.getBullets(), bullets, random);
+            }
+            input.up = (i / 40) % 2 == 0;
+            input.down = !input.up;
+            probe.begin();
+            world.step(input);
+            probe.end();
+        }
+    }
+}
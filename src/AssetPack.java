@@ -0,0 +1,281 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Prebaked game assets: the sprites already scaled to their in-game size and the
+ * explosion sound already converted to 16-bit PCM, so startup skips PNG and WAV decoding.
+ * Build the pack with {@code java -cp out AssetPack}; the game reads it from the classpath
+ * or maps the file in src/Resources, and falls back to the source assets when it is missing.
+ * Each entry remembers the length and CRC-32 of the file it was built from; when that file
+ * is in src/Resources and no longer matches, the entry is ignored and the source decoded,
+ * so an edited image or sound takes effect even before the pack is rebuilt.
+ *
+ * Layout (big-endian): magic, version, entry count, then per entry a kind byte, a UTF-8 name,
+ * the source file's UTF-8 name, length and CRC-32 (an empty name for none), and either
+ * width, height and ARGB pixels, or sample rate, channels, frame count and samples.
+ */
+public class AssetPack {
+    static final String FILE_NAME = "assets.pack";
+    static final String SOURCE_DIR = "src/Resources";
+    static final String DEFAULT_PATH = SOURCE_DIR + "/" + FILE_NAME;
+    private static final int MAGIC = 0x50444150; // "PDAP"
+    private static final int VERSION = 2;
+    private static final byte KIND_IMAGE = 1;
+    private static final byte KIND_SOUND = 2;
+
+    private final Map<String, BufferedImage> images = new HashMap<>();
+    private final Map<String, PcmSound> sounds = new HashMap<>();
+    private final Map<String, Source> imageSources = new HashMap<>();
+    private final Map<String, Source> soundSources = new HashMap<>();
+
+    // The file an entry was built from
+    private static class Source {
+        final String file;
+        final long length;
+        final int crc;
+
+        Source(String file, long length, int crc) {
+            this.file = file;
+            this.length = length;
+            this.crc = crc;
+        }
+
+        static Source of(File file) throws IOException {
+            CRC32 crc = new CRC32();
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            crc.update(bytes);
+            return new Source(file.getName(), bytes.length, (int) crc.getValue());
+        }
+
+        // True unless the source is present and differs from what the entry was built from
+        boolean isCurrent(String entry) {
+            File file = new File(SOURCE_DIR, this.file);
+            if (!file.isFile()) {
+                return true;
+            }
+            try {
+                Source now = of(file);
+                if (now.length == length && now.crc == crc) {
+                    return true;
+                }
+            } catch (IOException e) {
+                // Unreadable now; let the caller's own load report it
+            }
+            System.out.println("Asset pack " + entry + " is out of date with " + file + ", decoding it instead");
+            return false;
+        }
+    }
+
+    /**
+     * The image, or null if there is none or its source file has changed since the pack was built.
+     */
+    public BufferedImage getImage(String name) {
+        Source source = imageSources.get(name);
+        return source == null || source.isCurrent("image " + name) ? images.get(name) : null;
+    }
+
+    /**
+     * The sound, or null if there is none or its source file has changed since the pack was built.
+     */
+    public PcmSound getSound(String name) {
+        Source source = soundSources.get(name);
+        return source == null || source.isCurrent("sound " + name) ? sounds.get(name) : null;
+    }
+
+    public void putImage(String name, BufferedImage image) {
+        images.put(name, image);
+    }
+
+    public void putSound(String name, PcmSound sound) {
+        sounds.put(name, sound);
+    }
+
+    /**
+     * Adds an image built from the source file, remembering the file's length and checksum.
+     */
+    public void putImage(String name, BufferedImage image, File source) throws IOException {
+        images.put(name, image);
+        imageSources.put(name, Source.of(source));
+    }
+
+    public void putSound(String name, PcmSound sound, File source) throws IOException {
+        sounds.put(name, sound);
+        soundSources.put(name, Source.of(source));
+    }
+
+    /**
+     * Loads the pack from the classpath root or its Resources folder, then from the
+     * file in src/Resources. Returns null if there is no usable pack.
+     */
+    public static AssetPack load() {
+        for (String resource : new String[] {"/" + FILE_NAME, "/Resources/" + FILE_NAME}) {
+            try (InputStream in = AssetPack.class.getResourceAsStream(resource)) {
+                if (in != null) {
+                    return read(ByteBuffer.wrap(in.readAllBytes()));
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not read asset pack " + resource + ": " + e);
+            }
+        }
+        File file = new File(DEFAULT_PATH);
+        if (file.isFile()) {
+            try {
+                return map(file);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not read asset pack " + file + ": " + e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Memory-maps a pack file and copies its entries straight into image rasters and sample arrays.
+     */
+    public static AssetPack map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static AssetPack read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an asset pack");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported asset pack version " + version);
+            }
+            AssetPack pack = new AssetPack();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                byte kind = buffer.get();
+                String name = readString(buffer);
+                String sourceFile = readString(buffer);
+                long sourceLength = buffer.getLong();
+                int sourceCrc = buffer.getInt();
+                Source source = sourceFile.isEmpty() ? null : new Source(sourceFile, sourceLength, sourceCrc);
+                if (kind == KIND_IMAGE) {
+                    int width = buffer.getInt();
+                    int height = buffer.getInt();
+                    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                    buffer.asIntBuffer().get(pixels);
+                    buffer.position(buffer.position() + pixels.length * 4);
+                    pack.images.put(name, image);
+                    if (source != null) {
+                        pack.imageSources.put(name, source);
+                    }
+                } else if (kind == KIND_SOUND) {
+                    int sampleRate = buffer.getInt();
+                    int channels = buffer.getInt();
+                    int frames = buffer.getInt();
+                    short[] samples = new short[frames * channels];
+                    buffer.asShortBuffer().get(samples);
+                    buffer.position(buffer.position() + samples.length * 2);
+                    pack.sounds.put(name, new PcmSound(sampleRate, channels, samples));
+                    if (source != null) {
+                        pack.soundSources.put(name, source);
+                    }
+                } else {
+                    throw new IOException("Unknown asset kind " + kind);
+                }
+            }
+            return pack;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated asset pack", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(images.size() + sounds.size());
+            for (Map.Entry<String, BufferedImage> entry : images.entrySet()) {
+                BufferedImage image = entry.getValue();
+                int w = image.getWidth(), h = image.getHeight();
+                writeHeader(out, KIND_IMAGE, entry.getKey(), imageSources.get(entry.getKey()));
+                out.writeInt(w);
+                out.writeInt(h);
+                for (int argb : image.getRGB(0, 0, w, h, null, 0, w)) {
+                    out.writeInt(argb);
+                }
+            }
+            for (Map.Entry<String, PcmSound> entry : sounds.entrySet()) {
+                PcmSound sound = entry.getValue();
+                writeHeader(out, KIND_SOUND, entry.getKey(), soundSources.get(entry.getKey()));
+                out.writeInt(sound.getSampleRate());
+                out.writeInt(sound.getChannels());
+                out.writeInt(sound.getFrameCount());
+                for (short sample : sound.getSamples()) {
+                    out.writeShort(sample);
+                }
+            }
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte kind, String name, Source source) throws IOException {
+        out.writeByte(kind);
+        writeString(out, name);
+        writeString(out, source != null ? source.file : "");
+        out.writeLong(source != null ? source.length : 0);
+        out.writeInt(source != null ? source.crc : 0);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Builds the pack from the source assets: {@code java -cp out AssetPack [resourceDir]}
+     */
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "src/Resources");
+        long start = System.nanoTime();
+
+        AssetPack pack = new AssetPack();
+        File plane = new File(dir, "plane.png");
+        pack.putImage("plane", Game.scaleImage(ImageIO.read(plane), Game.PLANE_WIDTH, Game.PLANE_HEIGHT), plane);
+        File bullet = new File(dir, "bullet.png");
+        pack.putImage("bullet", Game.scaleImage(ImageIO.read(bullet), Game.BULLET_WIDTH, Game.BULLET_HEIGHT), bullet);
+        File explosion = new File(dir, "exploision.png");
+        pack.putImage("explosion", Game.scaleImage(ImageIO.read(explosion), Game.EXPLOSION_SIZE, Game.EXPLOSION_SIZE),
+                explosion);
+        File background = new File(dir, "background.png");
+        if (background.isFile()) {
+            pack.putImage("background", Game.scaleImage(ImageIO.read(background), GameWorld.WIDTH, GameWorld.HEIGHT),
+                    background);
+        }
+        File sound = new File(dir, "exploision.wav");
+        pack.putSound("explosion", PcmSound.decode(sound), sound);
+
+        File out = new File(dir, FILE_NAME);
+        pack.write(out);
+        System.out.printf("Wrote %s (%d bytes) in %.1f ms%n", out, out.length(), (System.nanoTime() - start) / 1e6);
+    }
+}
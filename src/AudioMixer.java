@@ -0,0 +1,434 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A small polyphonic mixer: sounds are registered once as 16-bit PCM, play() enqueues a
+ * trigger without locking, and a mixer thread sums a fixed pool of voices into a
+ * SourceDataLine (or, headless, into a Sink) a few milliseconds at a time.
+ * When every voice is busy, a new sound takes over the one that has played longest.
+ */
+public class AudioMixer {
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+    public static final int DEFAULT_VOICES = 16;
+    public static final int DEFAULT_BUFFER_FRAMES = 1024; // About 23 ms at 44.1 kHz
+    private static final int CHUNKS_PER_BUFFER = 4;
+    private static final int QUEUE_SIZE = 64; // Power of two
+    private static final int GAIN_ONE = 1 << 12; // Fixed-point volume scale
+
+    /**
+     * Where the headless mixer writes its 16-bit little-endian mono output.
+     */
+    public interface Sink {
+        void write(byte[] data, int offset, int length);
+    }
+
+    /**
+     * A sink that keeps everything written to it.
+     */
+    public static class ByteSink implements Sink {
+        private byte[] data = new byte[4096];
+        private int size;
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            if (size + length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + length));
+            }
+            System.arraycopy(bytes, offset, data, size, length);
+            size += length;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        public synchronized byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private final int sampleRate;
+    private final int bufferFrames;
+    private final int chunkFrames;
+
+    // Registered sounds, mono at the mixer's rate; replaced wholesale when one is added
+    private volatile short[][] sounds = new short[0][];
+
+    // Voice pool, touched only by the mixing thread
+    private final int[] voiceSound;
+    private final int[] voicePosition;
+    private final int[] voiceGain;
+    private int activeVoices;
+
+    // Bounded multi-producer trigger queue; each slot's sequence number says whether it is free or filled
+    private final AtomicLongArray slotSequence = new AtomicLongArray(QUEUE_SIZE);
+    private final int[] queuedSound = new int[QUEUE_SIZE];
+    private final int[] queuedGain = new int[QUEUE_SIZE];
+    private final AtomicLong queueTail = new AtomicLong();
+    private long queueHead;
+
+    private int[] accumulator;
+    private final AtomicInteger droppedTriggers = new AtomicInteger();
+    private final AtomicInteger underruns = new AtomicInteger();
+    private volatile long framesMixed;
+    private volatile boolean running;
+    private Thread thread;
+
+    public AudioMixer() {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_VOICES, DEFAULT_BUFFER_FRAMES);
+    }
+
+    public AudioMixer(int sampleRate, int voices, int bufferFrames) {
+        this.sampleRate = sampleRate;
+        this.bufferFrames = bufferFrames;
+        this.chunkFrames = Math.max(1, bufferFrames / CHUNKS_PER_BUFFER);
+        voiceSound = new int[voices];
+        voicePosition = new int[voices];
+        voiceGain = new int[voices];
+        Arrays.fill(voiceSound, -1);
+        accumulator = new int[chunkFrames];
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            slotSequence.set(i, i);
+        }
+    }
+
+    public AudioFormat getFormat() {
+        return new AudioFormat(sampleRate, 16, 1, true, false);
+    }
+
+    /**
+     * Registers a sound, downmixing and resampling it to the mixer's format. Returns its id for play().
+     */
+    public synchronized int addSound(PcmSound sound) {
+        short[] mono = toMono(sound);
+        if (sound.getSampleRate() != sampleRate) {
+            mono = resample(mono, sound.getSampleRate(), sampleRate);
+        }
+        short[][] grown = Arrays.copyOf(sounds, sounds.length + 1);
+        grown[sounds.length] = mono;
+        sounds = grown;
+        return sounds.length - 1;
+    }
+
+    private static short[] toMono(PcmSound sound) {
+        int channels = sound.getChannels();
+        short[] samples = sound.getSamples();
+        if (channels == 1) {
+            return samples;
+        }
+        short[] mono = new short[sound.getFrameCount()];
+        for (int frame = 0; frame < mono.length; frame++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += samples[frame * channels + c];
+            }
+            mono[frame] = (short) (sum / channels);
+        }
+        return mono;
+    }
+
+    // Linear interpolation between neighbouring samples
+    private static short[] resample(short[] samples, int fromRate, int toRate) {
+        int length = (int) ((long) samples.length * toRate / fromRate);
+        short[] out = new short[length];
+        double step = (double) fromRate / toRate;
+        for (int i = 0; i < length; i++) {
+            double position = i * step;
+            int index = (int) position;
+            int next = Math.min(index + 1, samples.length - 1);
+            double t = position - index;
+            out[i] = (short) Math.round(samples[index] * (1 - t) + samples[next] * t);
+        }
+        return out;
+    }
+
+    /**
+     * Queues a sound to start on the next mixed chunk. Never blocks; returns false
+     * (and counts a dropped trigger) if the queue is full.
+     */
+    public boolean play(int sound, float volume) {
+        int gain = Math.round(Math.max(0f, volume) * GAIN_ONE);
+        long position = queueTail.get();
+        while (true) {
+            int slot = (int) (position & (QUEUE_SIZE - 1));
+            long difference = slotSequence.get(slot) - position;
+            if (difference == 0) {
+                if (queueTail.compareAndSet(position, position + 1)) {
+                    queuedSound[slot] = sound;
+                    queuedGain[slot] = gain;
+                    slotSequence.set(slot, position + 1); // Publishes the slot to the mixer
+                    return true;
+                }
+                position = queueTail.get();
+            } else if (difference < 0) {
+                droppedTriggers.incrementAndGet();
+                return false;
+            } else {
+                position = queueTail.get();
+            }
+        }
+    }
+
+    // Starts a voice for every queued trigger; mixing thread only
+    private void drainTriggers() {
+        while (true) {
+            int slot = (int) (queueHead & (QUEUE_SIZE - 1));
+            if (slotSequence.get(slot) != queueHead + 1) {
+                return;
+            }
+            startVoice(queuedSound[slot], queuedGain[slot]);
+            slotSequence.set(slot, queueHead + QUEUE_SIZE);
+            queueHead++;
+        }
+    }
+
+    private void startVoice(int sound, int gain) {
+        if (sound < 0 || sound >= sounds.length) {
+            return;
+        }
+        int voice = -1;
+        int oldest = -1;
+        for (int v = 0; v < voiceSound.length; v++) {
+            if (voiceSound[v] < 0) {
+                voice = v;
+                break;
+            }
+            if (oldest < 0 || voicePosition[v] > voicePosition[oldest]) {
+                oldest = v;
+            }
+        }
+        if (voice < 0) {
+            voice = oldest;
+        } else {
+            activeVoices++;
+        }
+        voiceSound[voice] = sound;
+        voicePosition[voice] = 0;
+        voiceGain[voice] = gain;
+    }
+
+    /**
+     * Mixes the next frames of every active voice into out as 16-bit little-endian mono.
+     * The mixer thread calls this; headless code can call it directly instead of starting one.
+     */
+    public void mix(byte[] out, int offset, int frames) {
+        drainTriggers();
+        if (accumulator.length < frames) {
+            accumulator = new int[frames];
+        }
+        int[] sum = accumulator;
+        Arrays.fill(sum, 0, frames, 0);
+
+        short[][] registered = sounds;
+        for (int v = 0; v < voiceSound.length; v++) {
+            int sound = voiceSound[v];
+            if (sound < 0) {
+                continue;
+            }
+            short[] samples = registered[sound];
+            int position = voicePosition[v];
+            int gain = voiceGain[v];
+            int count = Math.min(frames, samples.length - position);
+            for (int i = 0; i < count; i++) {
+                sum[i] += (samples[position + i] * gain) >> 12;
+            }
+            if (position + count >= samples.length) {
+                voiceSound[v] = -1;
+                activeVoices--;
+            } else {
+                voicePosition[v] = position + count;
+            }
+        }
+
+        for (int i = 0; i < frames; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+            out[offset + 2 * i] = (byte) sample;
+            out[offset + 2 * i + 1] = (byte) (sample >> 8);
+        }
+        framesMixed += frames;
+    }
+
+    /**
+     * Opens the default output line with the configured buffer and starts mixing into it.
+     */
+    public void start() throws LineUnavailableException {
+        AudioFormat format = getFormat();
+        SourceDataLine line = AudioSystem.getSourceDataLine(format);
+        line.open(format, bufferFrames * 2);
+        line.start();
+        startThread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] chunk = new byte[chunkFrames * 2];
+                boolean primed = false;
+                while (running) {
+                    // A completely drained line means the device ran out of samples since the last write
+                    if (primed && line.available() >= line.getBufferSize()) {
+                        underrun();
+                    }
+                    mix(chunk, 0, chunkFrames);
+                    line.write(chunk, 0, chunk.length);
+                    primed = true;
+                }
+                line.drain();
+                line.close();
+            }
+        });
+    }
+
+    /**
+     * Starts mixing into a sink in real time, keeping at most one buffer ahead of the
+     * clock the way an output device would. A chunk produced after the buffered audio
+     * would have played out counts as an underrun.
+     */
+    public void start(Sink sink) {
+        startThread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] chunk = new byte[chunkFrames * 2];
+                long start = System.nanoTime();
+                long written = 0;
+                while (running) {
+                    long playedFrames = (System.nanoTime() - start) * sampleRate / 1_000_000_000L;
+                    if (written > 0 && playedFrames > written) {
+                        underrun();
+                        start += (playedFrames - written) * 1_000_000_000L / sampleRate; // Resume from here
+                    }
+                    long ahead = written - playedFrames;
+                    if (ahead >= bufferFrames) {
+                        long sleepNanos = (ahead - bufferFrames + chunkFrames) * 1_000_000_000L / sampleRate;
+                        try {
+                            Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        continue;
+                    }
+                    mix(chunk, 0, chunkFrames);
+                    sink.write(chunk, 0, chunk.length);
+                    written += chunkFrames;
+                }
+            }
+        });
+    }
+
+    private synchronized void startThread(Runnable body) {
+        if (thread != null) {
+            throw new IllegalStateException("Mixer already started");
+        }
+        running = true;
+        thread = new Thread(body, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null) {
+            try {
+                t.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void underrun() {
+        int count = underruns.incrementAndGet();
+        if (Integer.bitCount(count) == 1) { // 1, 2, 4, 8, ... so a struggling device doesn't flood the log
+            System.out.println("Audio mixer underrun (" + count + " so far, buffer " + bufferFrames + " frames)");
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getUnderruns() {
+        return underruns.get();
+    }
+
+    public int getDroppedTriggers() {
+        return droppedTriggers.get();
+    }
+
+    public long getFramesMixed() {
+        return framesMixed;
+    }
+
+    public int getBufferFrames() {
+        return bufferFrames;
+    }
+
+    /**
+     * Headless self-check: overlapping triggers must sum rather than cut each other off,
+     * and two seconds of real-time mixing into a byte sink must deliver every trigger.
+     * Underruns in that run are reported but don't fail it: they depend on the scheduler,
+     * not on the mixer. Exits with status 1 on failure. {@code java -cp out AudioMixer [bufferFrames]}
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int bufferFrames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BUFFER_FRAMES;
+        boolean ok = true;
+
+        // A constant tone makes overlap easy to see in the output
+        short[] tone = new short[DEFAULT_SAMPLE_RATE / 10];
+        Arrays.fill(tone, (short) 1000);
+        AudioMixer mixer = new AudioMixer(DEFAULT_SAMPLE_RATE, 4, bufferFrames);
+        int sound = mixer.addSound(new PcmSound(DEFAULT_SAMPLE_RATE, 1, tone));
+
+        byte[] out = new byte[256 * 2];
+        mixer.play(sound, 1f);
+        mixer.mix(out, 0, 128);
+        mixer.play(sound, 1f);
+        mixer.mix(out, 256, 128);
+        int first = (short) ((out[0] & 0xFF) | (out[1] << 8));
+        int overlapped = (short) ((out[256] & 0xFF) | (out[257] << 8));
+        System.out.println("One voice: " + first + ", two overlapping voices: " + overlapped);
+        ok &= first == 1000 && overlapped == 2000;
+
+        // Mixing cost per chunk
+        byte[] chunk = new byte[mixer.chunkFrames * 2];
+        long start = System.nanoTime();
+        int chunks = 0;
+        while (System.nanoTime() - start < 200_000_000L) {
+            if (mixer.activeVoices < 4) {
+                mixer.play(sound, 0.5f);
+            }
+            mixer.mix(chunk, 0, mixer.chunkFrames);
+            chunks++;
+        }
+        System.out.printf("Mixing 4 voices: %.2f us per %d-frame chunk%n",
+                (System.nanoTime() - start) / 1e3 / chunks, mixer.chunkFrames);
+
+        // Real-time headless run
+        AudioMixer paced = new AudioMixer(DEFAULT_SAMPLE_RATE, DEFAULT_VOICES, bufferFrames);
+        int pacedSound = paced.addSound(new PcmSound(DEFAULT_SAMPLE_RATE, 1, tone));
+        ByteSink sink = new ByteSink();
+        paced.start(sink);
+        for (int i = 0; i < 40; i++) {
+            paced.play(pacedSound, 0.25f);
+            Thread.sleep(50);
+        }
+        paced.stop();
+        System.out.printf("Real-time run: %d frames mixed, %d bytes written, %d underruns, %d dropped triggers%n",
+                paced.getFramesMixed(), sink.size(), paced.getUnderruns(), paced.getDroppedTriggers());
+        ok &= paced.getDroppedTriggers() == 0 && sink.size() > 0;
+
+        if (!ok) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.Arrays;
+
+/**
+ * Anytime planner that flies the plane, for attract mode, soak tests and as a skill
+ * baseline. Bullets keep a constant velocityX, so their positions are known for every
+ * future tick; the planner simulates the plane under the world's acceleration,
+ * deceleration and maxVelocity for HORIZON ticks against them and keeps the plan that
+ * survives longest, then stays closest to a safe home position.
+ *
+ * Candidate plans are "hold action A for S ticks, then action B". Each tick starts from
+ * the previous tick's best plan advanced by one tick, then tries candidates until the
+ * deadline, resuming the enumeration where the last tick stopped. A decision is always
+ * ready: the carried-over plan is the fallback even if nothing new was evaluated, and a
+ * candidate still running at the deadline is abandoned.
+ */
+public class Autopilot {
+    public static final int DEFAULT_BUDGET_MICROS = 1000;
+    static final int HORIZON = 48; // Ticks each plan looks ahead
+
+    // Actions: vertical (none, up, down) x horizontal (none, left, right)
+    private static final int ACTIONS = 9;
+    private static final int[] SWITCH_TICKS = {2, 6, 12, 24};
+    private static final int CANDIDATES = ACTIONS * ACTIONS * SWITCH_TICKS.length;
+    private static final int CHECK_EVERY = 8; // Simulated ticks between deadline checks
+    private static final long MAX_SLACK_NANOS = 5_000; // Stop this early, for the work after the search
+
+    // Away from the spawn edge and vertically centred, so both ways out stay open
+    private static final int HOME_X = 100;
+    private static final int HOME_Y = GameWorld.HEIGHT / 2;
+
+    private final long budgetNanos;
+    private final byte[] bestPlan = new byte[HORIZON];
+    private final byte[] candidate = new byte[HORIZON];
+    private int cursor;
+
+    // The tick's starting state
+    private int planeX, planeY, planeWidth, planeHeight;
+    private double planeVelocityX, planeVelocityY;
+    private double acceleration, deceleration;
+    private int maxVelocity, autoSpeedX;
+    private int[] bulletX = new int[64], bulletY = new int[64], bulletVelocityX = new int[64];
+    private int[] bulletWidth = new int[64], bulletHeight = new int[64];
+    private int bulletCount;
+    private CollisionMask planeMask, bulletMask;
+
+    // Budget use
+    private long decisions;
+    private long usedNanos;
+    private long maxUsedNanos;
+    private long overruns;
+    private long plansEvaluated;
+    private long fullSearches;
+
+    public Autopilot() {
+        this(DEFAULT_BUDGET_MICROS);
+    }
+
+    public Autopilot(int budgetMicros) {
+        this.budgetNanos = budgetMicros * 1000L;
+    }
+
+    /**
+     * Forgets the current plan; call when a new run starts.
+     */
+    public void reset() {
+        Arrays.fill(bestPlan, (byte) 0);
+        cursor = 0;
+    }
+
+    /**
+     * Plans for the world's current state and writes the first move into the arrow keys
+     * of {@code input} (mouse steering is switched off). Returns within the budget.
+     */
+    public void decide(GameWorld world, TickInput input) {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos - Math.min(budgetNanos / 10, MAX_SLACK_NANOS);
+        snapshot(world);
+
+        // Last tick's plan, one tick further along
+        System.arraycopy(bestPlan, 1, bestPlan, 0, HORIZON - 1);
+        double bestScore = evaluate(bestPlan, deadline);
+        int tried = 0;
+        while (tried < CANDIDATES && System.nanoTime() < deadline) {
+            fillCandidate(cursor);
+            cursor = cursor + 1 == CANDIDATES ? 0 : cursor + 1;
+            double score = evaluate(candidate, deadline);
+            if (score > bestScore) {
+                bestScore = score;
+                System.arraycopy(candidate, 0, bestPlan, 0, HORIZON);
+            }
+            tried++;
+        }
+
+        int action = bestPlan[0];
+        input.mouseControl = false;
+        input.mouseMoved = false;
+        input.up = action / 3 == 1;
+        input.down = action / 3 == 2;
+        input.left = action % 3 == 1;
+        input.right = action % 3 == 2;
+
+        long used = System.nanoTime() - start;
+        decisions++;
+        usedNanos += used;
+        maxUsedNanos = Math.max(maxUsedNanos, used);
+        overruns += used > budgetNanos ? 1 : 0;
+        plansEvaluated += tried + 1;
+        fullSearches += tried == CANDIDATES ? 1 : 0;
+    }
+
+    private void snapshot(GameWorld world) {
+        Plane plane = world.getPlane();
+        planeX = plane.getX();
+        planeY = plane.getY();
+        planeWidth = plane.getWidth();
+        planeHeight = plane.getHeight();
+        planeVelocityX = plane.getVelocityX();
+        planeVelocityY = plane.getVelocityY();
+        acceleration = world.getAcceleration();
+        deceleration = world.getDeceleration();
+        maxVelocity = world.getMaxVelocity();
+        autoSpeedX = world.getPlaneAutoSpeedX();
+        planeMask = world.getPlaneMask();
+        bulletMask = world.getBulletMask();
+
+        BulletPool bullets = world.getBullets();
+        int retreat = maxVelocity - autoSpeedX; // Fastest the plane can move left
+        bulletCount = 0;
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            // Skip bullets already behind the plane that it can never back into
+            if (bullets.getX(i) + bullets.getWidth(i) < planeX && -bullets.getVelocityX(i) >= retreat) {
+                continue;
+            }
+            if (bulletCount == bulletX.length) {
+                growBullets();
+            }
+            bulletX[bulletCount] = bullets.getX(i);
+            bulletY[bulletCount] = bullets.getY(i);
+            bulletVelocityX[bulletCount] = bullets.getVelocityX(i);
+            bulletWidth[bulletCount] = bullets.getWidth(i);
+            bulletHeight[bulletCount] = bullets.getHeight(i);
+            bulletCount++;
+        }
+    }
+
+    private void growBullets() {
+        int size = bulletX.length * 2;
+        bulletX = Arrays.copyOf(bulletX, size);
+        bulletY = Arrays.copyOf(bulletY, size);
+        bulletVelocityX = Arrays.copyOf(bulletVelocityX, size);
+        bulletWidth = Arrays.copyOf(bulletWidth, size);
+        bulletHeight = Arrays.copyOf(bulletHeight, size);
+    }
+
+    private void fillCandidate(int index) {
+        int first = index % ACTIONS;
+        int second = (index / ACTIONS) % ACTIONS;
+        int switchTick = SWITCH_TICKS[index / (ACTIONS * ACTIONS)];
+        for (int t = 0; t < HORIZON; t++) {
+            candidate[t] = (byte) (t < switchTick ? first : second);
+        }
+    }
+
+    /**
+     * Simulates the plan the way GameWorld.step moves the plane and bullets. Scores the
+     * ticks survived first, then closeness to home at the end; a plan cut off by the
+     * deadline scores lowest.
+     */
+    private double evaluate(byte[] plan, long deadline) {
+        int x = planeX, y = planeY;
+        double velocityX = planeVelocityX, velocityY = planeVelocityY;
+        for (int t = 0; t < HORIZON; t++) {
+            if (t % CHECK_EVERY == CHECK_EVERY - 1 && System.nanoTime() >= deadline) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            int action = plan[t];
+            if (action / 3 == 1) {
+                velocityY = Math.max(velocityY - acceleration, -maxVelocity);
+            } else if (action / 3 == 2) {
+                velocityY = Math.min(velocityY + acceleration, maxVelocity);
+            }
+            if (action % 3 == 1) {
+                velocityX = Math.max(velocityX - acceleration, -maxVelocity);
+            } else if (action % 3 == 2) {
+                velocityX = Math.min(velocityX + acceleration, maxVelocity);
+            }
+
+            x = (int) (x + velocityX);
+            y = (int) (y + velocityY);
+            velocityX = velocityX > 0 ? Math.max(0, velocityX - deceleration) : Math.min(0, velocityX + deceleration);
+            velocityY = velocityY > 0 ? Math.max(0, velocityY - deceleration) : Math.min(0, velocityY + deceleration);
+            if (y < 0) {
+                y = 0;
+                velocityY = 0;
+            } else if (y > GameWorld.HEIGHT - planeHeight) {
+                y = GameWorld.HEIGHT - planeHeight;
+                velocityY = 0;
+            }
+            if (x < 0) {
+                x = 0;
+                velocityX = 0;
+            } else if (x > GameWorld.WIDTH - planeWidth) {
+                x = GameWorld.WIDTH - planeWidth;
+                velocityX = 0;
+            }
+            x += autoSpeedX;
+            if (x > GameWorld.WIDTH) {
+                x = 0;
+                y = GameWorld.HEIGHT / 2;
+            }
+
+            int ticksAhead = t + 1;
+            for (int b = 0; b < bulletCount; b++) {
+                int bx = bulletX[b] + bulletVelocityX[b] * ticksAhead;
+                if (GameWorld.intersects(x, y, planeWidth, planeHeight, bx, bulletY[b], bulletWidth[b], bulletHeight[b])
+                        && (planeMask == null || bulletMask == null || planeMask.overlaps(x, y, bulletMask, bx, bulletY[b]))) {
+                    return t * 1000.0;
+                }
+            }
+        }
+        double away = Math.abs(x - HOME_X) + Math.abs(y + planeHeight / 2 - HOME_Y);
+        return HORIZON * 1000.0 - away;
+    }
+
+    public int getBudgetMicros() {
+        return (int) (budgetNanos / 1000);
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public double getMeanUsedMicros() {
+        return decisions == 0 ? 0 : usedNanos / 1000.0 / decisions;
+    }
+
+    public double getMaxUsedMicros() {
+        return maxUsedNanos / 1000.0;
+    }
+
+    /**
+     * Decisions that took longer than the budget (timer granularity and the last
+     * deadline check make a few microseconds of slack possible).
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public double getMeanPlans() {
+        return decisions == 0 ? 0 : (double) plansEvaluated / decisions;
+    }
+
+    /**
+     * Share of decisions that tried every candidate before the deadline.
+     */
+    public double getFullSearchRate() {
+        return decisions == 0 ? 0 : (double) fullSearches / decisions;
+    }
+
+    public void resetStats() {
+        decisions = 0;
+        usedNanos = 0;
+        maxUsedNanos = 0;
+        overruns = 0;
+        plansEvaluated = 0;
+        fullSearches = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Autopilot: %d decisions, budget %d us, used mean %.1f us (%.0f%%) max %.1f us, "
+                        + "%d overruns, %.0f plans/tick, full search %.0f%%",
+                decisions, getBudgetMicros(), getMeanUsedMicros(), 100 * getMeanUsedMicros() / getBudgetMicros(),
+                getMaxUsedMicros(), overruns, getMeanPlans(), 100 * getFullSearchRate());
+    }
+
+    /**
+     * {@code java -cp out Autopilot [games] [budgetMicros...]} plays headless games at
+     * every difficulty with each budget (default 50, 200 and 1000 us) and prints how
+     * long the pilot survives and how much of the budget it used.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int[] budgets = {50, 200, DEFAULT_BUDGET_MICROS};
+        if (args.length > 1) {
+            budgets = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                budgets[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        int maxTicks = 3000; // A minute of play
+        double ticksPerSecond = 1e9 / GameLoop.DEFAULT_TICK_NANOS;
+
+        GameWorld world = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+        CollisionMask[] masks = Replay.sessionMasks();
+        world.setCollisionMasks(masks[0], masks[1]);
+        TickInput input = new TickInput();
+
+        // Let the JIT compile the planner before anything is measured
+        Autopilot warmup = new Autopilot(DEFAULT_BUDGET_MICROS);
+        world.reset(Difficulty.HARD, 0);
+        for (int i = 0; i < 20_000; i++) {
+            if (world.isGameOver()) {
+                world.reset(Difficulty.HARD, i);
+                warmup.reset();
+            }
+            warmup.decide(world, input);
+            world.step(input);
+        }
+
+        for (int budget : budgets) {
+            for (Difficulty difficulty : Difficulty.values()) {
+                Autopilot pilot = new Autopilot(budget);
+                int cleared = 0;
+                long ticks = 0;
+                for (int game = 0; game < games; game++) {
+                    world.reset(difficulty, game + 1);
+                    pilot.reset();
+                    while (!world.isGameOver() && !world.isLevelCompleted() && world.getTick() < maxTicks) {
+                        pilot.decide(world, input);
+                        world.step(input);
+                    }
+                    cleared += world.isGameOver() ? 0 : 1;
+                    ticks += world.getTick();
+                }
+                System.out.printf("%5d us %-6s %3d/%d survived, mean %5.1f s | %.1f us mean (%.0f%%), %.1f us max, "
+                                + "%d overruns, %.0f plans/tick, full search %.0f%%%n",
+                        budget, difficulty, cleared, games, ticks / (double) games / ticksPerSecond,
+                        pilot.getMeanUsedMicros(), 100 * pilot.getMeanUsedMicros() / budget, pilot.getMaxUsedMicros(),
+                        pilot.getOverruns(), pilot.getMeanPlans(), 100 * pilot.getFullSearchRate());
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro-benchmark suite for the simulation and rendering hot paths.
+ * Each benchmark runs timed warmup and measurement iterations per bullet count
+ * and reports operations per second, in the spirit of JMH without the dependency:
+ * {@code java -cp out Benchmarks [name-filter] [bulletCount,...]}
+ */
+public class Benchmarks {
+    private static final int[] DEFAULT_BULLET_COUNTS = {10, 1_000, 10_000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long WARMUP_NANOS = 200_000_000L;
+    private static final long MEASURE_NANOS = 500_000_000L;
+
+    /**
+     * One benchmark. setUp runs untimed before each bullet count; op is the timed operation.
+     */
+    public abstract static class Benchmark {
+        final String name;
+
+        protected Benchmark(String name) {
+            this.name = name;
+        }
+
+        protected abstract void setUp(int bulletCount);
+
+        // Returns something derived from the work so the JIT can't drop it
+        protected abstract long op();
+    }
+
+    // Sink for benchmark results
+    private static long blackhole;
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        int[] counts = args.length > 1 ? parseCounts(args[1]) : DEFAULT_BULLET_COUNTS;
+
+        System.out.printf("%-28s %10s %16s %12s%n", "benchmark", "bullets", "ops/s", "error %");
+        for (Benchmark benchmark : all()) {
+            if (!benchmark.name.contains(filter)) {
+                continue;
+            }
+            for (int count : counts) {
+                benchmark.setUp(count);
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    iteration(benchmark, WARMUP_NANOS);
+                }
+                double[] results = new double[MEASURE_ITERATIONS];
+                for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+                    results[i] = iteration(benchmark, MEASURE_NANOS);
+                }
+                report(benchmark.name, count, results);
+            }
+        }
+        if (blackhole == 42) {
+            System.out.println();
+        }
+    }
+
+    private static int[] parseCounts(String arg) {
+        String[] parts = arg.split(",");
+        int[] counts = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            counts[i] = Integer.parseInt(parts[i].trim());
+        }
+        return counts;
+    }
+
+    // Runs the operation repeatedly for roughly the given time; returns ops/s
+    private static double iteration(Benchmark benchmark, long nanos) {
+        long ops = 0;
+        long sink = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 16; i++) {
+                sink += benchmark.op();
+            }
+            ops += 16;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        blackhole += sink;
+        return ops / (elapsed / 1e9);
+    }
+
+    private static void report(String name, int count, double[] results) {
+        double mean = 0;
+        for (double r : results) {
+            mean += r;
+        }
+        mean /= results.length;
+        double variance = 0;
+        for (double r : results) {
+            variance += (r - mean) * (r - mean);
+        }
+        double stddev = Math.sqrt(variance / Math.max(1, results.length - 1));
+        System.out.printf("%-28s %10d %16.1f %11.1f%%%n", name, count, mean, 100 * stddev / mean);
+    }
+
+    static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(new BulletUpdate());
+        benchmarks.add(new CollisionCheck());
+        for (Difficulty difficulty : Difficulty.values()) {
+            benchmarks.add(new Spawn(difficulty));
+        }
+        benchmarks.add(new ScaleImage());
+        for (SpriteBlit.Source source : SpriteBlit.Source.values()) {
+            benchmarks.add(new SpriteBlit(source));
+        }
+        for (PaintFrame.Backend backend : PaintFrame.Backend.values()) {
+            benchmarks.add(new PaintFrame(backend));
+        }
+        benchmarks.add(new PaintFrame("paintFrameScaled", PaintFrame.Backend.DIRTY, 1920, 1080));
+        return benchmarks;
+    }
+
+    // Fills the pool with bullets spread over the playfield
+    static void fill(BulletPool bullets, int count, Random random) {
+        bullets.clear();
+        for (int i = 0; i < count; i++) {
+            bullets.spawn(random.nextInt(GameWorld.WIDTH), random.nextInt(GameWorld.HEIGHT - 30), 60, 30,
+                    GameWorld.MEDIUM_BULLET_SPEED);
+        }
+    }
+
+    /**
+     * Moves every bullet one tick, topping the pool back up at the right edge.
+     */
+    static class BulletUpdate extends Benchmark {
+        private final Random random = new Random(1);
+        private GameWorld world;
+        private int count;
+
+        BulletUpdate() {
+            super("bulletUpdate");
+        }
+
+        @Override
+        protected void setUp(int bulletCount) {
+            world = new GameWorld(200, 100, 60, 30);
+            count = bulletCount;
+            fill(world.getBullets(), bulletCount, random);
+        }
+
+        @Override
+        protected long op() {
+            world.updateBullets();
+            BulletPool bullets = world.getBullets();
+            while (bullets.size() < count) {
+                bullets.spawn(GameWorld.WIDTH, random.nextInt(GameWorld.HEIGHT - 30), 60, 30, GameWorld.MEDIUM_BULLET_SPEED);
+            }
+            return bullets.size();
+        }
+    }
+
+    /**
+     * Plane against every bullet, broad phase plus the mask narrow phase.
+     */
+    static class CollisionCheck extends Benchmark {
+        private GameWorld world;
+
+        CollisionCheck() {
+            super("checkCollisions");
+        }
+
+        @Override
+        protected void setUp(int bulletCount) {
+            world = new GameWorld(200, 100, 60, 30);
+            world.setCollisionMasks(CollisionMask.solid(200, 100), CollisionMask.solid(60, 30));
+            Random random = new Random(2);
+            BulletPool bullets = world.getBullets();
+            for (int i = 0; i < bulletCount; i++) {
+                // Stationary bullets, so the update only marks the grid for rebuilding as a real tick does
+                bullets.spawn(random.nextInt(GameWorld.WIDTH), random.nextInt(GameWorld.HEIGHT - 30), 60, 30, 0);
+            }
+        }
+
+        @Override
+        protected long op() {
+            world.updateBullets();
+            world.checkCollisions();
+            return world.isGameOver() ? 1 : 0;
+        }
+    }
+
+    /**
+     * Bullet spawning at one difficulty's rate and speed.
+     */
+    static class Spawn extends Benchmark {
+        private final Difficulty difficulty;
+        private GameWorld world;
+        private int count;
+
+        Spawn(Difficulty difficulty) {
+            super("spawnBullets." + difficulty);
+            this.difficulty = difficulty;
+        }
+
+        @Override
+        protected void setUp(int bulletCount) {
+            world = new GameWorld(200, 100, 60, 30);
+            world.reset(difficulty, 3);
+            count = bulletCount;
+            fill(world.getBullets(), bulletCount, new Random(3));
+        }
+
+        @Override
+        protected long op() {
+            BulletPool bullets = world.getBullets();
+            if (bullets.size() > count) {
+                bullets.remove(bullets.size() - 1);
+            }
+            world.spawnBullets();
+            return bullets.size();
+        }
+    }
+
+    /**
+     * Scaling the plane source image down to its sprite size (bullet count is ignored).
+     */
+    static class ScaleImage extends Benchmark {
+        private BufferedImage source;
+
+        ScaleImage() {
+            super("scaleImage");
+        }
+
+        @Override
+        protected void setUp(int bulletCount) {
+            if (source == null) {
+                source = new BufferedImage(1334, 618, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = source.createGraphics();
+                g.setPaint(new GradientPaint(0, 0, Color.BLUE, 1334, 618, new Color(0, 0, 0, 0)));
+                g.fillRect(0, 0, 1334, 618);
+                g.dispose();
+            }
+        }
+
+        @Override
+        protected long op() {
+            return Game.scaleImage(source, 200, 100).getWidth();
+        }
+    }
+
+    /**
+     * Draws bullet-count sprite blits per op into an opaque backbuffer, from a plain
+     * TYPE_INT_ARGB sprite (what scaleImage produces), a compatible image, or the atlas.
+     * Blits per second = ops/s x bullets.
+     */
+    static class SpriteBlit extends Benchmark {
+        enum Source { PLAIN_ARGB, COMPATIBLE, ATLAS }
+
+        private final Source source;
+        private BufferedImage target;
+        private Graphics2D g;
+        private BufferedImage sprite;
+        private SpriteAtlas atlas;
+        private int atlasSprite;
+        private int[] xs, ys;
+
+        SpriteBlit(Source source) {
+            super("blit." + source);
+            this.source = source;
+        }
+
+        @Override
+        protected void setUp(int bulletCount) {
+            if (target == null) {
+                target = CompatibleImages.create(GameWorld.WIDTH, GameWorld.HEIGHT, Transparency.OPAQUE);
+                g = target.createGraphics();
+
+                // A soft-edged sprite, like the bilinear-scaled bullet
+                BufferedImage plain = new BufferedImage(60, 30, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D sg = plain.createGraphics();
+                sg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                sg.setColor(Color.ORANGE);
+                sg.fillOval(0, 0, 60, 30);
+                sg.dispose();
+
+                switch (source) {
+                    case PLAIN_ARGB:
+                        sprite = plain;
+                        break;
+                    case COMPATIBLE:
+                        sprite = CompatibleImages.convert(plain);
+                        break;
+                    case ATLAS:
+                        atlas = new SpriteAtlas();
+                        atlas.add(new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB));
+                        atlasSprite = atlas.add(plain);
+                        atlas.pack();
+                        break;
+                }
+            }
+            Random random = new Random(5);
+            xs = new int[bulletCount];
+            ys = new int[bulletCount];
+            for (int i = 0; i < bulletCount; i++) {
+                xs[i] = random.nextInt(GameWorld.WIDTH);
+                ys[i] = random.nextInt(GameWorld.HEIGHT);
+            }
+        }
+
+        @Override
+        protected long op() {
+            if (atlas != null) {
+                for (int i = 0; i < xs.length; i++) {
+                    atlas.draw(g, atlasSprite, xs[i], ys[i]);
+                }
+            } else {
+                for (int i = 0; i < xs.length; i++) {
+                    g.drawImage(sprite, xs[i], ys[i], null);
+                }
+            }
+            return xs.length;
+        }
+    }
+
+    /**
+     * One frame of the game screen into an offscreen image, with every bullet moving one
+     * tick per frame: redrawn in full with Java2D, through the retained frame's dirty
+     * regions, or composited by the {@link SoftwareRenderer}. Frames per second = ops/s.
+     * paintFrameScaled draws the same frames into a 1920x1080 window, through the logical
+     * backbuffer and one scaled blit.
+     */
+    static class PaintFrame extends Benchmark {
+        enum Backend {
+            FULL("paintFrame"), DIRTY("paintFrameDirty"), SOFTWARE("paintFrameSoftware");
+
+            final String benchmarkName;
+
+            Backend(String benchmarkName) {
+                this.benchmarkName = benchmarkName;
+            }
+        }
+
+        private final Backend backend;
+        private final int width, height;
+        private final Random random = new Random(4);
+        private Game game;
+        private BufferedImage frame;
+        private Graphics2D g;
+        private int count;
+
+        PaintFrame(Backend backend) {
+            this(backend.benchmarkName, backend, GameWorld.WIDTH, GameWorld.HEIGHT);
+        }
+
+        PaintFrame(String name, Backend backend, int width, int height) {
+            super(name);
+            this.backend = backend;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        protected void setUp(int bulletCount) {
+            if (game == null) {
+                game = new Game();
+                game.getResourcesLoaded().join();
+                game.setSize(width, height);
+                game.setDirtyRendering(backend == Backend.DIRTY);
+                game.setSoftwareRendering(backend == Backend.SOFTWARE);
+                frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                g = frame.createGraphics();
+            }
+            game.startLevel(Difficulty.MEDIUM);
+            count = bulletCount;
+            fill(game.getWorld().getBullets(), bulletCount, random);
+            game.publishSnapshot();
+        }
+
+        @Override
+        protected long op() {
+            GameWorld world = game.getWorld();
+            world.updateBullets();
+            BulletPool bullets = world.getBullets();
+            while (bullets.size() < count) {
+                bullets.spawn(GameWorld.WIDTH, random.nextInt(GameWorld.HEIGHT - 30), 60, 30, GameWorld.MEDIUM_BULLET_SPEED);
+            }
+            game.publishSnapshot();
+            game.paint(g);
+            return frame.getRGB(0, 0);
+        }
+    }
+}
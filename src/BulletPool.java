@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * Bullet storage backed by parallel primitive arrays.
+ * Live bullets are packed into [0, size); removal swaps the last live bullet into
+ * the freed slot, so removal is O(1) and the slots past size form the free list.
+ * Spawning, updating and removing allocate nothing once the arrays have grown to
+ * the peak bullet count. Every bullet also gets an id, counting up from 0 and kept
+ * through swaps, so it can be followed across ticks (as network snapshots do).
+ */
+public class BulletPool {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] x;
+    private int[] y;
+    private int[] velocityX;
+    private int[] width;
+    private int[] height;
+    private int[] id;
+    private int size;
+    private int nextId;
+
+    public BulletPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BulletPool(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        x = new int[capacity];
+        y = new int[capacity];
+        velocityX = new int[capacity];
+        width = new int[capacity];
+        height = new int[capacity];
+        id = new int[capacity];
+    }
+
+    /**
+     * Adds a bullet and returns its current index. Indices change when bullets are removed.
+     */
+    public int spawn(int x, int y, int width, int height, int velocityX) {
+        if (size == this.x.length) {
+            grow();
+        }
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.width[i] = width;
+        this.height[i] = height;
+        this.velocityX[i] = velocityX;
+        this.id[i] = nextId++;
+        return i;
+    }
+
+    /**
+     * Removes the bullet at index by moving the last live bullet into its slot.
+     */
+    public void remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Bullet index " + index + " out of range 0.." + size);
+        }
+        int last = --size;
+        if (index != last) {
+            x[index] = x[last];
+            y[index] = y[last];
+            velocityX[index] = velocityX[last];
+            width[index] = width[last];
+            height[index] = height[last];
+            id[index] = id[last];
+        }
+    }
+
+    /**
+     * Moves every bullet by its velocity and removes those that have left the left side of the screen.
+     */
+    public void update() {
+        int i = 0;
+        while (i < size) {
+            x[i] += velocityX[i];
+            if (x[i] + width[i] < 0) {
+                // The bullet swapped into this slot has not moved yet, so revisit it
+                remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        id = Arrays.copyOf(id, capacity);
+    }
+
+    // Getters
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    public int getVelocityX(int i) {
+        return velocityX[i];
+    }
+
+    public int getWidth(int i) {
+        return width[i];
+    }
+
+    public int getHeight(int i) {
+        return height[i];
+    }
+
+    public int getId(int i) {
+        return id[i];
+    }
+}
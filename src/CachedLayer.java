@@ -0,0 +1,72 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * A pre-rendered piece of UI placed at a fixed screen position.
+ * The layer is repainted only when its key (a caller-chosen summary of the
+ * state it shows) changes; otherwise drawing it is a single image blit.
+ */
+public class CachedLayer {
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private final int x, y;
+    private final BufferedImage image;
+    private long key = INVALID;
+
+    public CachedLayer(int x, int y, int width, int height) {
+        this(x, y, width, height, true);
+    }
+
+    /**
+     * Opaque layers blit as a plain copy; use them when the layer covers what is behind it.
+     */
+    public CachedLayer(int x, int y, int width, int height, boolean translucent) {
+        this.x = x;
+        this.y = y;
+        this.image = CompatibleImages.create(width, height,
+                translucent ? Transparency.TRANSLUCENT : Transparency.OPAQUE);
+    }
+
+    public boolean isValid(long key) {
+        return this.key == key;
+    }
+
+    public void invalidate() {
+        key = INVALID;
+    }
+
+    /**
+     * Clears the layer and returns a graphics context in screen coordinates for repainting it.
+     * The caller must dispose it.
+     */
+    public Graphics2D begin(long key) {
+        this.key = key;
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.translate(-x, -y);
+        return g;
+    }
+
+    public void draw(Graphics2D g) {
+        g.drawImage(image, x, y, null);
+    }
+
+    /**
+     * Draws only the part of the layer inside the given screen rectangle.
+     */
+    public void draw(Graphics2D g, int clipX, int clipY, int clipWidth, int clipHeight) {
+        int x0 = Math.max(x, clipX), y0 = Math.max(y, clipY);
+        int x1 = Math.min(x + image.getWidth(), clipX + clipWidth);
+        int y1 = Math.min(y + image.getHeight(), clipY + clipHeight);
+        if (x0 < x1 && y0 < y1) {
+            g.drawImage(image, x0, y0, x1, y1, x0 - x, y0 - y, x1 - x, y1 - y, null);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Random;
+
+/**
+ * Compares the uniform grid broad phase with a linear scan over every bullet,
+ * collecting every bullet under a plane-sized box. Runs with the game's bullet size and
+ * with small 6x3 bullets: queries widen by the largest bullet, so bullet size matters:
+ * {@code java -cp out CollisionBenchmark}
+ */
+public class CollisionBenchmark {
+    private static final int[] BULLET_COUNTS = {1_000, 10_000, 100_000};
+    private static final int QUERIES = 2_000;
+    private static final int ROUNDS = 5;
+    private static final int[][] BULLET_SIZES = {{Game.BULLET_WIDTH, Game.BULLET_HEIGHT}, {6, 3}};
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-8s %16s %16s %16s%n", "bullets", "size", "linear ns/query", "grid ns/query",
+                "rebuild ns");
+        for (int[] size : BULLET_SIZES) {
+            for (int count : BULLET_COUNTS) {
+                run(count, size[0], size[1]);
+            }
+        }
+    }
+
+    private static void run(int count, int bulletWidth, int bulletHeight) {
+        Random random = new Random(count);
+        BulletPool bullets = new BulletPool(count);
+        for (int i = 0; i < count; i++) {
+            bullets.spawn(random.nextInt(GameWorld.WIDTH), random.nextInt(GameWorld.HEIGHT), bulletWidth, bulletHeight, -8);
+        }
+        SpatialGrid grid = new SpatialGrid(GameWorld.WIDTH, GameWorld.HEIGHT, 64);
+
+        // Every query collects all overlaps, so the linear scan can't exit early
+        int[] hits = new int[count];
+        int[] qx = new int[QUERIES];
+        int[] qy = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            qx[i] = random.nextInt(GameWorld.WIDTH);
+            qy[i] = random.nextInt(GameWorld.HEIGHT);
+        }
+
+        long linearBest = Long.MAX_VALUE, gridBest = Long.MAX_VALUE, rebuildBest = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                sink += linearOverlaps(bullets, qx[q], qy[q], Game.PLANE_WIDTH, Game.PLANE_HEIGHT);
+            }
+            linearBest = Math.min(linearBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            grid.rebuild(bullets);
+            rebuildBest = Math.min(rebuildBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                sink += grid.queryOverlaps(qx[q], qy[q], Game.PLANE_WIDTH, Game.PLANE_HEIGHT, hits);
+            }
+            gridBest = Math.min(gridBest, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-10d %-8s %16.0f %16.0f %16d%n",
+                count, bulletWidth + "x" + bulletHeight, (double) linearBest / QUERIES, (double) gridBest / QUERIES, rebuildBest);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static int linearOverlaps(BulletPool bullets, int x, int y, int w, int h) {
+        int found = 0;
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            if (GameWorld.intersects(x, y, w, h, bullets.getX(i), bullets.getY(i), bullets.getWidth(i), bullets.getHeight(i))) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Packed 1-bit-per-pixel collision mask built once from a sprite's alpha channel.
+ * Bit c of word (row * wordsPerRow + c / 64) is pixel column c of that row.
+ * Each row carries one spare zero word so shifted 64-bit reads never need a bounds check.
+ */
+public class CollisionMask {
+    // Pixels with at least this alpha count as solid
+    public static final int DEFAULT_ALPHA_THRESHOLD = 128;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    private CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) / 64 + 1;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Builds a mask from packed ARGB pixels laid out row by row (as returned by getRGB).
+     */
+    public static CollisionMask fromArgb(int[] argb, int width, int height, int alphaThreshold) {
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels, got " + argb.length);
+        }
+        CollisionMask mask = new CollisionMask(width, height);
+        for (int y = 0; y < height; y++) {
+            int rowBase = y * mask.wordsPerRow;
+            for (int x = 0; x < width; x++) {
+                if ((argb[y * width + x] >>> 24) >= alphaThreshold) {
+                    mask.bits[rowBase + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * A fully solid mask, equivalent to the plain bounding box.
+     */
+    public static CollisionMask solid(int width, int height) {
+        CollisionMask mask = new CollisionMask(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                mask.bits[y * mask.wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Exact pixel overlap test between this mask placed at (ax, ay) and other placed at (bx, by).
+     * Rejects on the bounding boxes first, then ANDs the overlapping rows 64 columns at a time.
+     */
+    public boolean overlaps(int ax, int ay, CollisionMask other, int bx, int by) {
+        int left = Math.max(ax, bx);
+        int right = Math.min(ax + width, bx + other.width);
+        int top = Math.max(ay, by);
+        int bottom = Math.min(ay + height, by + other.height);
+        if (left >= right || top >= bottom) {
+            return false;
+        }
+
+        int span = right - left;
+        int aCol = left - ax;
+        int bCol = left - bx;
+        for (int y = top; y < bottom; y++) {
+            int aRow = (y - ay) * wordsPerRow;
+            int bRow = (y - by) * other.wordsPerRow;
+            for (int offset = 0; offset < span; offset += 64) {
+                long a = bits64(bits, aRow, aCol + offset);
+                long b = bits64(other.bits, bRow, bCol + offset);
+                long and = a & b;
+                int remaining = span - offset;
+                if (remaining < 64) {
+                    and &= (1L << remaining) - 1;
+                }
+                if (and != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Reads 64 bits starting at an arbitrary column of a row
+    private static long bits64(long[] bits, int rowBase, int column) {
+        int word = rowBase + (column >>> 6);
+        int shift = column & 63;
+        if (shift == 0) {
+            return bits[word];
+        }
+        return (bits[word] >>> shift) | (bits[word + 1] << (64 - shift));
+    }
+
+    /**
+     * A hash of the size and pixels, for checking that two masks are the same.
+     */
+    public long checksum() {
+        long hash = width * 31L + height;
+        for (long word : bits) {
+            hash = hash * 0x100000001B3L ^ word;
+        }
+        return hash;
+    }
+
+    public boolean isSolid(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
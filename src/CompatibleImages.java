@@ -0,0 +1,66 @@
+import java.awt.AlphaComposite;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Creates images in the display's native format so Java2D can use its fast blit loops
+ * (and cache them in video memory as managed images) instead of converting per draw.
+ * Headless, it falls back to the int formats the software loops handle best.
+ */
+public final class CompatibleImages {
+    private CompatibleImages() {
+    }
+
+    private static GraphicsConfiguration configuration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    public static BufferedImage create(int width, int height, int transparency) {
+        GraphicsConfiguration gc = configuration();
+        if (gc != null) {
+            return gc.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height,
+                transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Copies an image into a compatible one. Images whose alpha is only ever fully
+     * opaque or fully clear become BITMASK, opaque ones OPAQUE, the rest TRANSLUCENT.
+     */
+    public static BufferedImage convert(BufferedImage source) {
+        BufferedImage image = create(source.getWidth(), source.getHeight(), transparencyOf(source));
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return image;
+    }
+
+    public static int transparencyOf(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return Transparency.OPAQUE;
+        }
+        int w = image.getWidth(), h = image.getHeight();
+        int[] row = new int[w];
+        boolean clear = false;
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, row, 0, w);
+            for (int argb : row) {
+                int alpha = argb >>> 24;
+                if (alpha == 0) {
+                    clear = true;
+                } else if (alpha != 255) {
+                    return Transparency.TRANSLUCENT;
+                }
+            }
+        }
+        return clear ? Transparency.BITMASK : Transparency.OPAQUE;
+    }
+}
@@ -0,0 +1,4 @@
+// Difficulty levels
+public enum Difficulty {
+    EASY, MEDIUM, HARD
+}
@@ -0,0 +1,339 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo balance tool: plays many headless games per parameter set with a scripted
+ * or bot player and reports how long runs survive and what they score at each difficulty.
+ * Games are split in halves recursively on a ForkJoinPool; every split hands one half a
+ * {@link SplittableRandom#split()} stream, so each game gets an independent, reproducible
+ * seed no matter which worker ends up running it.
+ *
+ * <pre>
+ * java -cp out DifficultyTuner [--games N] [--policy idle|weave|random|dodge|autopilot]
+ *     [--difficulty EASY,MEDIUM,HARD] [--spawn 3,5,8] [--speed -6,-8,-12]
+ *     [--thresholds 500,1000] [--max-ticks T] [--workers W] [--seed S]
+ * </pre>
+ *
+ * Without --spawn/--speed each difficulty runs with its own current values; with them,
+ * every difficulty runs the full spawn x speed grid.
+ */
+public class DifficultyTuner {
+    private static final int LEAF_SIZE = 64; // Games per task before splitting stops
+    private static final double TICKS_PER_SECOND = 1e9 / GameLoop.DEFAULT_TICK_NANOS;
+
+    /**
+     * How the simulated player steers.
+     */
+    public enum Policy {
+        IDLE,   // Never touches the controls
+        WEAVE,  // Fixed up/down sweep
+        RANDOM, // Holds random arrow keys for random stretches
+        DODGE,  // Holds back from the spawn edge and steers away from the nearest bullet ahead
+        AUTOPILOT; // The Autopilot planner with no deadline, so results stay reproducible
+
+        private static final int LOOK_AHEAD = 320; // Pixels in front of the plane to watch
+        private static final int HOLD_X = 100;     // Where the bot keeps the plane against its auto-drift
+
+        void decide(GameWorld world, TickInput input, SplittableRandom random) {
+            switch (this) {
+                case WEAVE:
+                    input.up = (world.getTick() / 40) % 2 == 0;
+                    input.down = !input.up;
+                    break;
+                case RANDOM:
+                    if (random.nextInt(20) == 0) {
+                        input.up = random.nextBoolean();
+                        input.down = !input.up && random.nextBoolean();
+                        input.left = random.nextInt(4) == 0;
+                        input.right = !input.left && random.nextBoolean();
+                    }
+                    break;
+                case DODGE:
+                    Plane plane = world.getPlane();
+                    // The auto-drift would otherwise pin the plane where bullets spawn
+                    input.left = plane.getX() > HOLD_X;
+                    input.right = plane.getX() < HOLD_X / 2;
+                    int centerY = plane.getY() + plane.getHeight() / 2;
+                    int threat = world.firstBulletOverlapping(plane.getX(), plane.getY(),
+                            plane.getWidth() + LOOK_AHEAD, plane.getHeight());
+                    if (threat >= 0) {
+                        BulletPool bullets = world.getBullets();
+                        int bulletY = bullets.getY(threat) + bullets.getHeight(threat) / 2;
+                        // Go around on the side with more room
+                        boolean up = bulletY > centerY || (bulletY == centerY && centerY > GameWorld.HEIGHT / 2);
+                        if (up && plane.getY() <= 0) {
+                            up = false;
+                        } else if (!up && plane.getY() >= GameWorld.HEIGHT - plane.getHeight()) {
+                            up = true;
+                        }
+                        input.up = up;
+                        input.down = !up;
+                    } else {
+                        // Drift back to the middle, where both ways out are open
+                        input.up = centerY > GameWorld.HEIGHT / 2 + 50;
+                        input.down = centerY < GameWorld.HEIGHT / 2 - 50;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * One parameter set to measure.
+     */
+    public static class Settings {
+        public final Difficulty difficulty;
+        public final int spawnRate;
+        public final int bulletSpeed;
+        public final int mediumThreshold;
+        public final int hardThreshold;
+
+        public Settings(Difficulty difficulty, int spawnRate, int bulletSpeed, int mediumThreshold, int hardThreshold) {
+            this.difficulty = difficulty;
+            this.spawnRate = spawnRate;
+            this.bulletSpeed = bulletSpeed;
+            this.mediumThreshold = mediumThreshold;
+            this.hardThreshold = hardThreshold;
+        }
+
+        void applyTo(GameWorld world) {
+            world.setSpawnRate(difficulty, spawnRate);
+            world.setBulletSpeed(difficulty, bulletSpeed);
+            world.setLevelThresholds(mediumThreshold, hardThreshold);
+        }
+    }
+
+    /**
+     * Outcomes of every game played with one parameter set, in game order.
+     */
+    public static class Result {
+        public final Settings settings;
+        public final int[] ticks;
+        public final int[] scores;
+        public final boolean[] completed;
+        public double seconds;
+
+        Result(Settings settings, int games) {
+            this.settings = settings;
+            this.ticks = new int[games];
+            this.scores = new int[games];
+            this.completed = new boolean[games];
+        }
+
+        public int getGames() {
+            return ticks.length;
+        }
+
+        public double getCompletionRate() {
+            int count = 0;
+            for (boolean done : completed) {
+                count += done ? 1 : 0;
+            }
+            return (double) count / completed.length;
+        }
+
+        /**
+         * Survival time in seconds of the runs that ended in a crash; NaN if none did.
+         */
+        public double survivalSeconds(double percentile) {
+            int[] crashed = new int[ticks.length];
+            int n = 0;
+            for (int i = 0; i < ticks.length; i++) {
+                if (!completed[i]) {
+                    crashed[n++] = ticks[i];
+                }
+            }
+            return n == 0 ? Double.NaN : percentile(Arrays.copyOf(crashed, n), percentile) / TICKS_PER_SECOND;
+        }
+
+        public int score(double percentile) {
+            return percentile(scores.clone(), percentile);
+        }
+
+        public double meanScore() {
+            long sum = 0;
+            for (int score : scores) {
+                sum += score;
+            }
+            return (double) sum / scores.length;
+        }
+
+        private static int percentile(int[] values, double percentile) {
+            Arrays.sort(values);
+            int index = (int) Math.ceil(percentile / 100.0 * values.length) - 1;
+            return values[Math.max(0, Math.min(values.length - 1, index))];
+        }
+    }
+
+    // Plays games [from, to) of one parameter set with its own random stream
+    private static class PlayRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Result result;
+        private final Policy policy;
+        private final int maxTicks;
+        private final SplittableRandom random;
+        private final int from, to;
+
+        PlayRange(Result result, Policy policy, int maxTicks, SplittableRandom random, int from, int to) {
+            this.result = result;
+            this.policy = policy;
+            this.maxTicks = maxTicks;
+            this.random = random;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                playAll();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            // Split before forking, so the streams depend only on the range, not the schedule
+            SplittableRandom right = random.split();
+            invokeAll(new PlayRange(result, policy, maxTicks, random, from, middle),
+                    new PlayRange(result, policy, maxTicks, right, middle, to));
+        }
+
+        private void playAll() {
+            GameWorld world = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+            CollisionMask[] masks = Replay.sessionMasks();
+            world.setCollisionMasks(masks[0], masks[1]);
+            result.settings.applyTo(world);
+            TickInput input = new TickInput();
+            input.mouseControl = false;
+            Autopilot pilot = policy == Policy.AUTOPILOT ? new Autopilot(Integer.MAX_VALUE) : null;
+            for (int i = from; i < to; i++) {
+                input.clear();
+                world.reset(result.settings.difficulty, random.nextLong());
+                if (pilot != null) {
+                    pilot.reset();
+                }
+                while (!world.isGameOver() && !world.isLevelCompleted() && world.getTick() < maxTicks) {
+                    if (pilot != null) {
+                        pilot.decide(world, input);
+                    } else {
+                        policy.decide(world, input, random);
+                    }
+                    world.step(input);
+                }
+                result.ticks[i] = (int) world.getTick();
+                result.scores[i] = world.getScore();
+                // Surviving to the tick cap counts as beating the level
+                result.completed[i] = !world.isGameOver();
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public DifficultyTuner(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Plays {@code games} games with the given settings; the same seed always gives the same result.
+     */
+    public Result run(Settings settings, Policy policy, int games, int maxTicks, long seed) {
+        Result result = new Result(settings, games);
+        long start = System.nanoTime();
+        pool.invoke(new PlayRange(result, policy, maxTicks, new SplittableRandom(seed), 0, games));
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        return result;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public static void main(String[] args) {
+        int games = 100_000;
+        Policy policy = Policy.DODGE;
+        List<Difficulty> difficulties = Arrays.asList(Difficulty.values());
+        int[] spawnRates = null;
+        int[] bulletSpeeds = null;
+        int mediumThreshold = GameWorld.MEDIUM_THRESHOLD;
+        int hardThreshold = GameWorld.HARD_THRESHOLD;
+        int maxTicks = (int) (120 * TICKS_PER_SECOND);
+        int workers = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(value); break;
+                case "--policy": policy = Policy.valueOf(value.toUpperCase()); break;
+                case "--difficulty":
+                    difficulties = new ArrayList<>();
+                    for (String name : value.split(",")) {
+                        difficulties.add(Difficulty.valueOf(name.trim().toUpperCase()));
+                    }
+                    break;
+                case "--spawn": spawnRates = parseInts(value); break;
+                case "--speed": bulletSpeeds = parseInts(value); break;
+                case "--thresholds":
+                    int[] thresholds = parseInts(value);
+                    mediumThreshold = thresholds[0];
+                    hardThreshold = thresholds[1];
+                    break;
+                case "--max-ticks": maxTicks = Integer.parseInt(value); break;
+                case "--workers": workers = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        GameWorld defaults = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+        List<Settings> grid = new ArrayList<>();
+        for (Difficulty difficulty : difficulties) {
+            int[] rates = spawnRates != null ? spawnRates : new int[] {defaults.getSpawnRate(difficulty)};
+            int[] speeds = bulletSpeeds != null ? bulletSpeeds : new int[] {defaults.getBulletSpeed(difficulty)};
+            for (int rate : rates) {
+                for (int speed : speeds) {
+                    grid.add(new Settings(difficulty, rate, speed, mediumThreshold, hardThreshold));
+                }
+            }
+        }
+
+        System.out.printf("%d games per set, %s player, %d workers, runs capped at %d ticks (%.0f s)%n",
+                games, policy, workers, maxTicks, maxTicks / TICKS_PER_SECOND);
+        System.out.println("difficulty spawn speed  completed | crash survival s p10   p50   p90 "
+                + "| score mean    p50    p90    max | games/s");
+        DifficultyTuner tuner = new DifficultyTuner(workers);
+        long totalGames = 0;
+        long start = System.nanoTime();
+        for (Settings settings : grid) {
+            Result result = tuner.run(settings, policy, games, maxTicks, seed);
+            totalGames += games;
+            System.out.printf("%-10s %5d %5d %9.1f%% | %16s %5.1f %5.1f %5.1f | %10.0f %6d %6d %6d | %7.1f%n",
+                    settings.difficulty, settings.spawnRate, settings.bulletSpeed,
+                    result.getCompletionRate() * 100, "",
+                    result.survivalSeconds(10), result.survivalSeconds(50), result.survivalSeconds(90),
+                    result.meanScore(), result.score(50), result.score(90), result.score(100),
+                    games / result.seconds);
+        }
+        tuner.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d sets, %d games in %.1f s (%.1f games/s)%n",
+                grid.size(), totalGames, seconds, totalGames / seconds);
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,115 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered glyphs for the digits 0-9 (with an optional drop shadow), so numbers
+ * that change every frame can be drawn as image blits without laying out text.
+ */
+public class DigitStrip {
+    private final BufferedImage[] glyphs = new BufferedImage[10];
+    private final int[] advances = new int[10];
+    private final int ascent;
+    private final int height;
+    private final int overhang; // How far the last glyph image reaches past its advance
+    private final int[] digits = new int[10]; // Scratch space, enough for any int
+
+    public DigitStrip(Font font, Color color, Color shadow, int shadowOffset) {
+        // Measure with a throwaway context
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        sg.setFont(font);
+        FontMetrics fm = sg.getFontMetrics();
+        ascent = fm.getAscent();
+        height = fm.getAscent() + fm.getDescent() + shadowOffset;
+        overhang = shadowOffset + 1;
+        sg.dispose();
+
+        for (int d = 0; d < 10; d++) {
+            char c = (char) ('0' + d);
+            advances[d] = fm.charWidth(c);
+            BufferedImage glyph = CompatibleImages.create(advances[d] + shadowOffset + 1, height, Transparency.TRANSLUCENT);
+            Graphics2D g = glyph.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(font);
+            String s = String.valueOf(c);
+            if (shadow != null) {
+                g.setColor(shadow);
+                g.drawString(s, shadowOffset, ascent + shadowOffset);
+            }
+            g.setColor(color);
+            g.drawString(s, 0, ascent);
+            g.dispose();
+            glyphs[d] = glyph;
+        }
+    }
+
+    /**
+     * Draws a non-negative number with its text baseline at (x, baseline). Returns the drawn width.
+     */
+    public int draw(Graphics2D g, int value, int x, int baseline) {
+        int count = split(value);
+        int cursor = x;
+        int top = baseline - ascent;
+        for (int i = count - 1; i >= 0; i--) {
+            int d = digits[i];
+            g.drawImage(glyphs[d], cursor, top, null);
+            cursor += advances[d];
+        }
+        return cursor - x;
+    }
+
+    /**
+     * Like draw(), but only touches the pixels inside the given clip rectangle.
+     */
+    public void draw(Graphics2D g, int value, int x, int baseline, int clipX, int clipY, int clipWidth, int clipHeight) {
+        int count = split(value);
+        int cursor = x;
+        int top = baseline - ascent;
+        int y0 = Math.max(top, clipY), y1 = Math.min(top + height, clipY + clipHeight);
+        for (int i = count - 1; i >= 0 && y0 < y1; i--) {
+            int d = digits[i];
+            int x0 = Math.max(cursor, clipX), x1 = Math.min(cursor + glyphs[d].getWidth(), clipX + clipWidth);
+            if (x0 < x1) {
+                g.drawImage(glyphs[d], x0, y0, x1, y1, x0 - cursor, y0 - top, x1 - cursor, y1 - top, null);
+            }
+            cursor += advances[d];
+        }
+    }
+
+    // Puts the digits of the number into the scratch array, lowest first; returns how many
+    private int split(int value) {
+        int count = 0;
+        int v = Math.max(0, value);
+        do {
+            digits[count++] = v % 10;
+            v /= 10;
+        } while (v > 0);
+        return count;
+    }
+
+    /**
+     * Width of the pixels draw() touches for the number, including the shadow.
+     */
+    public int getWidth(int value) {
+        int width = overhang;
+        int v = Math.max(0, value);
+        do {
+            width += advances[v % 10];
+            v /= 10;
+        } while (v > 0);
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getAscent() {
+        return ascent;
+    }
+}
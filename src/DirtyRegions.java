@@ -0,0 +1,270 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Tracks the screen rectangles sprites covered in the last frame and in this one, and
+ * merges them into a few non-overlapping rectangles that need repainting. A bullet's old
+ * and new bounds overlap, so each moving sprite usually costs one slightly wider rect.
+ *
+ * Per frame: add() the bounds of everything drawn, then finish(); repaint each of
+ * getCount() rects in turn. When the rects would be too many or cover most of the
+ * screen (or after invalidate()), finish() returns a single full-screen rect instead.
+ */
+public class DirtyRegions {
+    public static final int MAX_RECTS = 48;
+    private static final int MERGE_SLACK = 2048;  // Extra pixels a merge may repaint to save a rect
+    private static final double FULL_FRACTION = 0.5; // Beyond this share of the screen, redraw it all
+
+    private final int width, height;
+
+    // Packed x0, y0, x1, y1 per rect (exclusive right and bottom edges)
+    private int[] previous = new int[64 * 4];
+    private int previousCount;
+    private int[] current = new int[64 * 4];
+    private int currentCount;
+    private final int[] dirty = new int[(MAX_RECTS + 1) * 4];
+    private int dirtyCount;
+    private boolean full = true;
+
+    // Statistics since the last resetStats()
+    private long frames;
+    private long fullFrames;
+    private long pixels;
+
+    public DirtyRegions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Adds what this frame draws at the given bounds; they are clipped to the screen.
+     */
+    public void add(int x, int y, int w, int h) {
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(width, x + w), y1 = Math.min(height, y + h);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        if (currentCount * 4 == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        int i = currentCount++ * 4;
+        current[i] = x0;
+        current[i + 1] = y0;
+        current[i + 2] = x1;
+        current[i + 3] = y1;
+    }
+
+    /**
+     * Makes the next frame a full redraw, for when something other than the tracked sprites changed.
+     */
+    public void invalidate() {
+        full = true;
+    }
+
+    /**
+     * Builds this frame's dirty rects from the previous and current bounds, and makes the
+     * current bounds the previous ones for the next frame. Returns true for a full redraw.
+     */
+    public boolean finish() {
+        dirtyCount = 0;
+        if (!full) {
+            full = !insertAll(previous, previousCount) || !insertAll(current, currentCount);
+        }
+        long area = 0;
+        for (int i = 0; i < dirtyCount * 4; i += 4) {
+            area += (long) (dirty[i + 2] - dirty[i]) * (dirty[i + 3] - dirty[i + 1]);
+        }
+        boolean redrawAll = full || area > FULL_FRACTION * width * height;
+        if (redrawAll) {
+            dirty[0] = 0;
+            dirty[1] = 0;
+            dirty[2] = width;
+            dirty[3] = height;
+            dirtyCount = 1;
+            area = (long) width * height;
+            fullFrames++;
+        }
+        full = false;
+        frames++;
+        pixels += area;
+
+        int[] swap = previous;
+        previous = current;
+        previousCount = currentCount;
+        current = swap;
+        currentCount = 0;
+        return redrawAll;
+    }
+
+    // False once there are more rects than MAX_RECTS
+    private boolean insertAll(int[] rects, int count) {
+        for (int i = 0; i < count * 4; i += 4) {
+            if (!insert(rects[i], rects[i + 1], rects[i + 2], rects[i + 3])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean insert(int x0, int y0, int x1, int y1) {
+        // Absorb every rect this one overlaps or nearly abuts; the grown rect may now reach
+        // others, so scan again until none merge and the set stays non-overlapping
+        int i = 0;
+        while (i < dirtyCount * 4) {
+            int ax0 = dirty[i], ay0 = dirty[i + 1], ax1 = dirty[i + 2], ay1 = dirty[i + 3];
+            int ux0 = Math.min(x0, ax0), uy0 = Math.min(y0, ay0);
+            int ux1 = Math.max(x1, ax1), uy1 = Math.max(y1, ay1);
+            boolean overlaps = x0 < ax1 && ax0 < x1 && y0 < ay1 && ay0 < y1;
+            long union = (long) (ux1 - ux0) * (uy1 - uy0);
+            long separate = (long) (x1 - x0) * (y1 - y0) + (long) (ax1 - ax0) * (ay1 - ay0);
+            if (overlaps || union <= separate + MERGE_SLACK) {
+                x0 = ux0;
+                y0 = uy0;
+                x1 = ux1;
+                y1 = uy1;
+                int last = --dirtyCount * 4;
+                System.arraycopy(dirty, last, dirty, i, 4);
+                i = 0;
+            } else {
+                i += 4;
+            }
+        }
+        if (dirtyCount == MAX_RECTS) {
+            return false;
+        }
+        int j = dirtyCount++ * 4;
+        dirty[j] = x0;
+        dirty[j + 1] = y0;
+        dirty[j + 2] = x1;
+        dirty[j + 3] = y1;
+        return true;
+    }
+
+    public int getCount() {
+        return dirtyCount;
+    }
+
+    public int getX(int rect) {
+        return dirty[rect * 4];
+    }
+
+    public int getY(int rect) {
+        return dirty[rect * 4 + 1];
+    }
+
+    public int getWidth(int rect) {
+        return dirty[rect * 4 + 2] - dirty[rect * 4];
+    }
+
+    public int getHeight(int rect) {
+        return dirty[rect * 4 + 3] - dirty[rect * 4 + 1];
+    }
+
+    /**
+     * True if the bounds overlap the given dirty rect.
+     */
+    public boolean overlaps(int rect, int x, int y, int w, int h) {
+        int i = rect * 4;
+        return x < dirty[i + 2] && dirty[i] < x + w && y < dirty[i + 3] && dirty[i + 1] < y + h;
+    }
+
+    /**
+     * Pixels in this frame's dirty rects.
+     */
+    public int getArea() {
+        int area = 0;
+        for (int i = 0; i < dirtyCount; i++) {
+            area += getWidth(i) * getHeight(i);
+        }
+        return area;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getFullFrames() {
+        return fullFrames;
+    }
+
+    /**
+     * Average share of the screen repainted per frame, 0-1.
+     */
+    public double getAverageFraction() {
+        return frames == 0 ? 0 : (double) pixels / frames / ((long) width * height);
+    }
+
+    public void resetStats() {
+        frames = 0;
+        fullFrames = 0;
+        pixels = 0;
+    }
+
+    /**
+     * Plays headless games, repainting only the dirty rects of a retained frame, and checks
+     * the frames of every tenth tick against a full redraw; then prints the share of pixels repainted and the
+     * time per frame of both paths:
+     * {@code java -Djava.awt.headless=true -cp out DirtyRegions [ticks]}. Exits with status 1
+     * if any frame differs.
+     */
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        Game game = new Game();
+        game.getResourcesLoaded().join();
+        BufferedImage dirtyFrame = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage fullFrame = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D dirtyG = dirtyFrame.createGraphics();
+        Graphics2D fullG = fullFrame.createGraphics();
+        int[] dirtyPixels = new int[GameWorld.WIDTH * GameWorld.HEIGHT];
+        int[] fullPixels = new int[dirtyPixels.length];
+        boolean ok = true;
+
+        System.out.printf("%-8s %8s %10s %10s %12s %12s%n", "level", "frames", "repainted", "full", "dirty us", "full us");
+        for (Difficulty difficulty : Difficulty.values()) {
+            game.startLevel(difficulty);
+            DirtyRegions regions = game.getDirtyRegions();
+            regions.resetStats();
+            long dirtyNanos = 0, fullNanos = 0;
+            int compared = 0, mismatched = 0;
+            for (int tick = 0; tick < ticks; tick++) {
+                if (!game.isSimulating()) {
+                    game.startLevel(difficulty);
+                }
+                game.tick();
+                // Two frames per tick, as on a display twice as fast as the simulation
+                for (int frame = 1; frame <= 2; frame++) {
+                    double alpha = frame / 2.0;
+                    long start = System.nanoTime();
+                    game.renderFrame(dirtyG, alpha);
+                    long middle = System.nanoTime();
+                    boolean scene = game.drawReferenceScene(fullG, alpha);
+                    long end = System.nanoTime();
+                    if (!scene) {
+                        continue;
+                    }
+                    dirtyNanos += middle - start;
+                    fullNanos += end - middle;
+                    compared++;
+                    if (tick % 10 == 0) {
+                        dirtyFrame.getRGB(0, 0, GameWorld.WIDTH, GameWorld.HEIGHT, dirtyPixels, 0, GameWorld.WIDTH);
+                        fullFrame.getRGB(0, 0, GameWorld.WIDTH, GameWorld.HEIGHT, fullPixels, 0, GameWorld.WIDTH);
+                        if (!Arrays.equals(dirtyPixels, fullPixels)) {
+                            mismatched++;
+                        }
+                    }
+                }
+            }
+            System.out.printf("%-8s %8d %9.1f%% %10d %12.1f %12.1f%n", difficulty, regions.getFrames(),
+                    100 * regions.getAverageFraction(), regions.getFullFrames(),
+                    dirtyNanos / 1e3 / Math.max(1, compared), fullNanos / 1e3 / Math.max(1, compared));
+            if (mismatched > 0) {
+                System.out.println("FAIL: " + mismatched + " " + difficulty + " frames differ from a full redraw");
+                ok = false;
+            }
+        }
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,304 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rolling latency histograms for each phase of a tick and a frame. Every phase keeps its
+ * last WINDOW samples in a ring and a log-linear bucket count of exactly those samples,
+ * so p50/p99 come from the buckets and max from the ring. All storage is allocated up
+ * front; recording a sample is a few array writes.
+ *
+ * The game keeps one for the simulation thread and one for the render thread. Timing
+ * (begin, lap, beginFrame) belongs to the owning thread; samples are recorded and read
+ * under the profiler's monitor, so the overlay can read the other thread's profiler.
+ * See {@link ProfilerOverlay} for the on-screen view.
+ */
+public class FrameProfiler {
+    // Simulation phases (recorded by GameWorld.step)
+    public static final int UPDATE_PLANE = 0;
+    public static final int UPDATE_BULLETS = 1;
+    public static final int CHECK_COLLISIONS = 2;
+    public static final int SPAWN_BULLETS = 3;
+    public static final int TICK = 4;
+    // Render phases
+    public static final int BACKGROUND = 5;
+    public static final int BULLETS = 6;
+    public static final int PLANE = 7;
+    public static final int HUD = 8;
+    public static final int OVERLAYS = 9;
+    public static final int PROFILER = 10;
+    public static final int SCALE = 11; // Only when the window isn't the logical size
+    public static final int FRAME = 12;
+    public static final int PRESENT = 13;
+    public static final int INTERVAL = 14;
+    public static final int PHASES = 15;
+
+    static final String[] PHASE_NAMES = {
+            "updatePlane", "updateBullets", "checkCollisions", "spawnBullets", "tick total",
+            "background", "bullets", "plane/explosion", "HUD", "overlays", "profiler", "scale",
+            "frame total", "present", "frame interval"
+    };
+
+    public static final int WINDOW = 256; // Samples kept per phase
+
+    // Buckets: everything under 128 ns, then 8 per power of two up to about 1 s
+    private static final int MIN_SHIFT = 7;
+    private static final int SUB_BITS = 3;
+    private static final int BUCKETS = 1 + (30 - MIN_SHIFT) * (1 << SUB_BITS);
+
+    private final int[][] counts = new int[PHASES][BUCKETS];
+    private final long[][] samples = new long[PHASES][WINDOW];
+    private final int[] cursor = new int[PHASES];
+    private final int[] filled = new int[PHASES];
+    private long mark;
+
+    // Per-frame extras, aligned with the INTERVAL ring
+    private final long[] gcMillisAtFrame = new long[WINDOW];
+    private long frameStart = -1;
+    private int bulletCount;
+    private double repaintedFraction = 1; // Share of the scene the frame repainted
+    private int repaintedRects = 1;
+
+    // Garbage collections seen through the collector beans
+    private final GarbageCollectorMXBean[] collectors;
+    private long gcCount;
+    private long gcMillis;
+    private long lastGcPauseMillis;
+
+    public FrameProfiler() {
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = beans.toArray(new GarbageCollectorMXBean[0]);
+        for (GarbageCollectorMXBean bean : collectors) {
+            gcCount += Math.max(0, bean.getCollectionCount());
+            gcMillis += Math.max(0, bean.getCollectionTime());
+        }
+    }
+
+    /**
+     * Starts timing; the next {@link #lap(int)} measures from here.
+     */
+    public long begin() {
+        mark = System.nanoTime();
+        return mark;
+    }
+
+    /**
+     * Records the time since the previous begin() or lap() as one sample of {@code phase}.
+     */
+    public void lap(int phase) {
+        long now = System.nanoTime();
+        record(phase, now - mark);
+        mark = now;
+    }
+
+    /**
+     * Records the time since {@code start} (a value returned by begin()).
+     */
+    public void since(int phase, long start) {
+        record(phase, System.nanoTime() - start);
+    }
+
+    public synchronized void record(int phase, long nanos) {
+        int slot = cursor[phase];
+        if (filled[phase] == WINDOW) {
+            counts[phase][bucket(samples[phase][slot])]--;
+        } else {
+            filled[phase]++;
+        }
+        samples[phase][slot] = nanos;
+        counts[phase][bucket(nanos)]++;
+        cursor[phase] = slot + 1 == WINDOW ? 0 : slot + 1;
+    }
+
+    /**
+     * Marks the start of a frame: records the interval since the last one, notes any
+     * garbage collection that ran in between and starts timing the frame's phases.
+     */
+    public void beginFrame(int bullets) {
+        long now = System.nanoTime();
+        bulletCount = bullets;
+        repaintedFraction = 1;
+        repaintedRects = 1;
+        if (frameStart >= 0) {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean bean : collectors) {
+                count += Math.max(0, bean.getCollectionCount());
+                millis += Math.max(0, bean.getCollectionTime());
+            }
+            long paused = 0;
+            if (count != gcCount) {
+                // At least 1 ms so a marker shows even for collections shorter than the counter resolution
+                paused = Math.max(1, millis - gcMillis);
+                lastGcPauseMillis = millis - gcMillis;
+                gcCount = count;
+                gcMillis = millis;
+            }
+            gcMillisAtFrame[cursor[INTERVAL]] = paused;
+            record(INTERVAL, now - frameStart);
+        }
+        frameStart = now;
+        mark = now;
+    }
+
+    public void endFrame() {
+        record(FRAME, System.nanoTime() - frameStart);
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < (1L << MIN_SHIFT)) {
+            return 0;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (msb - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return Math.min(BUCKETS - 1, 1 + ((msb - MIN_SHIFT) << SUB_BITS) + sub);
+    }
+
+    // Upper edge of a bucket, in nanoseconds
+    private static long bucketLimit(int bucket) {
+        if (bucket == 0) {
+            return 1L << MIN_SHIFT;
+        }
+        int octave = (bucket - 1) >> SUB_BITS;
+        int sub = (bucket - 1) & ((1 << SUB_BITS) - 1);
+        int shift = octave + MIN_SHIFT;
+        return (1L << shift) + ((long) (sub + 1) << (shift - SUB_BITS));
+    }
+
+    /**
+     * The given percentile (0-100) of the phase's recent samples in nanoseconds, rounded up
+     * to its bucket edge (within 12.5%); 0 when there are no samples.
+     */
+    public synchronized long percentile(int phase, double percentile) {
+        int total = filled[phase];
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        int[] phaseCounts = counts[phase];
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += phaseCounts[b];
+            if (seen >= rank) {
+                return Math.min(bucketLimit(b), max(phase));
+            }
+        }
+        return max(phase);
+    }
+
+    public synchronized long max(int phase) {
+        long max = 0;
+        long[] phaseSamples = samples[phase];
+        for (int i = 0, n = filled[phase]; i < n; i++) {
+            max = Math.max(max, phaseSamples[i]);
+        }
+        return max;
+    }
+
+    public synchronized int getSampleCount(int phase) {
+        return filled[phase];
+    }
+
+    /**
+     * The i-th most recent sample of the phase (0 = newest), or 0 past the recorded ones.
+     */
+    public synchronized long recent(int phase, int i) {
+        if (i >= filled[phase]) {
+            return 0;
+        }
+        int slot = cursor[phase] - 1 - i;
+        return samples[phase][slot < 0 ? slot + WINDOW : slot];
+    }
+
+    /**
+     * GC time that fell before the i-th most recent frame (0 = newest), in ms; 0 if none.
+     */
+    public long recentGcMillis(int i) {
+        if (i >= filled[INTERVAL]) {
+            return 0;
+        }
+        int slot = cursor[INTERVAL] - 1 - i;
+        return gcMillisAtFrame[slot < 0 ? slot + WINDOW : slot];
+    }
+
+    /**
+     * Notes how much of the scene this frame repainted, when it redrew only dirty regions.
+     */
+    public void setRepainted(double fraction, int rects) {
+        repaintedFraction = fraction;
+        repaintedRects = rects;
+    }
+
+    public double getRepaintedFraction() {
+        return repaintedFraction;
+    }
+
+    public int getRepaintedRects() {
+        return repaintedRects;
+    }
+
+    public int getBulletCount() {
+        return bulletCount;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getLastGcPauseMillis() {
+        return lastGcPauseMillis;
+    }
+
+    public synchronized void reset() {
+        for (int phase = 0; phase < PHASES; phase++) {
+            Arrays.fill(counts[phase], 0);
+            cursor[phase] = 0;
+            filled[phase] = 0;
+        }
+        frameStart = -1;
+    }
+
+    /**
+     * Profiles headless simulation ticks and checks that recording allocates nothing:
+     * {@code java -cp out FrameProfiler [ticks]}. Exits with status 1 on allocation.
+     */
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        GameWorld world = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+        FrameProfiler profiler = new FrameProfiler();
+        world.setProfiler(profiler);
+        TickInput input = new TickInput();
+        input.mouseControl = false;
+        AllocationProbe probe = new AllocationProbe("tick with profiler");
+
+        for (int pass = 0; pass < 2; pass++) {
+            // First pass warms up the JIT; the second is measured
+            probe.setEnabled(pass == 1);
+            for (int i = 0; i < ticks; i++) {
+                if (world.isGameOver() || world.isLevelCompleted()) {
+                    world.reset(Difficulty.values()[i % 3], i);
+                }
+                input.up = (i / 40) % 2 == 0;
+                input.down = !input.up;
+                probe.begin();
+                world.step(input);
+                probe.end();
+            }
+        }
+
+        System.out.printf("%-16s %9s %9s %9s  (last %d ticks, us)%n", "phase", "p50", "p99", "max", WINDOW);
+        for (int phase = UPDATE_PLANE; phase <= TICK; phase++) {
+            System.out.printf("%-16s %9.2f %9.2f %9.2f%n", PHASE_NAMES[phase], profiler.percentile(phase, 50) / 1e3,
+                    profiler.percentile(phase, 99) / 1e3, profiler.max(phase) / 1e3);
+        }
+        if (AllocationProbe.isSupported()) {
+            System.out.println(probe);
+            if (probe.getAverageBytes() > 1.0) {
+                System.out.println("FAIL: profiled ticks allocate");
+                System.exit(1);
+            }
+        }
+        System.out.println("OK");
+    }
+}
@@ -1,33 +1,107 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import javax.imageio.ImageIO;
-import javax.sound.sampled.*;
-import java.io.FileWriter;
-import java.io.FileReader;
-import java.io.BufferedReader;
 
-public class Game extends JPanel implements ActionListener, KeyListener, MouseMotionListener, MouseListener {
+public class Game extends Canvas implements GameLoop.Client, KeyListener, MouseMotionListener, MouseListener {
     // Window dimensions
-    private static final int WIDTH = 800;
-    private static final int HEIGHT = 600;
-
-    // Game objects
-    private Plane plane;
-    private ArrayList<Bullet> bullets;
-    private Timer timer;
-    private Timer explosionTimer; // Added timer for explosion animation
-    private Random random;
-    private boolean gameOver;
-    private int score;
+    private static final int WIDTH = GameWorld.WIDTH;
+    private static final int HEIGHT = GameWorld.HEIGHT;
+
+    // In-game sprite sizes (the asset packer bakes sprites at these sizes)
+    static final int PLANE_WIDTH = 200;
+    static final int PLANE_HEIGHT = 100;
+    static final int BULLET_WIDTH = 60;
+    static final int BULLET_HEIGHT = 30;
+    static final int EXPLOSION_SIZE = 100;
+
+    // Startup timing, reported once when the first frame is shown
+    private static long launchNanos = System.nanoTime();
+    private boolean firstFrameShown = false;
+
+    // Simulation and per-tick input
+    private GameWorld world;
+    private final TickInput input = new TickInput();
+    private GameLoop loop;
+
+    // The autopilot flies instead of the player while enabled (A key, or -Dgame.autopilot=true);
+    // runs it touched stay out of the high scores and run history
+    private final Autopilot autopilot = new Autopilot(
+            Integer.getInteger("game.autopilotBudgetMicros", Autopilot.DEFAULT_BUDGET_MICROS));
+    private final TickInput autopilotInput = new TickInput();
+    private boolean autopilotEnabled = Boolean.getBoolean("game.autopilot");
+    private boolean autopilotFlewRun;
+
+    // Changes from other threads (the JMX bean), run under the game lock before the next tick
+    // (or the next frame on screens that don't tick)
+    private final ConcurrentLinkedQueue<Runnable> gameThreadTasks = new ConcurrentLinkedQueue<>();
+    private GameControl control;
+    private volatile long tickNanos = GameLoop.DEFAULT_TICK_NANOS;
+    private boolean tunedRun; // Spawn rate or bullet speed changed from the defaults during this run
+    private boolean runInProgress; // Started and not yet stored in the run history
+    private boolean spritesInstalled; // Masks come from the real sprites rather than the placeholders
+
+    // Allocation probes for the tick and paint paths (F2 toggles, results printed every few seconds)
+    private final AllocationProbe tickProbe = new AllocationProbe("Alloc per tick");
+    private final AllocationProbe frameProbe = new AllocationProbe("Alloc per frame");
+    private static final int PROBE_REPORT_TICKS = 250;
+
+    // Per-phase profiler overlay (F3 toggles, or -Dgame.profiler=true): one profiler per thread;
+    // profiler is the render thread's while shown, null while off
+    private final FrameProfiler frameProfiler = new FrameProfiler();
+    private final FrameProfiler tickProfiler = new FrameProfiler();
+    private final ProfilerOverlay profilerOverlay = new ProfilerOverlay();
+    private volatile boolean profilerShown;
+    private FrameProfiler profiler;
+    private int probeFrames;
+
+    // Gameplay state handed from the simulation to the render thread. Everything that changes
+    // what a gameplay frame shows publishes a snapshot while holding the game lock, so under
+    // the lock the newest snapshot always matches the game
+    private final TripleBuffer<WorldSnapshot> snapshots = new TripleBuffer<>(WorldSnapshot::new);
+    private long lastTickNanos;
+    private long resourcesVersion; // Bumped when the background or sprites change
+
+    // Held while drawing, so paint() calls and the render thread take turns. The simulation
+    // never takes it: gameplay frames draw from a snapshot without the game lock
+    private final Object renderLock = new Object();
+
+    // Frames are drawn at the logical WIDTH x HEIGHT. In a window of any other size they go
+    // to this backbuffer first and are shown with one scaled blit, keeping the aspect ratio
+    // (-Dgame.scaling=nearest, smooth or integer)
+    enum Scaling {
+        NEAREST, // Any factor, nearest-neighbour: a few ms even without a GPU
+        SMOOTH,  // Any factor, bilinear: cheap on an accelerated pipeline, tens of ms in software
+        INTEGER  // Whole multiples only, nearest-neighbour, so every pixel stays square
+    }
+    private final Scaling scaling = parseScaling(System.getProperty("game.scaling", "nearest"));
+    private BufferedImage backbuffer;
+    private Graphics2D backbufferGraphics;
+    private final Rectangle viewport = new Rectangle();
+    private Object viewportInterpolation;
+    private int viewportForWidth = -1, viewportForHeight = -1;
 
     // Graphics
     private BufferedImage planeImg;
@@ -35,55 +109,68 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     private BufferedImage explosionImg;
     private BufferedImage backgroundImg;
 
+    // Plane, bullet and explosion packed into one compatible image
+    private SpriteAtlas sprites;
+    private int planeSprite, bulletSprite, explosionSprite;
+
+    // Pixel collision masks built from the scaled sprites
+    private CollisionMask planeMask;
+    private CollisionMask bulletMask;
+
     // Sound
-    private Clip explosionSound;
+    private final AudioMixer audio = new AudioMixer(AudioMixer.DEFAULT_SAMPLE_RATE, AudioMixer.DEFAULT_VOICES,
+            Integer.getInteger("game.audioBufferFrames", AudioMixer.DEFAULT_BUFFER_FRAMES));
+    private int explosionSound = -1; // Mixer sound id, set once loaded
+
+    // Background resource loading
+    private final ExecutorService loader = createLoader();
+    private final Map<String, Double> loadTimings = new ConcurrentHashMap<>(); // Milliseconds per resource
+    private CompletableFuture<Void> resourcesLoaded;
 
     // Mouse control
     private boolean mouseControlEnabled = true;
 
-    // Plane auto-movement settings
-    private int planeAutoSpeedX = 2;
-    private int planeAutoSpeedY = 0;
-    private int maxVelocity = 5;
-    private double acceleration = 0.2;
-    private double deceleration = 0.1;
-
     // Difficulty levels
-    public enum Difficulty {
-        EASY, MEDIUM, HARD
-    }
     private Difficulty currentDifficulty = Difficulty.EASY;
     private Map<Difficulty, Integer> difficultyScores = new HashMap<>();
     private Map<Difficulty, Integer> highScores = new HashMap<>();
     
-    // Level progression thresholds
-    private static final int MEDIUM_THRESHOLD = 500;
-    private static final int HARD_THRESHOLD = 1000;
-    
-    // Bullet spawn rates (percentage chance per frame)
-    private static final int EASY_SPAWN_RATE = 3;
-    private static final int MEDIUM_SPAWN_RATE = 5;
-    private static final int HARD_SPAWN_RATE = 8;
-    
-    // Bullet speeds
-    private static final int EASY_BULLET_SPEED = -6;
-    private static final int MEDIUM_BULLET_SPEED = -8;
-    private static final int HARD_BULLET_SPEED = -12;
-    
-    // Score multipliers
-    private static final int EASY_SCORE_MULTIPLIER = 1;
-    private static final int MEDIUM_SCORE_MULTIPLIER = 2;
-    private static final int HARD_SCORE_MULTIPLIER = 3;
-    
     // Score file
     private static final String SCORES_FILE = "game_scores.txt";
+    private final HighScoreStore scoreStore = new HighScoreStore(SCORES_FILE);
+
+    // Every finished run, for the leaderboard; null until opened (or if it can't be)
+    private static final String RUNS_FILE = "game_runs";
+    private static final int LEADERBOARD_SIZE = 5;
+    private volatile RunStore runStore;
+
+    // Every run is recorded; finished ones are saved as replays
+    private static final String REPLAYS_DIR = "replays";
+    private final ReplayRecorder recorder = new ReplayRecorder();
+    private long maskChecksum;
     
     // Game state
     private boolean isPaused = false;
     private boolean showLevelSelect = true; // Start with level select screen
-    private boolean levelCompleted = false;
     private boolean showingExplosion = false; // Flag for explosion animation
-    private int explosionDuration = 0; // Counter for explosion animation
+    private int explosionDuration = 0; // Ticks left in the explosion animation
+    private static final int EXPLOSION_TICKS = 50; // One second at the 20 ms tick
+    
+    // Fonts and strokes shared by all UI drawing
+    private static final Font FONT_BOLD_18 = new Font("Arial", Font.BOLD, 18);
+    private static final Font FONT_BOLD_20 = new Font("Arial", Font.BOLD, 20);
+    private static final Font FONT_BOLD_22 = new Font("Arial", Font.BOLD, 22);
+    private static final Font FONT_BOLD_24 = new Font("Arial", Font.BOLD, 24);
+    private static final Font FONT_BOLD_30 = new Font("Arial", Font.BOLD, 30);
+    private static final Font FONT_BOLD_40 = new Font("Arial", Font.BOLD, 40);
+    private static final Font FONT_BOLD_50 = new Font("Arial", Font.BOLD, 50);
+    private static final Font FONT_ITALIC_14 = new Font("Arial", Font.ITALIC, 14);
+    private static final Font FONT_PLAIN_12 = new Font("Arial", Font.PLAIN, 12);
+    private static final Font FONT_PLAIN_16 = new Font("Arial", Font.PLAIN, 16);
+    private static final BasicStroke STROKE_2 = new BasicStroke(2);
+    private static final BasicStroke STROKE_3 = new BasicStroke(3);
+    private static final BasicStroke STROKE_4 = new BasicStroke(4);
+    private static final Color OVERLAY_DIM = new Color(0, 0, 0, 180);
     
     // UI elements
     private Color[] difficultyColors = {
@@ -101,11 +188,53 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     private boolean startButtonHover = false;
     private boolean[] levelButtonHover = new boolean[3];
 
+    // Pre-rendered UI; each layer is repainted only when the state it shows changes
+    private final CachedLayer hudScoreLayer = new CachedLayer(10, 10, 201, 81);
+    private final CachedLayer hudHighScoreLayer = new CachedLayer(WIDTH - 210, 10, 201, 101);
+    private final CachedLayer hudControlsLayer = new CachedLayer(0, HEIGHT - 40, WIDTH, 40);
+    private final CachedLayer levelSelectLayer = new CachedLayer(0, 0, WIDTH, HEIGHT, false);
+    private final CachedLayer frozenFrameLayer = new CachedLayer(0, 0, WIDTH, HEIGHT, false);
+    private long simulationVersion; // Bumped on every tick and reset, so frozen frames know when to redraw
+
+    // Gameplay frames are kept in a retained image where only the regions sprites moved through
+    // are repainted, then blitted whole (-Dgame.dirtyRects=false redraws every frame instead)
+    private final DirtyRegions dirtyRegions = new DirtyRegions(WIDTH, HEIGHT);
+    private boolean dirtyRendering = !"false".equals(System.getProperty("game.dirtyRects"));
+    private BufferedImage sceneFrame;
+    private Graphics2D sceneGraphics;
+    private int[] bulletDrawX = new int[256];
+    private int[] bulletDrawY = new int[256];
+    private int drawnPlaneSprite = -1; // Plane or explosion in the retained frame, -1 for none
+    private int drawnPlaneX, drawnPlaneY;
+    private int drawnScore = -1;
+    private int drawnScoreWidth;
+    private long drawnResourcesVersion = -1;
+    private final long[] scenePhaseNanos = new long[4]; // Background, bullets, plane, HUD
+    private long scenePhaseMark;
+    // Gameplay frames are drawn with one Java2D drawImage per sprite, or composited in software
+    // into a single int[] framebuffer and blitted once (-Dgame.renderer=software; F4 switches)
+    private final SceneRenderer java2dRenderer = this::drawSceneJava2D;
+    private final SoftwareRenderer softwareRenderer = new SoftwareRenderer(WIDTH, HEIGHT, this::drawGameHUD);
+    private volatile boolean softwareRendering = "software".equals(System.getProperty("game.renderer"));
+    private SceneRenderer sceneRenderer = java2dRenderer;
+    private final DigitStrip scoreDigits = new DigitStrip(FONT_BOLD_24, Color.WHITE, new Color(0, 0, 0, 100), 2);
+    private int scoreLabelWidth;
+    private int highScoresVersion; // Bumped whenever highScores changes
+    private boolean highScoresLoaded = false;
+    private static final Color[] PULSE_COLORS = new Color[32];
+    static {
+        for (int i = 0; i < PULSE_COLORS.length; i++) {
+            PULSE_COLORS[i] = new Color(1.0f, 1.0f, 0.0f, 0.6f + 0.4f * i / (PULSE_COLORS.length - 1));
+        }
+    }
+
     public Game() {
         // Initialize panel
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
         setBackground(Color.BLACK);
         setFocusable(true);
+        setIgnoreRepaint(true); // Frames are drawn actively by the game loop
+        setAllocationProbes(Boolean.getBoolean("game.allocProbe"));
         addKeyListener(this);
         addMouseMotionListener(this);
         addMouseListener(this);
@@ -123,13 +252,21 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         
         startButton = new Rectangle((WIDTH - buttonWidth) / 2, startY + 3 * spacing, buttonWidth, buttonHeight);
 
-        // Load resources
-        loadImages();
-        loadSounds();
-        loadHighScores();
+        // Start on placeholders so the level select shows at once; real resources load in the background
+        for (Difficulty diff : Difficulty.values()) {
+            highScores.put(diff, 0);
+        }
+        planeImg = createPlaceholderImage(PLANE_WIDTH, PLANE_HEIGHT, Color.BLUE);
+        bulletImg = createPlaceholderImage(BULLET_WIDTH, BULLET_HEIGHT, Color.RED);
+        explosionImg = createExplosionPlaceholder(EXPLOSION_SIZE, EXPLOSION_SIZE);
+        backgroundImg = CompatibleImages.convert(createGradientBackground(WIDTH, HEIGHT));
+        prepareSprites();
 
         // Initialize game objects
         initializeGame();
+        setProfilerShown(Boolean.getBoolean("game.profiler"));
+        publishSnapshot();
+        loadResources();
         
         // Request focus to ensure keyboard input works
         requestFocusInWindow();
@@ -144,93 +281,284 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             @Override
             public void focusLost(FocusEvent e) {
                 // Pause the game if it loses focus and is running
-                if (!showLevelSelect && !gameOver && !levelCompleted && !isPaused) {
-                    isPaused = true;
-                    repaint();
+                synchronized (Game.this) {
+                    if (!showLevelSelect && !world.isGameOver() && !world.isLevelCompleted() && !isPaused) {
+                        isPaused = true;
+                        publishSnapshot();
+                        requestRender();
+                    }
                 }
             }
         });
     }
 
     private void initializeGame() {
-        plane = new Plane(100, HEIGHT / 2, planeImg);
-        bullets = new ArrayList<>();
-        random = new Random();
-        gameOver = false;
-        score = 0;
-        levelCompleted = false;
-        showingExplosion = false;
-        explosionDuration = 0;
-
-        // Apply difficulty settings
-        applyDifficultySettings();
+        world = new GameWorld(PLANE_WIDTH, PLANE_HEIGHT, BULLET_WIDTH, BULLET_HEIGHT);
+        world.setCollisionMasks(planeMask, bulletMask);
+        world.setListener(new GameWorld.Listener() {
+            @Override
+            public void planeHit(GameWorld w) {
+                onPlaneHit();
+            }
 
-        // Start game loop
-        timer = new Timer(20, this);
-        timer.start();
-        
-        // Create explosion timer but don't start it yet
-        explosionTimer = new Timer(1000, new ActionListener() {
             @Override
-            public void actionPerformed(ActionEvent e) {
-                // After explosion timer finishes, show game over screen
-                showingExplosion = false;
-                explosionTimer.stop();
-                repaint();
+            public void levelCompleted(GameWorld w) {
+                difficultyScores.put(currentDifficulty, w.getScore());
+                updateHighScore(currentDifficulty, w.getScore());
             }
         });
-        explosionTimer.setRepeats(false);
+        world.reset(currentDifficulty);
+        showingExplosion = false;
+        explosionDuration = 0;
+    }
+
+    /**
+     * Starts the simulation and render threads. Call once the component is displayable.
+     */
+    public void start() {
+        int refreshRate = 60;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc != null) {
+            int deviceRate = gc.getDevice().getDisplayMode().getRefreshRate();
+            if (deviceRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                refreshRate = deviceRate;
+            }
+        }
+        createBufferStrategy(2);
+        loop = new GameLoop(this, refreshRate);
+        loop.setTickNanos(tickNanos);
+        loop.start();
+
+        // Registering the MBean starts the platform MBean server, so keep it off the startup path
+        GameControl gameControl = new GameControl(this);
+        setControl(gameControl);
+        CompletableFuture.runAsync(gameControl::register);
+    }
+
+    synchronized void setControl(GameControl control) {
+        this.control = control;
+    }
+
+    /**
+     * Queues a change to the world; it runs under the game lock before the next tick, or
+     * before the next frame while nothing is ticking.
+     */
+    void runOnGameThread(Runnable task) {
+        gameThreadTasks.add(task);
+        requestRender(); // Wakes an idle loop so menus pick the change up too
+    }
+
+    private void runGameThreadTasks() {
+        Runnable task;
+        while ((task = gameThreadTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    // Game thread only: changes the world's balance, which takes the current run out of the rankings
+    void tune(Consumer<GameWorld> change) {
+        change.accept(world);
+        tunedRun = true;
+    }
+
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    void setTickNanos(long nanos) {
+        tickNanos = nanos;
+        if (loop != null) {
+            loop.setTickNanos(nanos);
+        }
+    }
+
+    private void requestRender() {
+        if (loop != null) {
+            loop.requestRender();
+        }
     }
     
-    private void applyDifficultySettings() {
-        switch (currentDifficulty) {
-            case EASY:
-                planeAutoSpeedX = 2;
-                maxVelocity = 5;
-                break;
-            case MEDIUM:
-                planeAutoSpeedX = 3;
-                maxVelocity = 6;
-                break;
-            case HARD:
-                planeAutoSpeedX = 4;
-                maxVelocity = 7;
-                break;
-        }
-    }
-
-    private void loadImages() {
-        try {
-            // Load images using file paths matching your project structure
-            BufferedImage originalPlaneImg = ImageIO.read(new File("src/Resources/plane.png"));
-            BufferedImage originalBulletImg = ImageIO.read(new File("src/Resources/bullet.png"));
-            BufferedImage originalExplosionImg = ImageIO.read(new File("src/Resources/exploision.png"));
-            
-            // Try to load background image
+    /**
+     * Loads images, sound and high scores concurrently on the loader threads, swapping each
+     * into the game as it completes. Timings per resource end up in getLoadTimings().
+     */
+    private void loadResources() {
+        long start = System.nanoTime();
+        CompletableFuture<AssetPack> pack = loadAsync("asset pack", AssetPack::load);
+
+        CompletableFuture<BufferedImage> plane = pack.thenCompose(
+                assets -> loadAsync("plane", () -> loadSprite(assets, "plane", "plane.png", PLANE_WIDTH, PLANE_HEIGHT)));
+        CompletableFuture<BufferedImage> bullet = pack.thenCompose(
+                assets -> loadAsync("bullet", () -> loadSprite(assets, "bullet", "bullet.png", BULLET_WIDTH, BULLET_HEIGHT)));
+        CompletableFuture<BufferedImage> explosion = pack.thenCompose(
+                assets -> loadAsync("explosion", () -> loadSprite(assets, "explosion", "exploision.png", EXPLOSION_SIZE, EXPLOSION_SIZE)));
+        CompletableFuture<Void> spritesDone = CompletableFuture.allOf(plane, bullet, explosion)
+                .thenRun(() -> installSprites(plane.join(), bullet.join(), explosion.join()))
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    System.out.println("Failed to load images, using placeholders");
+                    return null;
+                });
+
+        CompletableFuture<Void> backgroundDone = pack
+                .thenCompose(assets -> loadAsync("background", () -> loadBackground(assets)))
+                .thenAccept(this::installBackground)
+                .exceptionally(e -> {
+                    System.out.println("Failed to load background, using generated background: " + e.getMessage());
+                    return null;
+                });
+
+        CompletableFuture<Void> soundDone = pack
+                .thenCompose(assets -> loadAsync("sound", () -> loadSound(assets)))
+                .thenAccept(this::installSound)
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    System.out.println("Failed to load sound - will continue without sound effects");
+                    return null;
+                });
+
+        CompletableFuture<Void> scoresDone = loadAsync("high scores", scoreStore::load)
+                .thenAccept(this::installHighScores);
+
+        CompletableFuture<Void> runsDone = loadAsync("run history", () -> RunStore.open(RUNS_FILE))
+                .thenAccept(this::installRunStore)
+                .exceptionally(e -> {
+                    System.out.println("Run history unavailable - no leaderboard: " + e.getMessage());
+                    return null;
+                });
+
+        resourcesLoaded = CompletableFuture.allOf(spritesDone, backgroundDone, soundDone, scoresDone, runsDone)
+                .whenComplete((v, e) -> {
+                    loader.shutdown();
+                    StringBuilder report = new StringBuilder();
+                    for (Map.Entry<String, Double> entry : loadTimings.entrySet()) {
+                        report.append(String.format(", %s %.1f ms", entry.getKey(), entry.getValue()));
+                    }
+                    System.out.printf("Resources loaded in %.1f ms%s%n", (System.nanoTime() - start) / 1e6, report);
+                });
+    }
+
+    // Runs one loading task on the loader threads and records how long it took
+    private <T> CompletableFuture<T> loadAsync(String name, Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
             try {
-                backgroundImg = ImageIO.read(new File("src/Resources/background.png"));
-                backgroundImg = scaleImage(backgroundImg, WIDTH, HEIGHT);
-            } catch (IOException e) {
-                System.out.println("Background image not found, using generated background");
-                backgroundImg = createGradientBackground(WIDTH, HEIGHT);
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                loadTimings.put(name, (System.nanoTime() - start) / 1e6);
+            }
+        }, loader);
+    }
+
+    private static ExecutorService createLoader() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "resource-loader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
             }
+        });
+    }
 
-            // Scale down images to appropriate sizes
-            planeImg = scaleImage(originalPlaneImg, 200, 100);
-            bulletImg = scaleImage(originalBulletImg, 60, 30);
-            explosionImg = scaleImage(originalExplosionImg, 100, 100);
+    /**
+     * Completes once every resource has been loaded (or has fallen back to its placeholder).
+     */
+    public CompletableFuture<Void> getResourcesLoaded() {
+        return resourcesLoaded;
+    }
 
-            System.out.println("Images loaded successfully");
-            System.out.println("Explosion image dimensions: " + explosionImg.getWidth() + "x" + explosionImg.getHeight());
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("Failed to load images, using placeholders");
-            // Create placeholder images if loading fails
-            planeImg = createPlaceholderImage(100, 50, Color.BLUE);
-            bulletImg = createPlaceholderImage(30, 15, Color.RED);
-            explosionImg = createExplosionPlaceholder(100, 100);
-            backgroundImg = createGradientBackground(WIDTH, HEIGHT);
+    /**
+     * Milliseconds spent loading each resource so far, by name.
+     */
+    public Map<String, Double> getLoadTimings() {
+        return Collections.unmodifiableMap(loadTimings);
+    }
+
+    // A sprite from the prebaked asset pack, or decoded from its PNG and scaled
+    static BufferedImage loadSprite(AssetPack assets, String name, String file, int width, int height)
+            throws IOException {
+        BufferedImage image = assets != null ? assets.getImage(name) : null;
+        if (image != null && image.getWidth() == width && image.getHeight() == height) {
+            return image;
+        }
+        BufferedImage original = ImageIO.read(new File("src/Resources/" + file));
+        if (original == null) {
+            throw new IOException("Unreadable image " + file);
         }
+        return scaleImage(original, width, height);
+    }
+
+    // Returns null when there is no background image, keeping the generated one
+    private static BufferedImage loadBackground(AssetPack assets) throws IOException {
+        BufferedImage image = assets != null ? assets.getImage("background") : null;
+        if (image != null) {
+            return image;
+        }
+        File file = new File("src/Resources/background.png");
+        if (!file.isFile()) {
+            System.out.println("Background image not found, using generated background");
+            return null;
+        }
+        return scaleImage(ImageIO.read(file), WIDTH, HEIGHT);
+    }
+
+    private synchronized void installSprites(BufferedImage plane, BufferedImage bullet, BufferedImage explosion) {
+        planeImg = plane;
+        bulletImg = bullet;
+        explosionImg = explosion;
+        prepareSprites();
+        spritesInstalled = true;
+        if (showLevelSelect) {
+            // A run in progress keeps its masks until the next reset, so its replay stays exact
+            world.setCollisionMasks(planeMask, bulletMask);
+        }
+        frozenFrameLayer.invalidate();
+        resourcesVersion++;
+        publishSnapshot();
+        System.out.println("Images loaded successfully");
+        requestRender();
+    }
+
+    private synchronized void installBackground(BufferedImage background) {
+        if (background == null) {
+            return;
+        }
+        backgroundImg = CompatibleImages.convert(background);
+        levelSelectLayer.invalidate();
+        frozenFrameLayer.invalidate();
+        resourcesVersion++;
+        publishSnapshot();
+        requestRender();
+    }
+
+    private void prepareSprites() {
+        // Collision masks come from the final scaled sprites
+        planeMask = createMask(planeImg);
+        bulletMask = createMask(bulletImg);
+        maskChecksum = Replay.maskChecksum(planeMask, bulletMask);
+
+        // Convert to display-compatible images and pack the sprites into one atlas
+        planeImg = CompatibleImages.convert(planeImg);
+        bulletImg = CompatibleImages.convert(bulletImg);
+        explosionImg = CompatibleImages.convert(explosionImg);
+
+        sprites = new SpriteAtlas();
+        planeSprite = sprites.add(planeImg);
+        bulletSprite = sprites.add(bulletImg);
+        explosionSprite = sprites.add(explosionImg);
+        sprites.pack();
+    }
+
+    static CollisionMask createMask(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int[] argb = img.getRGB(0, 0, w, h, null, 0, w);
+        return CollisionMask.fromArgb(argb, w, h, CollisionMask.DEFAULT_ALPHA_THRESHOLD);
     }
     
     private BufferedImage createGradientBackground(int width, int height) {
@@ -260,7 +588,7 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         return img;
     }
 
-    private BufferedImage scaleImage(BufferedImage original, int width, int height) {
+    static BufferedImage scaleImage(BufferedImage original, int width, int height) {
         BufferedImage scaledImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2d = scaledImg.createGraphics();
         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
@@ -298,271 +626,680 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         return img;
     }
 
-    private void loadSounds() {
-        try {
-            // Load sound file using file path matching your project structure
-            File soundFile = new File("src/Resources/exploision.wav");
-
-            // Try to convert the audio to a supported format
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(soundFile);
-            AudioFormat baseFormat = audioStream.getFormat();
-
-            // Convert to a more compatible format (16 bit, mono)
-            AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    baseFormat.getSampleRate(),
-                    16,
-                    1,
-                    2,
-                    baseFormat.getSampleRate(),
-                    false
-            );
+    // Registers the explosion with the mixer and opens the audio output; returns the sound id
+    private int loadSound(AssetPack assets) throws Exception {
+        // Prebaked PCM from the asset pack, or decode and convert the WAV to 16 bit mono
+        PcmSound sound = assets != null ? assets.getSound("explosion") : null;
+        if (sound == null) {
+            sound = PcmSound.decode(new File("src/Resources/exploision.wav"));
+        }
 
-            AudioInputStream convertedStream = AudioSystem.getAudioInputStream(targetFormat, audioStream);
-            explosionSound = AudioSystem.getClip();
-            explosionSound.open(convertedStream);
-            System.out.println("Sound loaded successfully");
+        int id = audio.addSound(sound);
+        audio.start();
+        return id;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println("Failed to load sound - will continue without sound effects");
-        }
+    private synchronized void installSound(int soundId) {
+        explosionSound = soundId;
+        System.out.println("Sound loaded successfully");
     }
 
     private void playExplosionSound() {
-        if (explosionSound != null) {
-            try {
-                if (explosionSound.isRunning()) {
-                    explosionSound.stop();
-                }
-                explosionSound.setFramePosition(0);
-                explosionSound.start();
-            } catch (Exception e) {
-                System.out.println("Error playing sound: " + e.getMessage());
-            }
+        if (explosionSound >= 0) {
+            audio.play(explosionSound, 1f);
         }
     }
 
     @Override
-    public void actionPerformed(ActionEvent e) {
+    public synchronized boolean isSimulating() {
         if (isPaused || showLevelSelect) {
-            return;
+            return false;
         }
-        
-        if (!gameOver && !levelCompleted) {
-            // Update game state
-            updatePlane();
-            updateBullets();
-            checkCollisions();
-            spawnBullets();
-            
-            // Update score based on difficulty
-            int multiplier = getScoreMultiplier();
-            score += multiplier;
+        return showingExplosion || (!world.isGameOver() && !world.isLevelCompleted());
+    }
+
+    @Override
+    public synchronized void tick() {
+        runGameThreadTasks();
+        simulationVersion++;
+        lastTickNanos = System.nanoTime();
+        if (showingExplosion) {
+            // After the explosion finishes, show game over screen
+            if (--explosionDuration <= 0) {
+                showingExplosion = false;
+            }
+        } else if (!world.isGameOver() && !world.isLevelCompleted()) {
+            // Advance the simulation with the input gathered since the last tick
+            TickInput tickInput = input;
+            if (autopilotEnabled) {
+                autopilot.decide(world, autopilotInput);
+                tickInput = autopilotInput;
+                autopilotFlewRun = true;
+            } else {
+                input.mouseControl = mouseControlEnabled;
+            }
+            tickProbe.begin();
+            recorder.record(tickInput);
+            world.step(tickInput);
+            tickProbe.end();
+            input.mouseMoved = false;
+            if (control != null) {
+                control.onTick(world);
+            }
+            if (world.isGameOver() || world.isLevelCompleted()) {
+                // After the step, so the run is stored with its final score and tick
+                recordRun(world.isLevelCompleted() ? RunStore.OUTCOME_LEVEL_COMPLETED : RunStore.OUTCOME_GAME_OVER);
+            }
             
-            // Check for level progression
-            checkLevelProgression();
+            if (tickProbe.isEnabled() && tickProbe.getSamples() >= PROBE_REPORT_TICKS) {
+                System.out.println(tickProbe);
+                tickProbe.reset();
+            }
         }
-        // Redraw the screen
-        repaint();
+        publishSnapshot();
     }
-    
-    private int getScoreMultiplier() {
-        switch (currentDifficulty) {
-            case EASY: return EASY_SCORE_MULTIPLIER;
-            case MEDIUM: return MEDIUM_SCORE_MULTIPLIER;
-            case HARD: return HARD_SCORE_MULTIPLIER;
-            default: return 1;
-        }
+
+    /**
+     * Copies what the renderer needs into the back snapshot and publishes it. Called with
+     * the game lock held after every change to the world or the screen state; tools that
+     * change the world directly call it before drawing.
+     */
+    synchronized void publishSnapshot() {
+        WorldSnapshot snapshot = snapshots.getBack();
+        snapshot.copyWorld(world);
+        snapshot.difficulty = currentDifficulty;
+        snapshot.levelSelect = showLevelSelect;
+        snapshot.paused = isPaused;
+        snapshot.explosion = showingExplosion;
+        snapshot.autopilot = autopilotEnabled;
+        snapshot.highScoresVersion = highScoresVersion;
+        snapshot.background = backgroundImg;
+        snapshot.sprites = sprites;
+        snapshot.planeSprite = planeSprite;
+        snapshot.bulletSprite = bulletSprite;
+        snapshot.explosionSprite = explosionSprite;
+        snapshot.resourcesVersion = resourcesVersion;
+        snapshot.tickNanos = lastTickNanos;
+        snapshot.tickLength = tickNanos;
+        snapshots.publish();
     }
-    
-    private void checkLevelProgression() {
-        // Check if player has reached score threshold for next level
-        if (currentDifficulty == Difficulty.EASY && score >= MEDIUM_THRESHOLD) {
-            levelCompleted = true;
-            difficultyScores.put(Difficulty.EASY, score);
-            updateHighScore(Difficulty.EASY, score);
-        } else if (currentDifficulty == Difficulty.MEDIUM && score >= HARD_THRESHOLD) {
-            levelCompleted = true;
-            difficultyScores.put(Difficulty.MEDIUM, score);
-            updateHighScore(Difficulty.MEDIUM, score);
+
+    // Ticks are timed into their own profiler on the simulation thread; the render thread
+    // picks the change up at its next frame
+    private void setProfilerShown(boolean shown) {
+        if (shown) {
+            tickProfiler.reset();
         }
+        world.setProfiler(shown ? tickProfiler : null);
+        profilerShown = shown;
     }
 
-    private void updatePlane() {
-        // Apply user control velocity on top of auto movement
+    private void setAllocationProbes(boolean enabled) {
+        if (enabled && !AllocationProbe.isSupported()) {
+            System.out.println("Allocation probe not supported by this JVM");
+        }
+        tickProbe.setEnabled(enabled);
+        frameProbe.setEnabled(enabled);
+        tickProbe.reset();
+        frameProbe.reset();
+    }
 
-        // Update plane position based on its velocity
-        plane.setX((int) (plane.getX() + plane.getVelocityX()));
-        plane.setY((int) (plane.getY() + plane.getVelocityY()));
+    @Override
+    public void render(long frameNanos) {
+        if (!gameThreadTasks.isEmpty()) {
+            synchronized (this) {
+                runGameThreadTasks(); // Menus don't tick, so changes queued meanwhile run here
+            }
+        }
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            return;
+        }
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    frameProbe.begin();
+                    renderFrame(g2d, -1, frameNanos, getWidth(), getHeight());
+                    frameProbe.end();
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+        synchronized (renderLock) {
+            if (profiler != null) {
+                profiler.lap(FrameProfiler.PRESENT);
+            }
+        }
+        if (frameProbe.isEnabled() && ++probeFrames >= PROBE_REPORT_TICKS) {
+            System.out.println(frameProbe);
+            frameProbe.reset();
+            probeFrames = 0;
+        }
 
-        // Decelerate when no key is pressed
-        if (plane.getVelocityX() > 0) {
-            plane.setVelocityX(Math.max(0, plane.getVelocityX() - deceleration));
-        } else if (plane.getVelocityX() < 0) {
-            plane.setVelocityX(Math.min(0, plane.getVelocityX() + deceleration));
+        if (!firstFrameShown) {
+            firstFrameShown = true;
+            long sinceJvmStart = System.currentTimeMillis()
+                    - ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.printf("First frame shown %.1f ms after launch (%d ms since JVM start)%n",
+                    (System.nanoTime() - launchNanos) / 1e6, sinceJvmStart);
         }
+    }
+
+    private void onPlaneHit() {
+        showingExplosion = true;
+        playExplosionSound();
+        
+        // Show explosion for 1 second before the game over screen
+        explosionDuration = EXPLOSION_TICKS;
+        
+        // Save score for current difficulty
+        difficultyScores.put(currentDifficulty, world.getScore());
+        updateHighScore(currentDifficulty, world.getScore());
+        saveHighScores();
+    }
 
-        if (plane.getVelocityY() > 0) {
-            plane.setVelocityY(Math.max(0, plane.getVelocityY() - deceleration));
-        } else if (plane.getVelocityY() < 0) {
-            plane.setVelocityY(Math.min(0, plane.getVelocityY() + deceleration));
+    // Adds the run to the history and, if it finished, saves its replay (both written in the background)
+    private void recordRun(int outcome) {
+        if (!runInProgress) {
+            return;
+        }
+        runInProgress = false;
+        boolean finished = outcome != RunStore.OUTCOME_ABANDONED;
+        if (tunedRun) {
+            // Replays assume the default balance, so this one could never be verified
+            recorder.cancel();
+        } else if (finished && recorder.isRecording()) {
+            if (autopilotFlewRun) {
+                recorder.markAutopilot(); // Kept for watching back, but never a verified score
+            }
+            byte[] replay = recorder.finish(world.getScore(), world.getTick(), world.isLevelCompleted());
+            String name = String.format("%d-%s-%d.replay", System.currentTimeMillis(), world.getDifficulty(), world.getScore());
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Path dir = Paths.get(REPLAYS_DIR);
+                    Files.createDirectories(dir);
+                    Files.write(dir.resolve(name), replay);
+                } catch (IOException e) {
+                    System.out.println("Error saving replay: " + e.getMessage());
+                }
+            });
+        } else {
+            recorder.cancel(); // Only finished runs have a replay to verify
         }
 
-        // Keep plane within screen bounds
-        if (plane.getY() < 0) {
-            plane.setY(0);
-            plane.setVelocityY(0);
-        } else if (plane.getY() > HEIGHT - plane.getHeight()) {
-            plane.setY(HEIGHT - plane.getHeight());
-            plane.setVelocityY(0);
+        if (autopilotFlewRun) {
+            System.out.println(autopilot);
+            autopilot.resetStats();
         }
-        if (plane.getX() < 0) {
-            plane.setX(0);
-            plane.setVelocityX(0);
-        } else if (plane.getX() > WIDTH - plane.getWidth()) {
-            plane.setX(WIDTH - plane.getWidth());
-            plane.setVelocityX(0);
+        // Autopilot and tuned runs are kept too, flagged so they stay off the leaderboard
+        RunStore store = runStore;
+        if (store != null && (finished || world.getTick() > 0)) {
+            int flags = (autopilotFlewRun ? RunStore.FLAG_AUTOPILOT : 0) | (tunedRun ? RunStore.FLAG_TUNED : 0);
+            store.record(new RunStore.Run(System.currentTimeMillis(), world.getSeed(), world.getDifficulty(),
+                    world.getScore(), (int) world.getTick(), outcome, flags));
         }
+    }
 
-        // Apply auto-movement last for consistent behavior
-        plane.setX(plane.getX() + planeAutoSpeedX);
+    // Leaving a run for the level select still keeps it in the history
+    private void abandonRun() {
+        recordRun(RunStore.OUTCOME_ABANDONED);
+        showLevelSelect = true;
+    }
 
-        // Check if the plane reached right edge, if so, reset the position
-        if (plane.getX() > WIDTH) {
-            plane.setX(0);
-            plane.setY(HEIGHT / 2);
-        }
+    private synchronized void installRunStore(RunStore store) {
+        runStore = store;
+        levelSelectLayer.invalidate();
+        requestRender();
     }
 
-    private void updateBullets() {
-        // Update all bullets and remove those that go off-screen
-        Iterator<Bullet> it = bullets.iterator();
-        while (it.hasNext()) {
-            Bullet bullet = it.next();
-            bullet.update();
+    @Override
+    public void update(Graphics g) {
+        // Skip the default background clear; every frame covers the whole canvas
+        paint(g);
+    }
 
-            // Remove bullets that have gone off the left side of the screen
-            if (bullet.getX() + bullet.getWidth() < 0) {
-                it.remove();
+    @Override
+    public void paint(Graphics g) {
+        renderFrame((Graphics2D) g, 1.0, 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Draws one frame at the logical size. alpha interpolates moving sprites between the last two ticks.
+     */
+    void renderFrame(Graphics2D g2d, double alpha) {
+        renderFrame(g2d, alpha, 0, WIDTH, HEIGHT);
+    }
+
+    // A negative alpha is worked out from frameNanos and the tick time of the snapshot drawn
+    private void renderFrame(Graphics2D target, double alpha, long frameNanos, int width, int height) {
+        synchronized (renderLock) {
+            boolean scaled = width > 0 && height > 0 && (width != WIDTH || height != HEIGHT);
+            Graphics2D g2d = target;
+            if (scaled) {
+                if (backbuffer == null) {
+                    backbuffer = CompatibleImages.create(WIDTH, HEIGHT, Transparency.OPAQUE);
+                    backbufferGraphics = backbuffer.createGraphics();
+                }
+                g2d = backbufferGraphics;
+            }
+            // Text and rounded shapes are anti-aliased inside the cached layers; the per-frame
+            // fills and blits here are axis-aligned and take the faster non-AA loops
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            boolean shown = profilerShown;
+            if (shown && profiler == null) {
+                frameProfiler.reset();
             }
+            profiler = shown ? frameProfiler : null;
+
+            SceneRenderer renderer = softwareRendering ? softwareRenderer : java2dRenderer;
+            if (renderer != sceneRenderer) {
+                sceneRenderer = renderer;
+                dirtyRegions.invalidate(); // The retained frame missed what the other one drew
+            }
+            softwareRenderer.setProfiler(profiler);
+
+            WorldSnapshot snapshot = snapshots.acquire();
+            if (profiler != null) {
+                profiler.beginFrame(snapshot.bulletCount);
+            }
+            drawFrame(g2d, snapshot, alpha, frameNanos);
+            if (profiler != null) {
+                profilerOverlay.draw(g2d, profiler, tickProfiler, 10, 100);
+                profiler.lap(FrameProfiler.PROFILER);
+            }
+            if (scaled) {
+                presentScaled(target, width, height);
+                lap(FrameProfiler.SCALE);
+            }
+            if (profiler != null) {
+                profiler.endFrame();
+            }
+        }
+    }
+
+    // Blits the backbuffer into the viewport and blacks out the bars beside it
+    private void presentScaled(Graphics2D g2d, int width, int height) {
+        if (width != viewportForWidth || height != viewportForHeight) {
+            viewportInterpolation = fitViewport(width, height, scaling, viewport);
+            viewportForWidth = width;
+            viewportForHeight = height;
         }
+        Rectangle v = viewport;
+        g2d.setColor(Color.BLACK);
+        if (v.x > 0) {
+            g2d.fillRect(0, 0, v.x, height);
+            g2d.fillRect(v.x + v.width, 0, width - v.x - v.width, height);
+        }
+        if (v.y > 0) {
+            g2d.fillRect(0, 0, width, v.y);
+            g2d.fillRect(0, v.y + v.height, width, height - v.y - v.height);
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, viewportInterpolation);
+        g2d.drawImage(backbuffer, v.x, v.y, v.width, v.height, null);
     }
 
-    private void spawnBullets() {
-        // Ensure we have a valid range for random position
-        int maxY = HEIGHT - bulletImg.getHeight();
-        if (maxY <= 0) maxY = HEIGHT - 1;
+    /**
+     * Sets out to where the logical frame goes in a target of the given size: the largest
+     * size with the same aspect ratio (for INTEGER, the largest whole multiple that fits,
+     * unless even 1x doesn't), centred. Returns the interpolation hint to scale with.
+     */
+    static Object fitViewport(int width, int height, Scaling scaling, Rectangle out) {
+        double scale = Math.min((double) width / WIDTH, (double) height / HEIGHT);
+        if (scaling == Scaling.INTEGER && scale >= 1) {
+            scale = Math.floor(scale);
+        }
+        int w = (int) Math.round(WIDTH * scale), h = (int) Math.round(HEIGHT * scale);
+        out.setBounds((width - w) / 2, (height - h) / 2, w, h);
+        return scaling == Scaling.SMOOTH ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR;
+    }
 
-        // Get spawn rate based on difficulty
-        int spawnRate;
-        int bulletSpeed;
-        
-        switch (currentDifficulty) {
-            case EASY:
-                spawnRate = EASY_SPAWN_RATE;
-                bulletSpeed = EASY_BULLET_SPEED;
-                break;
-            case MEDIUM:
-                spawnRate = MEDIUM_SPAWN_RATE;
-                bulletSpeed = MEDIUM_BULLET_SPEED;
-                break;
-            case HARD:
-                spawnRate = HARD_SPAWN_RATE;
-                bulletSpeed = HARD_BULLET_SPEED;
-                break;
-            default:
-                spawnRate = EASY_SPAWN_RATE;
-                bulletSpeed = EASY_BULLET_SPEED;
-        }
-
-        // Randomly spawn new bullets from the right side of the screen
-        if (random.nextInt(100) < spawnRate) {
-            int y = random.nextInt(maxY);
-            Bullet bullet = new Bullet(WIDTH, y, bulletImg);
-            // Set bullet velocity based on difficulty
-            bullet.setVelocityX(bulletSpeed);
-            bullets.add(bullet);
-        }
-    }
-
-    private void checkCollisions() {
-        // Check for collisions between plane and bullets
-        Rectangle planeRect = plane.getBounds();
-
-        for (Bullet bullet : bullets) {
-            if (planeRect.intersects(bullet.getBounds())) {
-                gameOver = true;
-                plane.setExploding(true);
-                showingExplosion = true;
-                playExplosionSound();
-                
-                // Start explosion timer to show explosion for 1 second
-                explosionTimer.start();
-                
-                // Save score for current difficulty
-                difficultyScores.put(currentDifficulty, score);
-                updateHighScore(currentDifficulty, score);
-                saveHighScores();
-                break;
-            }
+    private static Scaling parseScaling(String name) {
+        try {
+            return Scaling.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown scaling " + name + ", using nearest");
+            return Scaling.NEAREST;
         }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-        
-        // Enable anti-aliasing for smoother text
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        
-        // Draw background
-        g2d.drawImage(backgroundImg, 0, 0, null);
+    // Maps a point on the component to logical coordinates, for the buttons and mouse steering
+    private Point toLogical(Point point) {
+        Rectangle v = new Rectangle();
+        fitViewport(getWidth(), getHeight(), scaling, v);
+        if (v.width <= 0 || v.height <= 0) {
+            return point;
+        }
+        return new Point((int) Math.floor((point.x - v.x) * (double) WIDTH / v.width),
+                (int) Math.floor((point.y - v.y) * (double) HEIGHT / v.height));
+    }
+
+    private void drawFrame(Graphics2D g2d, WorldSnapshot snapshot, double alpha, long frameNanos) {
+        if (!snapshot.isScene()) {
+            synchronized (this) {
+                // Menus and frozen screens draw from the game itself, which can't change while
+                // the lock is held; the snapshot acquired now is the one that matches it
+                snapshot = snapshots.acquire();
+                if (!snapshot.isScene()) {
+                    dirtyRegions.invalidate();
+                    drawStaticScreen(g2d, snapshot);
+                    lap(FrameProfiler.OVERLAYS);
+                    return;
+                }
+            }
+        }
+
+        if (alpha < 0) {
+            alpha = snapshot.alphaAt(frameNanos);
+        }
+        sceneRenderer.draw(g2d, snapshot, alpha);
+    }
 
+    // Level select, pause, game over and level completed; called with the game lock held
+    private void drawStaticScreen(Graphics2D g2d, WorldSnapshot snapshot) {
         if (showLevelSelect) {
+            // The menu layer is opaque and already includes the background
             drawLevelSelect(g2d);
             return;
         }
 
+        // Pause, game over and level completed freeze the game, so the whole frame
+        // behind and including the overlay is composed once and then blitted
+        long key = (simulationVersion << 24) ^ ((long) highScoresVersion << 4)
+                ^ (isPaused ? 2 : 0) ^ (mouseControlEnabled ? 1 : 0);
+        if (!frozenFrameLayer.isValid(key)) {
+            Graphics2D g = frozenFrameLayer.begin(key);
+            drawScene(g, snapshot, 1.0);
+            if (isPaused) {
+                drawPauseScreen(g);
+            } else if (world.isGameOver()) {
+                drawGameOverScreen(g);
+            } else {
+                drawLevelCompletedScreen(g);
+            }
+            g.dispose();
+        }
+        frozenFrameLayer.draw(g2d);
+    }
+
+    // Ends the current render phase when the profiler is on
+    private void lap(int phase) {
+        if (profiler != null) {
+            profiler.lap(phase);
+        }
+    }
+
+    // The Java2D backend, through the retained frame or redrawing everything
+    private void drawSceneJava2D(Graphics2D g2d, WorldSnapshot snapshot, double alpha) {
+        if (dirtyRendering) {
+            drawSceneDirty(g2d, snapshot, alpha);
+        } else {
+            drawScene(g2d, snapshot, alpha);
+        }
+    }
+
+    private void drawScene(Graphics2D g2d, WorldSnapshot snapshot, double alpha) {
+        // Draw background
+        g2d.drawImage(snapshot.background, 0, 0, null);
+        lap(FrameProfiler.BACKGROUND);
+
         // Draw game objects
-        if (!gameOver || showingExplosion) {
-            // Draw bullets
-            for (Bullet bullet : bullets) {
-                bullet.draw(g2d);
+        SpriteAtlas sprites = snapshot.sprites;
+        if (!snapshot.gameOver || snapshot.explosion) {
+            // Draw bullets; they move linearly so the previous position is one step back
+            double back = snapshot.gameOver ? 0 : 1.0 - alpha;
+            for (int i = 0, n = snapshot.bulletCount; i < n; i++) {
+                int x = (int) Math.round(snapshot.bulletX[i] - snapshot.bulletVelocityX[i] * back);
+                sprites.draw(g2d, snapshot.bulletSprite, x, snapshot.bulletY[i]);
             }
+            lap(FrameProfiler.BULLETS);
             
             // Draw plane or explosion
-            if (showingExplosion) {
+            int planeX = interpolate(snapshot.planePrevX, snapshot.planeX, alpha);
+            int planeY = interpolate(snapshot.planePrevY, snapshot.planeY, alpha);
+            if (snapshot.explosion) {
                 // Draw explosion at plane's position
-                g2d.drawImage(explosionImg, plane.getX(), plane.getY(), null);
+                sprites.draw(g2d, snapshot.explosionSprite, snapshot.planeX, snapshot.planeY);
             } else {
-                plane.draw(g2d);
+                sprites.draw(g2d, snapshot.planeSprite, planeX, planeY);
             }
+            lap(FrameProfiler.PLANE);
         }
 
         // Draw score and difficulty with better styling
-        drawGameHUD(g2d);
+        drawGameHUD(g2d, snapshot);
+        lap(FrameProfiler.HUD);
+    }
+    
+    /**
+     * drawScene() through the retained frame: works out where every sprite goes, repaints
+     * just the dirty regions (background, then whatever overlaps them, in drawScene order)
+     * and blits the frame once.
+     */
+    private void drawSceneDirty(Graphics2D g2d, WorldSnapshot snapshot, double alpha) {
+        scenePhaseMark = profiler != null ? System.nanoTime() : 0;
+        if (sceneFrame == null) {
+            sceneFrame = CompatibleImages.create(WIDTH, HEIGHT, Transparency.OPAQUE);
+            sceneGraphics = sceneFrame.createGraphics();
+            dirtyRegions.invalidate();
+        }
+        if (snapshot.resourcesVersion != drawnResourcesVersion) {
+            drawnResourcesVersion = snapshot.resourcesVersion;
+            dirtyRegions.invalidate();
+        }
+        if (prepareHud(snapshot)) {
+            dirtyRegions.invalidate();
+        }
 
-        if (isPaused) {
-            drawPauseScreen(g2d);
-        } else if (gameOver && !showingExplosion) {
-            drawGameOverScreen(g2d);
-        } else if (levelCompleted) {
-            drawLevelCompletedScreen(g2d);
+        // Bullets are added every frame; the regions include last frame's bounds as well
+        SpriteAtlas sprites = snapshot.sprites;
+        int bulletSprite = snapshot.bulletSprite;
+        boolean drawSprites = !snapshot.gameOver || snapshot.explosion;
+        int bulletCount = drawSprites ? snapshot.bulletCount : 0;
+        if (bulletCount > bulletDrawX.length) {
+            bulletDrawX = new int[Math.max(bulletCount, bulletDrawX.length * 2)];
+            bulletDrawY = new int[bulletDrawX.length];
+        }
+        int bulletWidth = sprites.getWidth(bulletSprite);
+        int bulletHeight = sprites.getHeight(bulletSprite);
+        double back = snapshot.gameOver ? 0 : 1.0 - alpha;
+        for (int i = 0; i < bulletCount; i++) {
+            int x = (int) Math.round(snapshot.bulletX[i] - snapshot.bulletVelocityX[i] * back);
+            int y = snapshot.bulletY[i];
+            bulletDrawX[i] = x;
+            bulletDrawY[i] = y;
+            dirtyRegions.add(x, y, bulletWidth, bulletHeight);
+        }
+
+        // The plane and the score often stay put, so they are only dirty when they change
+        int sprite = -1, planeX = 0, planeY = 0;
+        if (drawSprites) {
+            if (snapshot.explosion) {
+                sprite = snapshot.explosionSprite;
+                planeX = snapshot.planeX;
+                planeY = snapshot.planeY;
+            } else {
+                sprite = snapshot.planeSprite;
+                planeX = interpolate(snapshot.planePrevX, snapshot.planeX, alpha);
+                planeY = interpolate(snapshot.planePrevY, snapshot.planeY, alpha);
+            }
+        }
+        if (sprite != drawnPlaneSprite || planeX != drawnPlaneX || planeY != drawnPlaneY) {
+            if (drawnPlaneSprite >= 0) {
+                dirtyRegions.add(drawnPlaneX, drawnPlaneY, sprites.getWidth(drawnPlaneSprite),
+                        sprites.getHeight(drawnPlaneSprite));
+            }
+            if (sprite >= 0) {
+                dirtyRegions.add(planeX, planeY, sprites.getWidth(sprite), sprites.getHeight(sprite));
+            }
+            drawnPlaneSprite = sprite;
+            drawnPlaneX = planeX;
+            drawnPlaneY = planeY;
+        }
+        int score = snapshot.score;
+        int scoreX = 20 + scoreLabelWidth;
+        int scoreTop = 40 - scoreDigits.getAscent();
+        if (score != drawnScore) {
+            int width = scoreDigits.getWidth(score);
+            dirtyRegions.add(scoreX, scoreTop, Math.max(width, drawnScoreWidth), scoreDigits.getHeight());
+            drawnScore = score;
+            drawnScoreWidth = width;
+        }
+
+        boolean full = dirtyRegions.finish();
+        int planeWidth = drawnPlaneSprite >= 0 ? sprites.getWidth(drawnPlaneSprite) : 0;
+        int planeHeight = drawnPlaneSprite >= 0 ? sprites.getHeight(drawnPlaneSprite) : 0;
+        // Each draw below copies just its part inside the rect; the rects don't overlap, so
+        // nothing is blended twice (and no clip has to be set, which would allocate)
+        Graphics2D g = sceneGraphics;
+        for (int r = 0, count = dirtyRegions.getCount(); r < count; r++) {
+            int x = dirtyRegions.getX(r), y = dirtyRegions.getY(r);
+            int w = dirtyRegions.getWidth(r), h = dirtyRegions.getHeight(r);
+            g.drawImage(snapshot.background, x, y, x + w, y + h, x, y, x + w, y + h, null);
+            sceneLap(0);
+
+            for (int i = 0; i < bulletCount; i++) {
+                if (full) {
+                    sprites.draw(g, bulletSprite, bulletDrawX[i], bulletDrawY[i]);
+                } else if (dirtyRegions.overlaps(r, bulletDrawX[i], bulletDrawY[i], bulletWidth, bulletHeight)) {
+                    sprites.draw(g, bulletSprite, bulletDrawX[i], bulletDrawY[i], x, y, w, h);
+                }
+            }
+            sceneLap(1);
+
+            if (drawnPlaneSprite >= 0 && dirtyRegions.overlaps(r, drawnPlaneX, drawnPlaneY, planeWidth, planeHeight)) {
+                sprites.draw(g, drawnPlaneSprite, drawnPlaneX, drawnPlaneY, x, y, w, h);
+            }
+            sceneLap(2);
+
+            hudScoreLayer.draw(g, x, y, w, h);
+            hudHighScoreLayer.draw(g, x, y, w, h);
+            hudControlsLayer.draw(g, x, y, w, h);
+            if (dirtyRegions.overlaps(r, scoreX, scoreTop, drawnScoreWidth, scoreDigits.getHeight())) {
+                scoreDigits.draw(g, score, scoreX, 40, x, y, w, h);
+            }
+            sceneLap(3);
+        }
+        g2d.drawImage(sceneFrame, 0, 0, null);
+        sceneLap(0);
+
+        if (profiler != null) {
+            // The region bookkeeping and the final blit count as background
+            for (int i = 0; i < scenePhaseNanos.length; i++) {
+                profiler.record(FrameProfiler.BACKGROUND + i, scenePhaseNanos[i]);
+                scenePhaseNanos[i] = 0;
+            }
+            profiler.setRepainted((double) dirtyRegions.getArea() / (WIDTH * HEIGHT), dirtyRegions.getCount());
+            profiler.begin();
+        }
+    }
+
+    // Adds the time since the last call to one of the dirty-frame phases while profiling
+    private void sceneLap(int phase) {
+        if (profiler != null) {
+            long now = System.nanoTime();
+            scenePhaseNanos[phase] += now - scenePhaseMark;
+            scenePhaseMark = now;
         }
     }
+
+    /**
+     * Draws the current scene in full with Java2D, bypassing the retained frame and the
+     * software compositor, for checking them;
+     * draws nothing and returns false while a menu or frozen screen is showing.
+     */
+    boolean drawReferenceScene(Graphics2D g2d, double alpha) {
+        synchronized (renderLock) {
+            WorldSnapshot snapshot = snapshots.acquire();
+            if (!snapshot.isScene()) {
+                return false;
+            }
+            drawScene(g2d, snapshot, alpha);
+            return true;
+        }
+    }
+
+    /**
+     * Switches between repainting dirty regions of the retained frame and full redraws.
+     */
+    void setDirtyRendering(boolean enabled) {
+        synchronized (renderLock) {
+            dirtyRendering = enabled;
+            dirtyRegions.invalidate();
+        }
+    }
+
+    /**
+     * Switches gameplay frames between the software compositor and Java2D from the next frame.
+     */
+    void setSoftwareRendering(boolean enabled) {
+        softwareRendering = enabled;
+    }
+
+    DirtyRegions getDirtyRegions() {
+        return dirtyRegions;
+    }
+
+    private static int interpolate(int previous, int current, double alpha) {
+        // Don't smear the wrap-around jump back to the left edge
+        if (Math.abs(current - previous) > WIDTH / 2) {
+            return current;
+        }
+        return (int) Math.round(previous + (current - previous) * alpha);
+    }
+    
+    private void drawGameHUD(Graphics2D g2d, WorldSnapshot snapshot) {
+        prepareHud(snapshot);
+        hudScoreLayer.draw(g2d);
+        hudHighScoreLayer.draw(g2d);
+        hudControlsLayer.draw(g2d);
+        
+        // The score changes every tick, so it is drawn from the digit strip
+        scoreDigits.draw(g2d, snapshot.score, 20 + scoreLabelWidth, 40);
+    }
     
-    private void drawGameHUD(Graphics2D g2d) {
+    // Repaints the HUD layers whose state changed; true if any was. The snapshot says what
+    // the layers should show; repainting reads the game, so it takes the lock (rarely)
+    private boolean prepareHud(WorldSnapshot snapshot) {
+        int difficulty = snapshot.difficulty.ordinal();
+        int controls = snapshot.autopilot ? 1 : 0;
+        if (hudScoreLayer.isValid(difficulty) && hudHighScoreLayer.isValid(snapshot.highScoresVersion)
+                && hudControlsLayer.isValid(controls)) {
+            return false;
+        }
+        synchronized (this) {
+            if (!hudScoreLayer.isValid(difficulty)) {
+                Graphics2D g = hudScoreLayer.begin(difficulty);
+                paintScorePanel(g);
+                g.dispose();
+            }
+            if (!hudHighScoreLayer.isValid(snapshot.highScoresVersion)) {
+                Graphics2D g = hudHighScoreLayer.begin(snapshot.highScoresVersion);
+                paintHighScorePanel(g);
+                g.dispose();
+            }
+            if (!hudControlsLayer.isValid(controls)) {
+                Graphics2D g = hudControlsLayer.begin(controls);
+                paintControlsReminder(g);
+                g.dispose();
+            }
+        }
+        return true;
+    }
+
+    private void paintScorePanel(Graphics2D g2d) {
         // Draw semi-transparent panel for score
         g2d.setColor(new Color(0, 0, 0, 150));
         g2d.fillRoundRect(10, 10, 200, 80, 10, 10);
         
-        // Draw score with shadow effect
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        // Draw score label with shadow effect; the digits follow it
+        g2d.setFont(FONT_BOLD_24);
         g2d.setColor(new Color(0, 0, 0, 100));
-        g2d.drawString("Score: " + score, 22, 42);
+        g2d.drawString("Score: ", 22, 42);
         
         // Get difficulty color
         Color diffColor;
@@ -574,20 +1311,23 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         }
         
         g2d.setColor(Color.WHITE);
-        g2d.drawString("Score: " + score, 20, 40);
+        g2d.drawString("Score: ", 20, 40);
+        scoreLabelWidth = g2d.getFontMetrics().stringWidth("Score: ");
         
         g2d.setColor(diffColor);
         g2d.drawString("Level: " + currentDifficulty, 20, 70);
-        
+    }
+    
+    private void paintHighScorePanel(Graphics2D g2d) {
         // Draw high scores in a panel on the right
         g2d.setColor(new Color(0, 0, 0, 150));
         g2d.fillRoundRect(WIDTH - 210, 10, 200, 100, 10, 10);
         
-        g2d.setFont(new Font("Arial", Font.BOLD, 18));
+        g2d.setFont(FONT_BOLD_18);
         g2d.setColor(Color.WHITE);
         g2d.drawString("High Scores:", WIDTH - 190, 35);
         
-        g2d.setFont(new Font("Arial", Font.PLAIN, 16));
+        g2d.setFont(FONT_PLAIN_16);
         int yPos = 60;
         for (Difficulty diff : Difficulty.values()) {
             switch (diff) {
@@ -598,25 +1338,32 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             g2d.drawString(diff + ": " + highScores.getOrDefault(diff, 0), WIDTH - 190, yPos);
             yPos += 25;
         }
-        
+    }
+    
+    private void paintControlsReminder(Graphics2D g2d) {
         // Draw controls reminder at bottom
         g2d.setColor(new Color(255, 255, 255, 100));
-        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-        g2d.drawString("P: Pause | M: Toggle Mouse Control | ESC: Menu", 20, HEIGHT - 20);
+        g2d.setFont(FONT_PLAIN_12);
+        g2d.drawString("P: Pause | M: Toggle Mouse Control | A: Autopilot | ESC: Menu", 20, HEIGHT - 20);
+        if (autopilotEnabled) {
+            g2d.setColor(Color.YELLOW);
+            g2d.setFont(FONT_BOLD_18);
+            g2d.drawString("AUTOPILOT", WIDTH - 130, HEIGHT - 18);
+        }
     }
     
     private void drawPauseScreen(Graphics2D g2d) {
-        g2d.setColor(new Color(0, 0, 0, 180));
+        g2d.setColor(OVERLAY_DIM);
         g2d.fillRect(0, 0, WIDTH, HEIGHT);
         
         // Draw panel
         g2d.setColor(new Color(30, 30, 60));
         g2d.fillRoundRect(WIDTH/2 - 200, HEIGHT/2 - 150, 400, 300, 20, 20);
         g2d.setColor(new Color(60, 60, 120));
-        g2d.setStroke(new BasicStroke(3));
+        g2d.setStroke(STROKE_3);
         g2d.drawRoundRect(WIDTH/2 - 200, HEIGHT/2 - 150, 400, 300, 20, 20);
         
-        g2d.setFont(new Font("Arial", Font.BOLD, 40));
+        g2d.setFont(FONT_BOLD_40);
         g2d.setColor(Color.WHITE);
         String pauseText = "GAME PAUSED";
         FontMetrics fm = g2d.getFontMetrics();
@@ -631,26 +1378,26 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     }
     
     private void drawGameOverScreen(Graphics2D g2d) {
-        g2d.setColor(new Color(0, 0, 0, 180));
+        g2d.setColor(OVERLAY_DIM);
         g2d.fillRect(0, 0, WIDTH, HEIGHT);
         
         // Draw panel
         g2d.setColor(new Color(60, 30, 30));
         g2d.fillRoundRect(WIDTH/2 - 200, HEIGHT/2 - 200, 400, 400, 20, 20);
         g2d.setColor(new Color(120, 60, 60));
-        g2d.setStroke(new BasicStroke(3));
+        g2d.setStroke(STROKE_3);
         g2d.drawRoundRect(WIDTH/2 - 200, HEIGHT/2 - 200, 400, 400, 20, 20);
         
-        g2d.setFont(new Font("Arial", Font.BOLD, 40));
+        g2d.setFont(FONT_BOLD_40);
         g2d.setColor(Color.RED);
         String gameOverText = "GAME OVER";
         FontMetrics fm = g2d.getFontMetrics();
         int textWidth = fm.stringWidth(gameOverText);
         g2d.drawString(gameOverText, (WIDTH - textWidth) / 2, HEIGHT / 2 - 120);
 
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        g2d.setFont(FONT_BOLD_24);
         g2d.setColor(Color.WHITE);
-        String scoreText = "Your score: " + score;
+        String scoreText = "Your score: " + world.getScore();
         textWidth = g2d.getFontMetrics().stringWidth(scoreText);
         g2d.drawString(scoreText, (WIDTH - textWidth) / 2, HEIGHT / 2 - 70);
         
@@ -662,26 +1409,26 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     }
     
     private void drawLevelCompletedScreen(Graphics2D g2d) {
-        g2d.setColor(new Color(0, 0, 0, 180));
+        g2d.setColor(OVERLAY_DIM);
         g2d.fillRect(0, 0, WIDTH, HEIGHT);
         
         // Draw panel
         g2d.setColor(new Color(30, 60, 30));
         g2d.fillRoundRect(WIDTH/2 - 200, HEIGHT/2 - 200, 400, 400, 20, 20);
         g2d.setColor(new Color(60, 120, 60));
-        g2d.setStroke(new BasicStroke(3));
+        g2d.setStroke(STROKE_3);
         g2d.drawRoundRect(WIDTH/2 - 200, HEIGHT/2 - 200, 400, 400, 20, 20);
         
-        g2d.setFont(new Font("Arial", Font.BOLD, 40));
+        g2d.setFont(FONT_BOLD_40);
         g2d.setColor(new Color(100, 255, 100));
         String completedText = "LEVEL COMPLETED!";
         FontMetrics fm = g2d.getFontMetrics();
         int textWidth = fm.stringWidth(completedText);
         g2d.drawString(completedText, (WIDTH - textWidth) / 2, HEIGHT / 2 - 120);
 
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        g2d.setFont(FONT_BOLD_24);
         g2d.setColor(Color.WHITE);
-        String scoreText = "Your score: " + score;
+        String scoreText = "Your score: " + world.getScore();
         textWidth = g2d.getFontMetrics().stringWidth(scoreText);
         g2d.drawString(scoreText, (WIDTH - textWidth) / 2, HEIGHT / 2 - 70);
         
@@ -691,15 +1438,45 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         drawButton(g2d, "Level Select (L)", WIDTH/2 - 150, HEIGHT/2 + 120, 300, 50, false);
     }
     private void drawLevelSelect(Graphics2D g2d) {
+        RunStore store = runStore;
+        long runs = store != null ? store.getRunCount() + 1 : 0;
+        long key = selectedLevelIndex | (startButtonHover ? 4 : 0) | ((long) highScoresVersion << 6) | (runs << 32);
+        for (int i = 0; i < levelButtonHover.length; i++) {
+            if (levelButtonHover[i]) {
+                key |= 8L << i;
+            }
+        }
+        if (!levelSelectLayer.isValid(key)) {
+            Graphics2D g = levelSelectLayer.begin(key);
+            g.drawImage(backgroundImg, 0, 0, null);
+            paintLevelSelect(g);
+            g.dispose();
+        }
+        levelSelectLayer.draw(g2d);
+        
+        // Add a pulsing effect to make it more noticeable
+        long currentTime = System.currentTimeMillis();
+        float pulse = (float)(Math.sin(currentTime / 300.0) * 0.5 + 0.5); // Value between 0.0 and 1.0
+        
+        // Draw a glowing outline around the start button
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(STROKE_3);
+        g2d.setColor(PULSE_COLORS[Math.round(pulse * (PULSE_COLORS.length - 1))]);
+        g2d.drawRoundRect(startButton.x - 5, startButton.y - 5, 
+                         startButton.width + 10, startButton.height + 10, 15, 15);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+    
+    private void paintLevelSelect(Graphics2D g2d) {
         // Draw title
-        g2d.setFont(new Font("Arial", Font.BOLD, 50));
+        g2d.setFont(FONT_BOLD_50);
         g2d.setColor(Color.WHITE);
         String titleText = "PLANE DODGE";
         FontMetrics fm = g2d.getFontMetrics();
         int textWidth = fm.stringWidth(titleText);
         g2d.drawString(titleText, (WIDTH - textWidth) / 2, 80);
         
-        g2d.setFont(new Font("Arial", Font.BOLD, 30));
+        g2d.setFont(FONT_BOLD_30);
         String subtitleText = "SELECT DIFFICULTY";
         fm = g2d.getFontMetrics();
         textWidth = fm.stringWidth(subtitleText);
@@ -719,18 +1496,20 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
                               buttonColor, isSelected, isHovered);
             
             // Draw high score for this level
-            g2d.setFont(new Font("Arial", Font.PLAIN, 16));
+            g2d.setFont(FONT_PLAIN_16);
             g2d.setColor(Color.WHITE);
             String highScoreText = "High Score: " + highScores.getOrDefault(difficulties[i], 0);
             g2d.drawString(highScoreText, levelButtons[i].x + levelButtons[i].width + 20, 
                           levelButtons[i].y + levelButtons[i].height/2 + 5);
         }
         
+        paintLeaderboard(g2d, difficulties[selectedLevelIndex]);
+
         // Draw start button with hover effect
         drawButton(g2d, "START GAME", startButton.x, startButton.y, startButton.width, startButton.height, true, startButtonHover);
         
         // Draw click instructions - FIXED POSITIONING TO POINT TO START BUTTON
-        g2d.setFont(new Font("Arial", Font.BOLD, 20));
+        g2d.setFont(FONT_BOLD_20);
         g2d.setColor(Color.YELLOW);
         String clickText = "CLICK HERE TO START THE GAME";
         fm = g2d.getFontMetrics();
@@ -750,18 +1529,8 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         int[] yPoints = {arrowY, arrowY - arrowSize, arrowY - arrowSize};
         g2d.fillPolygon(xPoints, yPoints, 3);
         
-        // Add a pulsing effect to make it more noticeable
-        long currentTime = System.currentTimeMillis();
-        float pulse = (float)(Math.sin(currentTime / 300.0) * 0.2 + 0.8); // Value between 0.6 and 1.0
-        
-        // Draw a glowing outline around the start button
-        g2d.setStroke(new BasicStroke(3));
-        g2d.setColor(new Color(1.0f, 1.0f, 0.0f, pulse));
-        g2d.drawRoundRect(startButton.x - 5, startButton.y - 5, 
-                         startButton.width + 10, startButton.height + 10, 15, 15);
-        
         // Draw keyboard instructions
-        g2d.setFont(new Font("Arial", Font.PLAIN, 16));
+        g2d.setFont(FONT_PLAIN_16);
         g2d.setColor(Color.WHITE);
         String instructionText = "Use UP/DOWN arrows to select, ENTER to start";
         fm = g2d.getFontMetrics();
@@ -774,13 +1543,44 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         g2d.drawString(mouseText, (WIDTH - textWidth) / 2, HEIGHT - 50);
         
         // Draw troubleshooting info
-        g2d.setFont(new Font("Arial", Font.ITALIC, 14));
+        g2d.setFont(FONT_ITALIC_14);
         g2d.setColor(new Color(255, 255, 255, 180));
         String troubleText = "If keyboard controls don't work, click on the game window first";
         fm = g2d.getFontMetrics();
         textWidth = fm.stringWidth(troubleText);
         g2d.drawString(troubleText, (WIDTH - textWidth) / 2, HEIGHT - 20);
     }
+    private void paintLeaderboard(Graphics2D g2d, Difficulty difficulty) {
+        // Best runs at the selected difficulty, in a panel left of the buttons
+        int x = 20, y = levelButtons[0].y;
+        g2d.setColor(new Color(0, 0, 0, 150));
+        g2d.fillRoundRect(x, y, 210, 190, 10, 10);
+
+        g2d.setFont(FONT_BOLD_18);
+        g2d.setColor(difficultyColors[difficulty.ordinal()]);
+        g2d.drawString("Top " + difficulty + " Runs", x + 15, y + 28);
+
+        RunStore store = runStore;
+        g2d.setFont(FONT_PLAIN_16);
+        g2d.setColor(Color.WHITE);
+        int yPos = y + 55;
+        if (store != null) {
+            int rank = 1;
+            for (RunStore.Run run : store.topK(difficulty, LEADERBOARD_SIZE)) {
+                long seconds = run.ticks * GameLoop.DEFAULT_TICK_NANOS / 1_000_000_000L;
+                g2d.drawString(rank++ + ".", x + 15, yPos);
+                g2d.drawString(String.valueOf(run.score), x + 45, yPos);
+                g2d.drawString(String.format("%d:%02d", seconds / 60, seconds % 60), x + 145, yPos);
+                yPos += 22;
+            }
+        }
+
+        g2d.setFont(FONT_ITALIC_14);
+        g2d.setColor(new Color(255, 255, 255, 180));
+        int count = store != null ? store.getRunCount(difficulty) : 0;
+        g2d.drawString(count == 0 ? "No runs yet" : count + (count == 1 ? " run played" : " runs played"), x + 15, y + 178);
+    }
+
     private void drawButton(Graphics2D g2d, String text, int x, int y, int width, int height, boolean primary) {
         drawButton(g2d, text, x, y, width, height, primary, false);
     }
@@ -794,12 +1594,12 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         g2d.setColor(hover ? hoverColor : bgColor);
         g2d.fillRoundRect(x, y, width, height, 10, 10);
         
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setStroke(STROKE_2);
         g2d.setColor(borderColor);
         g2d.drawRoundRect(x, y, width, height, 10, 10);
         
         // Draw text
-        g2d.setFont(new Font("Arial", Font.BOLD, 18));
+        g2d.setFont(FONT_BOLD_18);
         g2d.setColor(Color.WHITE);
         FontMetrics fm = g2d.getFontMetrics();
         int textWidth = fm.stringWidth(text);
@@ -821,12 +1621,12 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         g2d.fillRoundRect(x, y, width, height, 10, 10);
         
         // Draw border (thicker if selected)
-        g2d.setStroke(new BasicStroke(selected ? 4 : 2));
+        g2d.setStroke(selected ? STROKE_4 : STROKE_2);
         g2d.setColor(borderColor);
         g2d.drawRoundRect(x, y, width, height, 10, 10);
         
         // Draw text
-        g2d.setFont(new Font("Arial", Font.BOLD, 22));
+        g2d.setFont(FONT_BOLD_22);
         g2d.setColor(Color.WHITE);
         FontMetrics fm = g2d.getFontMetrics();
         int textWidth = fm.stringWidth(text);
@@ -841,7 +1641,11 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     
     @Override
     public void mouseClicked(MouseEvent e) {
-        handleMouseClick(e.getPoint());
+        synchronized (this) {
+            handleMouseClick(toLogical(e.getPoint()));
+            publishSnapshot();
+        }
+        requestRender();
     }
     
     @Override
@@ -875,15 +1679,14 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
                 if (levelButtons[i].contains(point)) {
                     selectedLevelIndex = i;
                     currentDifficulty = Difficulty.values()[i];
-                    repaint();
+                    requestRender();
                     return;
                 }
             }
             
             // Check if start button was clicked
             if (startButton.contains(point)) {
-                showLevelSelect = false;
-                resetGame();
+                startLevel(currentDifficulty);
                 return;
             }
         } else if (isPaused) {
@@ -895,12 +1698,12 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             if (resumeButton.contains(point)) {
                 isPaused = false;
             } else if (menuButton.contains(point)) {
-                showLevelSelect = true;
+                abandonRun();
             } else if (mouseToggleButton.contains(point)) {
                 mouseControlEnabled = !mouseControlEnabled;
-                repaint();
+                requestRender();
             }
-        } else if (gameOver && !showingExplosion) {
+        } else if (world.isGameOver() && !showingExplosion) {
             // Handle clicks in game over screen
             Rectangle restartButton = new Rectangle(WIDTH/2 - 150, HEIGHT/2 - 20, 300, 50);
             Rectangle menuButton = new Rectangle(WIDTH/2 - 150, HEIGHT/2 + 50, 300, 50);
@@ -912,9 +1715,9 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
                 showLevelSelect = true;
             } else if (mouseToggleButton.contains(point)) {
                 mouseControlEnabled = !mouseControlEnabled;
-                repaint();
+                requestRender();
             }
-        } else if (levelCompleted) {
+        } else if (world.isLevelCompleted()) {
             // Handle clicks in level completed screen
             Rectangle nextLevelButton = new Rectangle(WIDTH/2 - 150, HEIGHT/2 - 20, 300, 50);
             Rectangle restartButton = new Rectangle(WIDTH/2 - 150, HEIGHT/2 + 50, 300, 50);
@@ -931,8 +1734,8 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     }
     
     @Override
-    public void mouseMoved(MouseEvent e) {
-        Point point = e.getPoint();
+    public synchronized void mouseMoved(MouseEvent e) {
+        Point point = toLogical(e.getPoint());
         
         if (showLevelSelect) {
             // Update hover states for level buttons
@@ -954,24 +1757,13 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             
             // Only repaint if hover state changed
             if (changed) {
-                repaint();
+                requestRender();
             }
-        } else if (mouseControlEnabled && !gameOver && !isPaused && !showLevelSelect && !levelCompleted && !showingExplosion) {
-            // Calculate the desired velocity based on mouse position
-            int targetY = e.getY() - plane.getHeight() / 2;
-            int targetX = e.getX() - plane.getWidth() / 2;
-
-            // Smoothly adjust the plane's position towards the target
-            double diffY = targetY - plane.getY();
-            double diffX = targetX - plane.getX();
-
-            // Apply acceleration towards the target position
-            plane.setVelocityY(diffY * acceleration);
-            plane.setVelocityX(diffX * acceleration);
-
-            // Limit the velocity to prevent excessive speed
-            plane.setVelocityY(Math.max(Math.min(plane.getVelocityY(), maxVelocity), -maxVelocity));
-            plane.setVelocityX(Math.max(Math.min(plane.getVelocityX(), maxVelocity), -maxVelocity));
+        } else if (mouseControlEnabled && !world.isGameOver() && !isPaused && !world.isLevelCompleted() && !showingExplosion) {
+            // Steering is applied by the world on the next tick
+            input.mouseX = point.x;
+            input.mouseY = point.y;
+            input.mouseMoved = true;
         }
     }
 
@@ -981,24 +1773,33 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
     }
 
     private void resetGame() {
+        recordRun(RunStore.OUTCOME_ABANDONED); // Only if a run was left unfinished, e.g. by GameControl
         // Reset game state with current difficulty
-        plane = new Plane(100, HEIGHT / 2, planeImg);
-        bullets.clear();
-        gameOver = false;
-        levelCompleted = false;
+        world.setCollisionMasks(planeMask, bulletMask);
+        world.reset(currentDifficulty);
+        if (spritesInstalled) {
+            recorder.begin(currentDifficulty, world.getSeed(), PLANE_WIDTH, PLANE_HEIGHT,
+                    BULLET_WIDTH, BULLET_HEIGHT, maskChecksum);
+        } else {
+            recorder.cancel(); // The placeholders' masks would make a replay no verifier accepts
+        }
+        simulationVersion++;
+        input.clear();
+        autopilot.reset();
+        autopilotFlewRun = autopilotEnabled;
+        tunedRun = !world.hasDefaultTuning();
+        runInProgress = true;
         showingExplosion = false;
-        score = 0;
-        timer.setDelay(20);
+        explosionDuration = 0;
         mouseControlEnabled = true;
-        
-        // Apply difficulty settings
-        applyDifficultySettings();
+        publishSnapshot();
         
         // Request focus to ensure keyboard input works
         requestFocusInWindow();
     }
     
     private void advanceToNextLevel() {
+        Difficulty previous = currentDifficulty;
         // Move to next difficulty level
         if (currentDifficulty == Difficulty.EASY) {
             currentDifficulty = Difficulty.MEDIUM;
@@ -1007,62 +1808,79 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             currentDifficulty = Difficulty.HARD;
             selectedLevelIndex = 2;
         }
+        GameEvents.LevelChangeEvent event = GameEvents.isRecording() ? new GameEvents.LevelChangeEvent() : null;
+        if (event != null && event.isEnabled()) {
+            event.from = previous.name();
+            event.to = currentDifficulty.name();
+            event.score = world.getScore();
+            event.reason = "advance";
+            event.commit();
+        }
         
         resetGame();
     }
     
     private void updateHighScore(Difficulty difficulty, int newScore) {
+        if (autopilotFlewRun || tunedRun) {
+            return;
+        }
         int currentHighScore = highScores.getOrDefault(difficulty, 0);
         if (newScore > currentHighScore) {
             highScores.put(difficulty, newScore);
+            highScoresVersion++;
         }
     }
     
-    private void loadHighScores() {
-        // Initialize default high scores
-        for (Difficulty diff : Difficulty.values()) {
-            highScores.put(diff, 0);
-        }
-        
-        try {
-            File file = new File(SCORES_FILE);
-            if (file.exists()) {
-                BufferedReader reader = new BufferedReader(new FileReader(file));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(":");
-                    if (parts.length == 2) {
-                        try {
-                            Difficulty diff = Difficulty.valueOf(parts[0]);
-                            int score = Integer.parseInt(parts[1]);
-                            highScores.put(diff, score);
-                        } catch (IllegalArgumentException e) {
-                            System.out.println("Invalid difficulty in scores file: " + parts[0]);
-                        }
-                    }
-                }
-                reader.close();
+    // Merges the saved scores in, keeping (and saving) any better score already set this session
+    private synchronized void installHighScores(Map<Difficulty, Integer> scores) {
+        boolean improved = false;
+        for (Map.Entry<Difficulty, Integer> entry : scores.entrySet()) {
+            if (highScores.get(entry.getKey()) > entry.getValue()) {
+                improved = true;
+            } else {
+                highScores.put(entry.getKey(), entry.getValue());
             }
-        } catch (IOException e) {
-            System.out.println("Error loading high scores: " + e.getMessage());
         }
+        highScoresLoaded = true;
+        highScoresVersion++;
+        if (improved) {
+            saveHighScores();
+        }
+        publishSnapshot();
+        requestRender();
     }
     
     private void saveHighScores() {
-        try {
-            FileWriter writer = new FileWriter(SCORES_FILE);
-            for (Map.Entry<Difficulty, Integer> entry : highScores.entrySet()) {
-                writer.write(entry.getKey() + ":" + entry.getValue() + "\n");
-            }
-            writer.close();
-        } catch (IOException e) {
-            System.out.println("Error saving high scores: " + e.getMessage());
+        if (!highScoresLoaded) {
+            return; // Saved once the file has been read and merged, so it isn't overwritten with defaults
         }
+        scoreStore.save(highScores); // Written in the background
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        int key = e.getKeyCode();
+        synchronized (this) {
+            handleKeyPressed(e.getKeyCode());
+            publishSnapshot();
+        }
+        requestRender();
+    }
+
+    private void handleKeyPressed(int key) {
+        if (key == KeyEvent.VK_F2) {
+            setAllocationProbes(!tickProbe.isEnabled());
+            return;
+        }
+        if (key == KeyEvent.VK_F3) {
+            setProfilerShown(!profilerShown);
+            return;
+        }
+        if (key == KeyEvent.VK_F4) {
+            setSoftwareRendering(!softwareRendering);
+            System.out.println("Rendering with " + (softwareRendering ? "the software compositor" : "Java2D"));
+            return;
+        }
+        
         
         if (showLevelSelect) {
             handleLevelSelectInput(key);
@@ -1073,24 +1891,24 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             if (key == KeyEvent.VK_P) {
                 isPaused = false;
             } else if (key == KeyEvent.VK_ESCAPE) {
-                showLevelSelect = true;
+                abandonRun();
             } else if (key == KeyEvent.VK_M) {
                 mouseControlEnabled = !mouseControlEnabled;
-                repaint();
+                requestRender();
             }
             return;
         }
 
-        if (gameOver && !showingExplosion) {
+        if (world.isGameOver() && !showingExplosion) {
             if (key == KeyEvent.VK_R) {
                 resetGame();
             } else if (key == KeyEvent.VK_L || key == KeyEvent.VK_ESCAPE) {
                 showLevelSelect = true;
             } else if (key == KeyEvent.VK_M) {
                 mouseControlEnabled = !mouseControlEnabled;
-                repaint();
+                requestRender();
             }
-        } else if (levelCompleted) {
+        } else if (world.isLevelCompleted()) {
             if (key == KeyEvent.VK_N) {
                 advanceToNextLevel();
             } else if (key == KeyEvent.VK_R) {
@@ -1102,23 +1920,28 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             if (key == KeyEvent.VK_P) {
                 isPaused = true;
             } else if (key == KeyEvent.VK_ESCAPE) {
-                showLevelSelect = true;
+                abandonRun();
             } else if (key == KeyEvent.VK_M) {
                 mouseControlEnabled = !mouseControlEnabled;
-                repaint();
+                requestRender();
+            } else if (key == KeyEvent.VK_A) {
+                autopilotEnabled = !autopilotEnabled;
             }
 
-            if (!mouseControlEnabled) {
-                if (key == KeyEvent.VK_UP) {
-                    plane.setVelocityY(Math.max(plane.getVelocityY() - acceleration, -maxVelocity));
-                } else if (key == KeyEvent.VK_DOWN) {
-                    plane.setVelocityY(Math.min(plane.getVelocityY() + acceleration, maxVelocity));
-                } else if (key == KeyEvent.VK_LEFT) {
-                    plane.setVelocityX(Math.max(plane.getVelocityX() - acceleration, -maxVelocity));
-                } else if (key == KeyEvent.VK_RIGHT) {
-                    plane.setVelocityX(Math.min(plane.getVelocityX() + acceleration, maxVelocity));
-                }
-            }
+            // Arrow keys are held state; the world applies them every tick
+            setArrowKey(key, true);
+        }
+    }
+
+    private void setArrowKey(int key, boolean pressed) {
+        if (key == KeyEvent.VK_UP) {
+            input.up = pressed;
+        } else if (key == KeyEvent.VK_DOWN) {
+            input.down = pressed;
+        } else if (key == KeyEvent.VK_LEFT) {
+            input.left = pressed;
+        } else if (key == KeyEvent.VK_RIGHT) {
+            input.right = pressed;
         }
     }
     
@@ -1127,22 +1950,32 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
             // Move selection up
             selectedLevelIndex = Math.max(0, selectedLevelIndex - 1);
             currentDifficulty = Difficulty.values()[selectedLevelIndex];
-            repaint();
+            requestRender();
         } else if (key == KeyEvent.VK_DOWN) {
             // Move selection down
             selectedLevelIndex = Math.min(2, selectedLevelIndex + 1);
             currentDifficulty = Difficulty.values()[selectedLevelIndex];
-            repaint();
+            requestRender();
         } else if (key == KeyEvent.VK_ENTER) {
             // Start game with selected difficulty
-            showLevelSelect = false;
-            resetGame();
+            startLevel(currentDifficulty);
         }
     }
 
+    synchronized void startLevel(Difficulty difficulty) {
+        currentDifficulty = difficulty;
+        selectedLevelIndex = difficulty.ordinal();
+        showLevelSelect = false;
+        resetGame();
+    }
+
+    GameWorld getWorld() {
+        return world;
+    }
+
     @Override
-    public void keyReleased(KeyEvent e) {
-        // Handled in updatePlane
+    public synchronized void keyReleased(KeyEvent e) {
+        setArrowKey(e.getKeyCode(), false);
     }
 
     @Override
@@ -1157,12 +1990,13 @@ public class Game extends JPanel implements ActionListener, KeyListener, MouseMo
         // Set up the game window
         JFrame frame = new JFrame("Plane Dodge Game");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setResizable(false);
+        frame.setResizable(true); // Frames are scaled to fit; the game itself stays 800x600
         Game game = new Game();
         frame.add(game);
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        game.start();
         
         // Request focus after frame is visible
         SwingUtilities.invokeLater(new Runnable() {
@@ -0,0 +1,220 @@
+import java.lang.management.ManagementFactory;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.RuntimeMBeanException;
+
+/**
+ * JMX view of a running {@link Game}: live counters published by the simulation thread
+ * after every tick, and tuning setters. Setters validate on the caller's (JMX) thread, then
+ * hand the change to {@link Game#runOnGameThread(Runnable)} so the world is only ever
+ * modified between ticks, under the game lock.
+ */
+public class GameControl implements GameControlMBean {
+    public static final String OBJECT_NAME = "PlaneGame:type=GameControl";
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final Game game;
+
+    // Written by the simulation thread in onTick()
+    private volatile long totalTicks;
+    private volatile int liveBullets;
+    private volatile int score;
+    private volatile double ticksPerSecond;
+    private long windowStart = -1;
+    private long windowTicks;
+
+    public GameControl(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Registers this bean with the platform MBean server; failures are reported, not thrown.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.out.println("Could not register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the simulation thread after each tick.
+     */
+    void onTick(GameWorld world) {
+        long now = System.nanoTime();
+        if (windowStart < 0) {
+            windowStart = now;
+        }
+        windowTicks++;
+        if (now - windowStart >= RATE_WINDOW_NANOS) {
+            ticksPerSecond = windowTicks * 1e9 / (now - windowStart);
+            windowStart = now;
+            windowTicks = 0;
+        }
+        totalTicks++;
+        liveBullets = world.getBullets().size();
+        score = world.getScore();
+    }
+
+    @Override
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    @Override
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    @Override
+    public int getLiveBullets() {
+        return liveBullets;
+    }
+
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String getDifficulty() {
+        synchronized (game) {
+            return game.getWorld().getDifficulty().name();
+        }
+    }
+
+    @Override
+    public int getSpawnRate() {
+        synchronized (game) {
+            return game.getWorld().getSpawnRate();
+        }
+    }
+
+    @Override
+    public void setSpawnRate(int percentPerTick) {
+        checkSpawnRate(percentPerTick);
+        game.runOnGameThread(() -> game.tune(world -> world.setSpawnRate(world.getDifficulty(), percentPerTick)));
+    }
+
+    @Override
+    public int getBulletSpeed() {
+        synchronized (game) {
+            return game.getWorld().getBulletSpeed();
+        }
+    }
+
+    @Override
+    public void setBulletSpeed(int pixelsPerTick) {
+        checkBulletSpeed(pixelsPerTick);
+        game.runOnGameThread(() -> game.tune(world -> world.setBulletSpeed(world.getDifficulty(), pixelsPerTick)));
+    }
+
+    @Override
+    public long getTickDelayMillis() {
+        return game.getTickNanos() / 1_000_000L;
+    }
+
+    @Override
+    public void setTickDelayMillis(long millis) {
+        if (millis < 1 || millis > 1000) {
+            throw new IllegalArgumentException("Tick delay must be 1-1000 ms: " + millis);
+        }
+        game.runOnGameThread(() -> game.setTickNanos(millis * 1_000_000L));
+    }
+
+    @Override
+    public void setSpawnRateFor(String difficulty, int percentPerTick) {
+        Difficulty target = parseDifficulty(difficulty);
+        checkSpawnRate(percentPerTick);
+        game.runOnGameThread(() -> game.tune(world -> world.setSpawnRate(target, percentPerTick)));
+    }
+
+    @Override
+    public void setBulletSpeedFor(String difficulty, int pixelsPerTick) {
+        Difficulty target = parseDifficulty(difficulty);
+        checkBulletSpeed(pixelsPerTick);
+        game.runOnGameThread(() -> game.tune(world -> world.setBulletSpeed(target, pixelsPerTick)));
+    }
+
+    @Override
+    public void resetTuning() {
+        game.runOnGameThread(() -> {
+            game.tune(GameWorld::resetTuning);
+            game.setTickNanos(GameLoop.DEFAULT_TICK_NANOS);
+        });
+    }
+
+    private static void checkSpawnRate(int percentPerTick) {
+        if (percentPerTick < 0 || percentPerTick > 100) {
+            throw new IllegalArgumentException("Spawn rate must be 0-100 %: " + percentPerTick);
+        }
+    }
+
+    private static void checkBulletSpeed(int pixelsPerTick) {
+        // Bullets are only removed once they leave on the left
+        if (pixelsPerTick >= 0 || pixelsPerTick < -GameWorld.WIDTH) {
+            throw new IllegalArgumentException("Bullet speed must be negative (leftwards): " + pixelsPerTick);
+        }
+    }
+
+    private static Difficulty parseDifficulty(String name) {
+        try {
+            return Difficulty.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unknown difficulty: " + name);
+        }
+    }
+
+    /**
+     * Headless check through the MBean server: tuning set from this (non-game) thread
+     * takes effect only once the game thread runs, and counters follow the ticks.
+     * {@code java -Djava.awt.headless=true -cp out GameControl}; exits with status 1 on failure.
+     */
+    public static void main(String[] args) throws Exception {
+        Game game = new Game();
+        game.getResourcesLoaded().join();
+        GameControl control = new GameControl(game);
+        control.register();
+        game.setControl(control);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+
+        game.startLevel(Difficulty.HARD);
+        server.setAttribute(name, new Attribute("SpawnRate", 40));
+        server.setAttribute(name, new Attribute("BulletSpeed", -20));
+        boolean ok = (Integer) server.getAttribute(name, "SpawnRate") == GameWorld.HARD_SPAWN_RATE;
+        System.out.println("Before the game thread runs: spawn rate " + server.getAttribute(name, "SpawnRate"));
+
+        for (int i = 0; i < 100 && game.isSimulating(); i++) {
+            game.tick();
+        }
+        System.out.printf("After %d ticks: spawn rate %s, bullet speed %s, %s live bullets, score %s%n",
+                server.getAttribute(name, "TotalTicks"), server.getAttribute(name, "SpawnRate"),
+                server.getAttribute(name, "BulletSpeed"), server.getAttribute(name, "LiveBullets"),
+                server.getAttribute(name, "Score"));
+        ok &= (Integer) server.getAttribute(name, "SpawnRate") == 40;
+        ok &= (Integer) server.getAttribute(name, "BulletSpeed") == -20;
+        ok &= (Long) server.getAttribute(name, "TotalTicks") > 0;
+
+        try {
+            server.setAttribute(name, new Attribute("BulletSpeed", 5));
+            ok = false;
+        } catch (RuntimeMBeanException e) {
+            System.out.println("Rejected bullet speed 5: " + e.getCause().getMessage());
+        }
+
+        server.invoke(name, "resetTuning", new Object[0], new String[0]);
+        game.tick();
+        ok &= (Integer) server.getAttribute(name, "SpawnRate") == GameWorld.HARD_SPAWN_RATE;
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Management interface of a running game, registered as {@code PlaneGame:type=GameControl}.
+ * Open it with jconsole or any JMX client. Spawn rate and bullet speed apply to the
+ * difficulty being played; runs played with changed values don't count toward high scores.
+ */
+public interface GameControlMBean {
+    // Live counters
+    double getTicksPerSecond();
+
+    long getTotalTicks();
+
+    int getLiveBullets();
+
+    int getScore();
+
+    String getDifficulty();
+
+    // Tuning; setters are queued and applied on the game thread
+    int getSpawnRate();
+
+    void setSpawnRate(int percentPerTick);
+
+    int getBulletSpeed();
+
+    void setBulletSpeed(int pixelsPerTick);
+
+    long getTickDelayMillis();
+
+    void setTickDelayMillis(long millis);
+
+    void setSpawnRateFor(String difficulty, int percentPerTick);
+
+    void setBulletSpeedFor(String difficulty, int pixelsPerTick);
+
+    void resetTuning();
+}
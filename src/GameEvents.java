@@ -0,0 +1,139 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the game, under the "Plane Game" category. They cost
+ * nothing unless a recording has them enabled, e.g.
+ * {@code java -XX:StartFlightRecording=filename=game.jfr,settings=profile -cp out Game}
+ * or {@code jcmd <pid> JFR.start} on a running game. Hot paths only create an event while
+ * some recording is running (tracked by a recorder listener), so with no recording the
+ * tick stays allocation-free; sites then check isEnabled() before filling in fields.
+ */
+public final class GameEvents {
+    private static volatile boolean recording;
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                updateRecording();
+            }
+
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                updateRecording();
+            }
+        });
+        if (FlightRecorder.isInitialized()) {
+            updateRecording(); // A recording started with the JVM
+        }
+    }
+
+    private GameEvents() {
+    }
+
+    /**
+     * True while any flight recording is running.
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    private static void updateRecording() {
+        boolean running = false;
+        for (Recording each : FlightRecorder.getFlightRecorder().getRecordings()) {
+            running |= each.getState() == RecordingState.RUNNING;
+        }
+        recording = running;
+    }
+
+    @Name("planegame.Tick")
+    @Label("Tick")
+    @Category("Plane Game")
+    @Description("One simulation step")
+    @StackTrace(false)
+    public static class TickEvent extends Event {
+        @Label("Tick")
+        public long tick;
+        @Label("Difficulty")
+        public String difficulty;
+        @Label("Live Bullets")
+        public int bullets;
+        @Label("Score")
+        public int score;
+    }
+
+    @Name("planegame.Collision")
+    @Label("Collision")
+    @Category("Plane Game")
+    @Description("The plane was hit by a bullet, ending the run")
+    @StackTrace(false)
+    public static class CollisionEvent extends Event {
+        @Label("Tick")
+        public long tick;
+        @Label("Difficulty")
+        public String difficulty;
+        @Label("Score")
+        public int score;
+        @Label("Plane X")
+        public int planeX;
+        @Label("Plane Y")
+        public int planeY;
+        @Label("Live Bullets")
+        public int bullets;
+    }
+
+    @Name("planegame.BulletSpawn")
+    @Label("Bullet Spawn")
+    @Category("Plane Game")
+    @StackTrace(false)
+    public static class BulletSpawnEvent extends Event {
+        @Label("Tick")
+        public long tick;
+        @Label("Y")
+        public int y;
+        @Label("Speed")
+        public int speed;
+        @Label("Live Bullets")
+        public int bullets;
+    }
+
+    @Name("planegame.LevelChange")
+    @Label("Level Change")
+    @Category("Plane Game")
+    @Description("A level was completed, or play moved on to the next level")
+    @StackTrace(false)
+    public static class LevelChangeEvent extends Event {
+        @Label("From")
+        public String from;
+        @Label("To")
+        public String to;
+        @Label("Score")
+        public int score;
+        @Label("Reason")
+        public String reason;
+    }
+
+    @Name("planegame.ScoreSave")
+    @Label("Score Save")
+    @Category("Plane Game")
+    @Description("High scores written to disk")
+    public static class ScoreSaveEvent extends Event {
+        @Label("File")
+        public String file;
+        @Label("Entries")
+        public int entries;
+        @Label("Bytes")
+        public int bytes;
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+}
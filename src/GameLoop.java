@@ -0,0 +1,253 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the game on two threads. The simulation thread steps the client at a fixed
+ * timestep; the render thread draws at display rate, interpolating from whatever state
+ * the simulation last published, so a slow frame never delays a tick (and a slow tick
+ * never holds up a frame). While nothing is simulating (menus, pause, game over) both
+ * only wake on request, or at a low idle rate for redraws, instead of spinning.
+ */
+public class GameLoop {
+    /**
+     * The thing being driven by the loop.
+     */
+    public interface Client {
+        // True while ticks should be run; false on static screens
+        boolean isSimulating();
+
+        // Called on the simulation thread
+        void tick();
+
+        // Called on the render thread; frameNanos is the System.nanoTime() the frame is for
+        void render(long frameNanos);
+    }
+
+    public static final long DEFAULT_TICK_NANOS = 20_000_000L; // Same 20 ms step as the old Swing Timer
+    private static final long MAX_FRAME_NANOS = 250_000_000L; // Clamp long stalls to avoid a spiral of death
+    private static final long IDLE_REDRAW_NANOS = 50_000_000L; // Enough for the menu pulse animation
+    private static final long SPIN_NANOS = 1_000_000L; // Final stretch before a frame is spun, not slept
+    private static final long STATS_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final Client client;
+    private final long frameNanos;
+    private volatile long tickNanos = DEFAULT_TICK_NANOS;
+    private volatile boolean running;
+
+    // Wake-up signals for idle screens
+    private final Object wakeLock = new Object();
+    private boolean renderRequested;
+    private boolean simulationWoken;
+
+    // Frame interval statistics (Welford running mean/variance), render thread only
+    private long lastFrameStart;
+    private long frameCount;
+    private double frameMean;
+    private double frameM2;
+    private long frameMax;
+    private long lastStatsReport;
+    private final boolean printStats = Boolean.getBoolean("game.loopStats");
+
+    public GameLoop(Client client, int refreshRate) {
+        this.client = client;
+        this.frameNanos = 1_000_000_000L / (refreshRate > 0 ? refreshRate : 60);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread simulation = new Thread(this::simulate, "game-simulation");
+        simulation.setDaemon(true);
+        simulation.start();
+        Thread render = new Thread(this::render, "game-render");
+        render.setDaemon(true);
+        render.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        requestRender();
+    }
+
+    /**
+     * Wakes both threads so an idle screen is redrawn, and a run that just started
+     * simulates, promptly after input.
+     */
+    public void requestRender() {
+        synchronized (wakeLock) {
+            renderRequested = true;
+            simulationWoken = true;
+            wakeLock.notifyAll();
+        }
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public void setTickNanos(long tickNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+    }
+
+    private void simulate() {
+        long nextTick = System.nanoTime() + tickNanos;
+        while (running) {
+            if (!client.isSimulating()) {
+                waitForWake();
+                nextTick = System.nanoTime() + tickNanos;
+                continue;
+            }
+            long now = System.nanoTime();
+            if (now - nextTick > MAX_FRAME_NANOS) {
+                nextTick = now - MAX_FRAME_NANOS; // Clamp long stalls to avoid a spiral of death
+            }
+            while (now - nextTick >= 0 && client.isSimulating()) {
+                client.tick();
+                nextTick += tickNanos;
+            }
+            // Frames interpolate from the time each tick was published, so a little lateness is fine
+            long remaining = nextTick - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    private void render() {
+        long nextFrame = System.nanoTime();
+        lastStatsReport = nextFrame;
+        while (running) {
+            long now = System.nanoTime();
+            if (client.isSimulating()) {
+                client.render(now);
+                recordFrame(now);
+
+                // Pace rendering to the display rate
+                nextFrame += frameNanos;
+                if (nextFrame < now) {
+                    nextFrame = now + frameNanos;
+                }
+                sleepUntil(nextFrame);
+            } else {
+                lastFrameStart = 0;
+                client.render(now);
+                waitForRenderRequest();
+                nextFrame = System.nanoTime();
+            }
+        }
+    }
+
+    private void waitForWake() {
+        synchronized (wakeLock) {
+            if (!simulationWoken && running) {
+                try {
+                    wakeLock.wait(IDLE_REDRAW_NANOS / 1_000_000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            simulationWoken = false;
+        }
+    }
+
+    private void waitForRenderRequest() {
+        synchronized (wakeLock) {
+            if (!renderRequested && running) {
+                try {
+                    wakeLock.wait(IDLE_REDRAW_NANOS / 1_000_000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            renderRequested = false;
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void recordFrame(long frameStart) {
+        if (lastFrameStart != 0) {
+            long interval = frameStart - lastFrameStart;
+            frameCount++;
+            double delta = interval - frameMean;
+            frameMean += delta / frameCount;
+            frameM2 += delta * (interval - frameMean);
+            frameMax = Math.max(frameMax, interval);
+        }
+        lastFrameStart = frameStart;
+
+        if (printStats && frameStart - lastStatsReport >= STATS_INTERVAL_NANOS) {
+            System.out.printf("Frames: %d, mean %.2f ms, jitter (stddev) %.3f ms, max %.2f ms%n",
+                    frameCount, frameMean / 1e6, getFrameJitterNanos() / 1e6, frameMax / 1e6);
+            lastStatsReport = frameStart;
+        }
+    }
+
+    /**
+     * Standard deviation of the interval between rendered frames while simulating.
+     */
+    public double getFrameJitterNanos() {
+        return frameCount > 1 ? Math.sqrt(frameM2 / (frameCount - 1)) : 0;
+    }
+
+    /**
+     * Headless check that slow frames don't hold up the simulation: drives a client whose
+     * frames take longer than two ticks and reports the tick rate and the longest gap
+     * between consecutive ticks: {@code java -cp out GameLoop [frameMillis] [seconds]}.
+     * Exits with status 1 if ticks fell behind or waited for a frame.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long frameMillis = args.length > 0 ? Long.parseLong(args[0]) : 45;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long[] ticks = new long[1];
+        long[] frames = new long[1];
+        long[] lastTick = new long[1];
+        long[] maxGap = new long[1];
+        GameLoop loop = new GameLoop(new Client() {
+            @Override
+            public boolean isSimulating() {
+                return true;
+            }
+
+            @Override
+            public void tick() {
+                long now = System.nanoTime();
+                if (lastTick[0] != 0) {
+                    maxGap[0] = Math.max(maxGap[0], now - lastTick[0]);
+                }
+                lastTick[0] = now;
+                ticks[0]++;
+            }
+
+            @Override
+            public void render(long frameNanos) {
+                LockSupport.parkNanos(frameMillis * 1_000_000L); // A frame far slower than a tick
+                frames[0]++;
+            }
+        }, 60);
+        loop.start();
+        Thread.sleep(seconds * 1000L);
+        loop.stop();
+
+        long expected = seconds * 1_000_000_000L / DEFAULT_TICK_NANOS;
+        System.out.printf("%d ticks (expected about %d), %d frames of %d ms, longest gap between ticks %.1f ms%n",
+                ticks[0], expected, frames[0], frameMillis, maxGap[0] / 1e6);
+        boolean ok = ticks[0] >= expected * 9 / 10 && maxGap[0] < 2 * DEFAULT_TICK_NANOS;
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,613 @@
+import java.util.Random;
+
+/**
+ * Headless simulation core. Owns the plane, bullets, score and difficulty state
+ * and advances them one tick at a time through {@link #step(TickInput)}.
+ * Has no AWT/Swing dependency so it can run on a server or inside a benchmark.
+ */
+public class GameWorld {
+    // Playfield dimensions
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+
+    // Level progression thresholds
+    public static final int MEDIUM_THRESHOLD = 500;
+    public static final int HARD_THRESHOLD = 1000;
+
+    // Bullet spawn rates (percentage chance per frame)
+    public static final int EASY_SPAWN_RATE = 3;
+    public static final int MEDIUM_SPAWN_RATE = 5;
+    public static final int HARD_SPAWN_RATE = 8;
+
+    // Bullet speeds
+    public static final int EASY_BULLET_SPEED = -6;
+    public static final int MEDIUM_BULLET_SPEED = -8;
+    public static final int HARD_BULLET_SPEED = -12;
+
+    // Score multipliers
+    public static final int EASY_SCORE_MULTIPLIER = 1;
+    public static final int MEDIUM_SCORE_MULTIPLIER = 2;
+    public static final int HARD_SCORE_MULTIPLIER = 3;
+
+    // Broad phase cell size, roughly one bullet sprite
+    private static final int GRID_CELL_SIZE = 64;
+    // Below this many bullets a straight scan beats rebuilding the grid
+    private static final int GRID_MIN_BULLETS = 64;
+
+    /**
+     * Callbacks for things the presentation layer reacts to (sound, explosion, saving scores).
+     */
+    public interface Listener {
+        default void planeHit(GameWorld world) {}
+        default void levelCompleted(GameWorld world) {}
+    }
+
+    // Sprite sizes used for collision boxes
+    private final int planeWidth, planeHeight;
+    private final int bulletWidth, bulletHeight;
+
+    // Game objects
+    private final Plane plane;
+    private final BulletPool bullets = new BulletPool();
+    private final SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, GRID_CELL_SIZE);
+    private boolean gridDirty = true;
+
+    // Optional pixel masks for the narrow phase; null means plain bounding boxes
+    private CollisionMask planeMask;
+    private CollisionMask bulletMask;
+    private int[] candidates = new int[64];
+    private Random random = new Random();
+    private boolean gameOver;
+    private boolean levelCompleted;
+    private int score;
+    private long tick;
+    private long seed;
+    private Listener listener;
+    private FrameProfiler profiler; // Null unless the phases are being timed
+
+    // Plane auto-movement settings
+    private int planeAutoSpeedX = 2;
+    private int maxVelocity = 5;
+    private double acceleration = 0.2;
+    private double deceleration = 0.1;
+
+    // Tunable balance, indexed by Difficulty ordinal; starts at the constants above
+    private final int[] spawnRates = {EASY_SPAWN_RATE, MEDIUM_SPAWN_RATE, HARD_SPAWN_RATE};
+    private final int[] bulletSpeeds = {EASY_BULLET_SPEED, MEDIUM_BULLET_SPEED, HARD_BULLET_SPEED};
+    private int mediumThreshold = MEDIUM_THRESHOLD;
+    private int hardThreshold = HARD_THRESHOLD;
+
+    private Difficulty difficulty = Difficulty.EASY;
+
+    public GameWorld(int planeWidth, int planeHeight, int bulletWidth, int bulletHeight) {
+        this.planeWidth = planeWidth;
+        this.planeHeight = planeHeight;
+        this.bulletWidth = bulletWidth;
+        this.bulletHeight = bulletHeight;
+        this.plane = new Plane(100, HEIGHT / 2, planeWidth, planeHeight);
+        reset(Difficulty.EASY);
+    }
+
+    public void reset(Difficulty difficulty) {
+        reset(difficulty, new Random().nextLong());
+    }
+
+    public void reset(Difficulty difficulty, long seed) {
+        this.difficulty = difficulty;
+        // Reuse the plane so restarting a run allocates nothing
+        plane.setX(100);
+        plane.setY(HEIGHT / 2);
+        plane.setVelocityX(0);
+        plane.setVelocityY(0);
+        plane.setExploding(false);
+        plane.savePosition();
+        bullets.clear();
+        gridDirty = true;
+        this.seed = seed;
+        random.setSeed(seed);
+        gameOver = false;
+        levelCompleted = false;
+        score = 0;
+        tick = 0;
+
+        // Apply difficulty settings
+        applyDifficultySettings();
+    }
+
+    private void applyDifficultySettings() {
+        switch (difficulty) {
+            case EASY:
+                planeAutoSpeedX = 2;
+                maxVelocity = 5;
+                break;
+            case MEDIUM:
+                planeAutoSpeedX = 3;
+                maxVelocity = 6;
+                break;
+            case HARD:
+                planeAutoSpeedX = 4;
+                maxVelocity = 7;
+                break;
+        }
+    }
+
+    /**
+     * Advances the simulation by one tick. Does nothing once the run is over.
+     */
+    public void step(TickInput input) {
+        if (gameOver || levelCompleted) {
+            return;
+        }
+
+        GameEvents.TickEvent tickEvent = null;
+        if (GameEvents.isRecording()) {
+            tickEvent = new GameEvents.TickEvent();
+            tickEvent.begin();
+        }
+        FrameProfiler profiler = this.profiler;
+        long start = profiler != null ? profiler.begin() : 0;
+        movePlane(plane, input);
+        if (profiler != null) {
+            profiler.lap(FrameProfiler.UPDATE_PLANE);
+        }
+        updateBullets();
+        if (profiler != null) {
+            profiler.lap(FrameProfiler.UPDATE_BULLETS);
+        }
+        checkCollisions();
+        if (profiler != null) {
+            profiler.lap(FrameProfiler.CHECK_COLLISIONS);
+        }
+        spawnBullets();
+        if (profiler != null) {
+            profiler.lap(FrameProfiler.SPAWN_BULLETS);
+        }
+
+        // Update score based on difficulty
+        score += getScoreMultiplier();
+        tick++;
+
+        // Check for level progression
+        checkLevelProgression();
+        if (profiler != null) {
+            profiler.since(FrameProfiler.TICK, start);
+        }
+        if (tickEvent != null && tickEvent.shouldCommit()) {
+            tickEvent.tick = tick;
+            tickEvent.difficulty = difficulty.name();
+            tickEvent.bullets = bullets.size();
+            tickEvent.score = score;
+            tickEvent.commit();
+        }
+    }
+
+    /**
+     * Moves a plane one tick by this world's handling (input, drift, screen bounds). step()
+     * moves the world's own plane with it; worlds that fly several planes through this one's
+     * bullet field move theirs with it too.
+     */
+    void movePlane(Plane plane, TickInput input) {
+        applyInput(plane, input);
+        plane.savePosition();
+        updatePlane(plane);
+    }
+
+    private void applyInput(Plane plane, TickInput input) {
+        if (input == null) {
+            return;
+        }
+        if (input.mouseControl) {
+            if (input.mouseMoved) {
+                // Calculate the desired velocity based on mouse position
+                int targetY = input.mouseY - plane.getHeight() / 2;
+                int targetX = input.mouseX - plane.getWidth() / 2;
+
+                // Smoothly adjust the plane's position towards the target
+                double diffY = targetY - plane.getY();
+                double diffX = targetX - plane.getX();
+
+                // Apply acceleration towards the target position, limited to prevent excessive speed
+                plane.setVelocityY(clamp(diffY * acceleration, maxVelocity));
+                plane.setVelocityX(clamp(diffX * acceleration, maxVelocity));
+            }
+        } else {
+            if (input.up) {
+                plane.setVelocityY(Math.max(plane.getVelocityY() - acceleration, -maxVelocity));
+            }
+            if (input.down) {
+                plane.setVelocityY(Math.min(plane.getVelocityY() + acceleration, maxVelocity));
+            }
+            if (input.left) {
+                plane.setVelocityX(Math.max(plane.getVelocityX() - acceleration, -maxVelocity));
+            }
+            if (input.right) {
+                plane.setVelocityX(Math.min(plane.getVelocityX() + acceleration, maxVelocity));
+            }
+        }
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(Math.min(value, limit), -limit);
+    }
+
+    public int getScoreMultiplier() {
+        switch (difficulty) {
+            case EASY: return EASY_SCORE_MULTIPLIER;
+            case MEDIUM: return MEDIUM_SCORE_MULTIPLIER;
+            case HARD: return HARD_SCORE_MULTIPLIER;
+            default: return 1;
+        }
+    }
+
+    private void checkLevelProgression() {
+        // Check if player has reached score threshold for next level
+        if ((difficulty == Difficulty.EASY && score >= mediumThreshold)
+                || (difficulty == Difficulty.MEDIUM && score >= hardThreshold)) {
+            levelCompleted = true;
+            GameEvents.LevelChangeEvent event = GameEvents.isRecording() ? new GameEvents.LevelChangeEvent() : null;
+            if (event != null && event.isEnabled()) {
+                event.from = difficulty.name();
+                event.to = Difficulty.values()[difficulty.ordinal() + 1].name();
+                event.score = score;
+                event.reason = "completed";
+                event.commit();
+            }
+            if (listener != null) {
+                listener.levelCompleted(this);
+            }
+        }
+    }
+
+    private void updatePlane(Plane plane) {
+        // Update plane position based on its velocity
+        plane.setX((int) (plane.getX() + plane.getVelocityX()));
+        plane.setY((int) (plane.getY() + plane.getVelocityY()));
+
+        // Decelerate when no key is pressed
+        if (plane.getVelocityX() > 0) {
+            plane.setVelocityX(Math.max(0, plane.getVelocityX() - deceleration));
+        } else if (plane.getVelocityX() < 0) {
+            plane.setVelocityX(Math.min(0, plane.getVelocityX() + deceleration));
+        }
+
+        if (plane.getVelocityY() > 0) {
+            plane.setVelocityY(Math.max(0, plane.getVelocityY() - deceleration));
+        } else if (plane.getVelocityY() < 0) {
+            plane.setVelocityY(Math.min(0, plane.getVelocityY() + deceleration));
+        }
+
+        // Keep plane within screen bounds
+        if (plane.getY() < 0) {
+            plane.setY(0);
+            plane.setVelocityY(0);
+        } else if (plane.getY() > HEIGHT - plane.getHeight()) {
+            plane.setY(HEIGHT - plane.getHeight());
+            plane.setVelocityY(0);
+        }
+        if (plane.getX() < 0) {
+            plane.setX(0);
+            plane.setVelocityX(0);
+        } else if (plane.getX() > WIDTH - plane.getWidth()) {
+            plane.setX(WIDTH - plane.getWidth());
+            plane.setVelocityX(0);
+        }
+
+        // Apply auto-movement last for consistent behavior
+        plane.setX(plane.getX() + planeAutoSpeedX);
+
+        // Check if the plane reached right edge, if so, reset the position
+        if (plane.getX() > WIDTH) {
+            plane.setX(0);
+            plane.setY(HEIGHT / 2);
+        }
+    }
+
+    void updateBullets() {
+        // Update all bullets and remove those that go off the left side of the screen
+        bullets.update();
+        gridDirty = true;
+    }
+
+    void spawnBullets() {
+        // Ensure we have a valid range for random position
+        int maxY = HEIGHT - bulletHeight;
+        if (maxY <= 0) maxY = HEIGHT - 1;
+
+        // Randomly spawn new bullets from the right side of the screen
+        if (random.nextInt(100) < getSpawnRate()) {
+            int y = random.nextInt(maxY);
+            // Set bullet velocity based on difficulty
+            bullets.spawn(WIDTH, y, bulletWidth, bulletHeight, getBulletSpeed());
+            gridDirty = true;
+            GameEvents.BulletSpawnEvent event = GameEvents.isRecording() ? new GameEvents.BulletSpawnEvent() : null;
+            if (event != null && event.isEnabled()) {
+                event.tick = tick;
+                event.y = y;
+                event.speed = getBulletSpeed();
+                event.bullets = bullets.size();
+                event.commit();
+            }
+        }
+    }
+
+    public int getSpawnRate() {
+        return spawnRates[difficulty.ordinal()];
+    }
+
+    public int getBulletSpeed() {
+        return bulletSpeeds[difficulty.ordinal()];
+    }
+
+    public int getSpawnRate(Difficulty difficulty) {
+        return spawnRates[difficulty.ordinal()];
+    }
+
+    /**
+     * Overrides the percentage chance per tick of a new bullet at the given difficulty.
+     * Takes effect from the next spawn; replays assume the default rates.
+     */
+    public void setSpawnRate(Difficulty difficulty, int rate) {
+        spawnRates[difficulty.ordinal()] = rate;
+    }
+
+    public int getBulletSpeed(Difficulty difficulty) {
+        return bulletSpeeds[difficulty.ordinal()];
+    }
+
+    /**
+     * Overrides the horizontal speed (negative, in pixels per tick) new bullets get
+     * at the given difficulty. Bullets already flying keep their speed.
+     */
+    public void setBulletSpeed(Difficulty difficulty, int speed) {
+        bulletSpeeds[difficulty.ordinal()] = speed;
+    }
+
+    /**
+     * Puts spawn rates, bullet speeds and level thresholds back to the constants.
+     */
+    public void resetTuning() {
+        spawnRates[Difficulty.EASY.ordinal()] = EASY_SPAWN_RATE;
+        spawnRates[Difficulty.MEDIUM.ordinal()] = MEDIUM_SPAWN_RATE;
+        spawnRates[Difficulty.HARD.ordinal()] = HARD_SPAWN_RATE;
+        bulletSpeeds[Difficulty.EASY.ordinal()] = EASY_BULLET_SPEED;
+        bulletSpeeds[Difficulty.MEDIUM.ordinal()] = MEDIUM_BULLET_SPEED;
+        bulletSpeeds[Difficulty.HARD.ordinal()] = HARD_BULLET_SPEED;
+        mediumThreshold = MEDIUM_THRESHOLD;
+        hardThreshold = HARD_THRESHOLD;
+    }
+
+    /**
+     * True when the balance is the constants' (what replays and high scores assume).
+     */
+    public boolean hasDefaultTuning() {
+        return spawnRates[0] == EASY_SPAWN_RATE && spawnRates[1] == MEDIUM_SPAWN_RATE
+                && spawnRates[2] == HARD_SPAWN_RATE && bulletSpeeds[0] == EASY_BULLET_SPEED
+                && bulletSpeeds[1] == MEDIUM_BULLET_SPEED && bulletSpeeds[2] == HARD_BULLET_SPEED
+                && mediumThreshold == MEDIUM_THRESHOLD && hardThreshold == HARD_THRESHOLD;
+    }
+
+    public int getMediumThreshold() {
+        return mediumThreshold;
+    }
+
+    public int getHardThreshold() {
+        return hardThreshold;
+    }
+
+    /**
+     * Overrides the scores that complete EASY and MEDIUM.
+     */
+    public void setLevelThresholds(int mediumThreshold, int hardThreshold) {
+        this.mediumThreshold = mediumThreshold;
+        this.hardThreshold = hardThreshold;
+    }
+
+    void checkCollisions() {
+        if (isHit(plane)) {
+            gameOver = true;
+            plane.setExploding(true);
+            GameEvents.CollisionEvent event = GameEvents.isRecording() ? new GameEvents.CollisionEvent() : null;
+            if (event != null && event.isEnabled()) {
+                event.tick = tick;
+                event.difficulty = difficulty.name();
+                event.score = score;
+                event.planeX = plane.getX();
+                event.planeY = plane.getY();
+                event.bullets = bullets.size();
+                event.commit();
+            }
+            if (listener != null) {
+                listener.planeHit(this);
+            }
+        }
+    }
+
+    /**
+     * True if a bullet overlaps the plane (pixel-exact when masks are set).
+     */
+    boolean isHit(Plane plane) {
+        int px = plane.getX(), py = plane.getY();
+        int pw = plane.getWidth(), ph = plane.getHeight();
+        if (planeMask == null || bulletMask == null) {
+            return firstBulletOverlapping(px, py, pw, ph) >= 0;
+        }
+
+        // Bounding boxes first, then exact pixels for each box that overlaps
+        if (bullets.size() >= GRID_MIN_BULLETS) {
+            if (candidates.length < bullets.size()) {
+                candidates = new int[Math.max(bullets.size(), candidates.length * 2)];
+            }
+            int found = getGrid().queryOverlaps(px, py, pw, ph, candidates);
+            for (int k = 0; k < found; k++) {
+                int i = candidates[k];
+                if (planeMask.overlaps(px, py, bulletMask, bullets.getX(i), bullets.getY(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            int bx = bullets.getX(i), by = bullets.getY(i);
+            if (intersects(px, py, pw, ph, bx, by, bullets.getWidth(i), bullets.getHeight(i))
+                    && planeMask.overlaps(px, py, bulletMask, bx, by)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of a bullet overlapping the given box, or -1.
+     * Uses the grid once there are enough bullets for it to pay off.
+     */
+    public int firstBulletOverlapping(int x, int y, int width, int height) {
+        if (bullets.size() >= GRID_MIN_BULLETS) {
+            return getGrid().firstOverlap(x, y, width, height);
+        }
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            if (intersects(x, y, width, height, bullets.getX(i), bullets.getY(i), bullets.getWidth(i), bullets.getHeight(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same overlap rule as {@code java.awt.Rectangle#intersects}, without the allocation.
+     */
+    static boolean intersects(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        return aw > 0 && ah > 0 && bw > 0 && bh > 0
+                && ax < bx + bw && bx < ax + aw
+                && ay < by + bh && by < ay + ah;
+    }
+
+    // Getters
+    public Plane getPlane() {
+        return plane;
+    }
+
+    public BulletPool getBullets() {
+        return bullets;
+    }
+
+    /**
+     * Broad phase index of the current bullets, rebuilt on demand after they change.
+     */
+    public SpatialGrid getGrid() {
+        if (gridDirty) {
+            grid.rebuild(bullets);
+            gridDirty = false;
+        }
+        return grid;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean isLevelCompleted() {
+        return levelCompleted;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    // Plane handling for the current difficulty, for bots that predict its movement
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public double getDeceleration() {
+        return deceleration;
+    }
+
+    public int getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    public int getPlaneAutoSpeedX() {
+        return planeAutoSpeedX;
+    }
+
+    /**
+     * The seed this run was started with; resetting with it replays the same bullets.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Enables pixel-exact collisions. The masks must match the plane and bullet sizes.
+     */
+    public void setCollisionMasks(CollisionMask planeMask, CollisionMask bulletMask) {
+        if (planeMask != null && (planeMask.getWidth() != planeWidth || planeMask.getHeight() != planeHeight)) {
+            throw new IllegalArgumentException("Plane mask is " + planeMask.getWidth() + "x" + planeMask.getHeight()
+                    + ", plane is " + planeWidth + "x" + planeHeight);
+        }
+        if (bulletMask != null && (bulletMask.getWidth() != bulletWidth || bulletMask.getHeight() != bulletHeight)) {
+            throw new IllegalArgumentException("Bullet mask is " + bulletMask.getWidth() + "x" + bulletMask.getHeight()
+                    + ", bullet is " + bulletWidth + "x" + bulletHeight);
+        }
+        this.planeMask = planeMask;
+        this.bulletMask = bulletMask;
+    }
+
+    // Null when collisions use plain bounding boxes
+    CollisionMask getPlaneMask() {
+        return planeMask;
+    }
+
+    CollisionMask getBulletMask() {
+        return bulletMask;
+    }
+
+    /**
+     * Times the phases of every step into the profiler; null stops timing.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Runs the simulation headless and reports throughput:
+     * {@code java -cp out GameWorld [ticks]}
+     */
+    public static void main(String[] args) {
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        GameWorld world = new GameWorld(200, 100, 60, 30);
+        TickInput input = new TickInput();
+        input.mouseControl = false;
+        Difficulty[] difficulties = Difficulty.values();
+        long runs = 0;
+
+        long start = System.nanoTime();
+        world.reset(difficulties[0], 1);
+        for (long i = 0; i < ticks; i++) {
+            if (world.isGameOver() || world.isLevelCompleted()) {
+                runs++;
+                world.reset(difficulties[(int) (runs % difficulties.length)], runs + 1);
+            }
+            // Simple scripted weave so the plane actually moves
+            input.up = (i / 40) % 2 == 0;
+            input.down = !input.up;
+            world.step(input);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%d ticks, %d runs in %.2f s (%.0f ticks/s)%n",
+                ticks, runs, elapsed / 1e9, ticks / (elapsed / 1e9));
+    }
+}
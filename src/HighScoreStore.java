@@ -0,0 +1,200 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * High scores on disk, one "DIFFICULTY:score" line each. save() only hands the
+ * scores to a background writer, which coalesces bursts into one write of the latest
+ * scores. Each write goes to a temp file that is synced and then renamed over the old
+ * one, so a crash leaves either the previous or the new file, never a half-written one.
+ */
+public class HighScoreStore {
+    private static final long COALESCE_MILLIS = 200;
+
+    private final Path file;
+    private final Path tempFile;
+    private final AtomicReference<Map<Difficulty, Integer>> pending = new AtomicReference<>();
+    private final ExecutorService writer;
+
+    public HighScoreStore(String fileName) {
+        this.file = new File(fileName).toPath();
+        this.tempFile = new File(fileName + ".tmp").toPath();
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "score-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "score-writer-flush"));
+    }
+
+    /**
+     * Reads the saved scores. Lines that are incomplete (a file cut off mid-write by an
+     * older version or a full disk) or unreadable are skipped, keeping everything else.
+     */
+    public Map<Difficulty, Integer> load() {
+        Map<Difficulty, Integer> scores = new EnumMap<>(Difficulty.class);
+        try {
+            Files.deleteIfExists(tempFile); // Left over from a write that never got renamed
+            if (!Files.exists(file)) {
+                return scores;
+            }
+            String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            int start = 0;
+            int skipped = 0;
+            int end;
+            while ((end = text.indexOf('\n', start)) >= 0) {
+                if (!parseLine(text.substring(start, end).trim(), scores)) {
+                    skipped++;
+                }
+                start = end + 1;
+            }
+            if (start < text.length()) {
+                skipped++; // No newline: the file was cut off inside this line
+            }
+            if (skipped > 0) {
+                System.out.println("Recovered " + scores.size() + " high scores, skipped " + skipped
+                        + " damaged line(s) in " + file);
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading high scores: " + e.getMessage());
+        }
+        return scores;
+    }
+
+    private static boolean parseLine(String line, Map<Difficulty, Integer> scores) {
+        if (line.isEmpty()) {
+            return true;
+        }
+        String[] parts = line.split(":");
+        if (parts.length != 2) {
+            return false;
+        }
+        try {
+            Difficulty diff = Difficulty.valueOf(parts[0]);
+            scores.merge(diff, Integer.parseInt(parts[1]), Math::max);
+            return true;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid line in scores file: " + line);
+            return false;
+        }
+    }
+
+    /**
+     * Queues the scores for writing and returns at once. Calls made while a write is
+     * waiting replace its scores, so a burst of updates costs one write.
+     */
+    public void save(Map<Difficulty, Integer> scores) {
+        Map<Difficulty, Integer> snapshot = new EnumMap<>(scores);
+        if (pending.getAndSet(snapshot) == null) {
+            writer.execute(() -> {
+                try {
+                    Thread.sleep(COALESCE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writePending();
+            });
+        }
+    }
+
+    /**
+     * Writes anything still queued and waits for it; used on shutdown.
+     */
+    public void flush() {
+        writePending();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void writePending() {
+        Map<Difficulty, Integer> scores = pending.getAndSet(null);
+        if (scores == null) {
+            return;
+        }
+        GameEvents.ScoreSaveEvent event = new GameEvents.ScoreSaveEvent();
+        event.begin();
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Difficulty, Integer> entry : scores.entrySet()) {
+            text.append(entry.getKey()).append(':').append(entry.getValue()).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            event.succeeded = true;
+        } catch (IOException e) {
+            System.out.println("Error saving high scores: " + e.getMessage());
+        }
+        if (event.shouldCommit()) {
+            event.file = file.toString();
+            event.entries = scores.size();
+            event.bytes = bytes.length;
+            event.commit();
+        }
+    }
+
+    /**
+     * Crash-safety check in a scratch directory: a truncated file recovers its complete
+     * lines, and a burst of saves returns immediately and lands as the latest scores.
+     * Exits with status 1 on failure. {@code java -cp out HighScoreStore}
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("scores");
+        String name = dir.resolve("game_scores.txt").toString();
+        boolean ok = true;
+
+        Files.write(new File(name).toPath(), "EASY:120\nMEDIUM:450\nHARD:9".getBytes(StandardCharsets.UTF_8));
+        Map<Difficulty, Integer> recovered = new HighScoreStore(name).load();
+        System.out.println("Truncated file recovered as " + recovered);
+        ok &= recovered.size() == 2 && recovered.get(Difficulty.MEDIUM) == 450;
+
+        HighScoreStore store = new HighScoreStore(name);
+        Map<Difficulty, Integer> scores = new EnumMap<>(Difficulty.class);
+        long start = System.nanoTime();
+        for (int i = 1; i <= 1000; i++) {
+            scores.put(Difficulty.values()[i % 3], i);
+            store.save(scores);
+        }
+        System.out.printf("1000 saves queued in %.2f ms%n", (System.nanoTime() - start) / 1e6);
+        store.flush();
+        Map<Difficulty, Integer> saved = new HighScoreStore(name).load();
+        System.out.println("Saved " + saved);
+        ok &= saved.equals(scores) && !Files.exists(new File(name + ".tmp").toPath());
+
+        Files.deleteIfExists(new File(name).toPath());
+        Files.deleteIfExists(dir);
+        if (!ok) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
@@ -0,0 +1,272 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One player's connection to a {@link MultiplayerServer}: receives the welcome and then a
+ * snapshot per server tick, decoding each delta against the previous snapshot, and sends
+ * the player's input back. Blocking, for a thread of its own per player.
+ */
+public class MultiplayerClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(MultiplayerServer.BUFFER_SIZE);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64);
+    private int frameEnd; // Where the frame being read ends in the input buffer
+    private final int player;
+    private final Difficulty difficulty;
+    private final long tickNanos;
+
+    // The latest snapshot and the one before it, which the next delta is decoded against
+    private NetSnapshot current = new NetSnapshot();
+    private NetSnapshot next = new NetSnapshot();
+    private boolean hasSnapshot;
+    private long bytesReceived;
+
+    /**
+     * Connects and waits for the welcome; throws if the match is full.
+     */
+    public MultiplayerClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        in.flip();
+        int type = readFrame();
+        if (type != MultiplayerServer.WELCOME) {
+            channel.close();
+            throw new IOException(type == MultiplayerServer.REJECTED ? "Match is full" : "Unexpected message " + type);
+        }
+        player = in.get() & 0xFF;
+        difficulty = Difficulty.values()[in.get()];
+        tickNanos = NetSnapshot.getVarint(in);
+    }
+
+    // Reads until a whole frame is buffered; returns its type with the body next to read
+    private int readFrame() throws IOException {
+        in.position(frameEnd); // Skip whatever is left of the previous frame's body
+        while (in.remaining() < 2 || in.remaining() < 2 + (in.getShort(in.position()) & 0xFFFF)) {
+            in.compact();
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+            bytesReceived += read;
+        }
+        int length = in.getShort() & 0xFFFF;
+        frameEnd = in.position() + length;
+        return in.get() & 0xFF;
+    }
+
+    /**
+     * Blocks for the next snapshot and returns it; it stays valid until the next call.
+     */
+    public NetSnapshot receive() throws IOException {
+        int type;
+        do {
+            type = readFrame();
+        } while (type != MultiplayerServer.SNAPSHOT);
+        next.decode(hasSnapshot ? current : null, in);
+        NetSnapshot swap = current;
+        current = next;
+        next = swap;
+        hasSnapshot = true;
+        return current;
+    }
+
+    /**
+     * Sends the input the player's plane should fly with from the next server tick.
+     */
+    public void send(TickInput input) throws IOException {
+        out.clear();
+        out.position(2);
+        out.put((byte) MultiplayerServer.INPUT);
+        NetSnapshot.putVarint(out, hasSnapshot ? current.tick : 0);
+        int flags = (input.up ? Replay.UP : 0) | (input.down ? Replay.DOWN : 0) | (input.left ? Replay.LEFT : 0)
+                | (input.right ? Replay.RIGHT : 0) | (input.mouseControl ? Replay.MOUSE_CONTROL : 0)
+                | (input.mouseMoved ? Replay.MOUSE_MOVED : 0);
+        out.put((byte) flags);
+        if (input.mouseMoved) {
+            NetSnapshot.putVarint(out, NetSnapshot.zigzag(input.mouseX));
+            NetSnapshot.putVarint(out, NetSnapshot.zigzag(input.mouseY));
+        }
+        out.putShort(0, (short) (out.position() - 2));
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    public int getPlayer() {
+        return player;
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A bot: dodges vertically away from the nearest bullet coming at its plane, and
+     * otherwise drifts back towards the middle.
+     */
+    static void steer(NetSnapshot snapshot, int player, TickInput input) {
+        input.clear();
+        input.mouseControl = false;
+        int p = snapshot.indexOfPlayer(player);
+        if (p < 0 || (snapshot.playerFlags[p] & NetSnapshot.EXPLODING) != 0) {
+            return;
+        }
+        int x = snapshot.playerX[p], y = snapshot.playerY[p];
+        int centre = y + Game.PLANE_HEIGHT / 2;
+        int nearest = Integer.MAX_VALUE, threatY = 0;
+        for (int i = 0; i < snapshot.bulletCount; i++) {
+            int bx = snapshot.bulletX[i], by = snapshot.bulletY[i];
+            boolean ahead = bx + Game.BULLET_WIDTH > x && bx < x + Game.PLANE_WIDTH + 200;
+            boolean inLane = by + Game.BULLET_HEIGHT > y - 20 && by < y + Game.PLANE_HEIGHT + 20;
+            if (ahead && inLane && bx - x < nearest) {
+                nearest = bx - x;
+                threatY = by + Game.BULLET_HEIGHT / 2;
+            }
+        }
+        if (nearest != Integer.MAX_VALUE) {
+            boolean roomAbove = y > Game.PLANE_HEIGHT / 2;
+            boolean roomBelow = y + Game.PLANE_HEIGHT < GameWorld.HEIGHT - Game.PLANE_HEIGHT / 2;
+            boolean up = threatY > centre ? roomAbove : !roomBelow;
+            input.up = up;
+            input.down = !up;
+        } else if (centre < GameWorld.HEIGHT / 2 - 40) {
+            input.down = true;
+        } else if (centre > GameWorld.HEIGHT / 2 + 40) {
+            input.up = true;
+        }
+    }
+
+    /**
+     * Automated localhost check: starts a server on a free port and connects bots that
+     * steer by the snapshots they decode (one more joins halfway, starting from a full
+     * snapshot). Afterwards every snapshot each bot decoded must match the server's state
+     * for that tick, every bot's input must have reached the server, and the outgoing
+     * buffers must have come from a small pool. Prints delta against full snapshot sizes:
+     * {@code java -cp out MultiplayerClient [bots] [ticks] [tickMillis]}. Exits with status 1 on a failure.
+     */
+    public static void main(String[] args) throws Exception {
+        int bots = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long tickNanos = (args.length > 2 ? Long.parseLong(args[2]) : 5) * 1_000_000L;
+        if (bots < 2 || bots > MultiplayerWorld.MAX_PLAYERS || ticks < 10) {
+            System.out.println("Need 2-" + MultiplayerWorld.MAX_PLAYERS + " bots and at least 10 ticks");
+            System.exit(1);
+        }
+
+        MultiplayerServer server = new MultiplayerServer(0, MultiplayerServer.createWorld(Difficulty.HARD, 25), tickNanos);
+        server.measureFullSize();
+        Thread serverThread = new Thread(server, "multiplayer-server");
+        serverThread.start();
+
+        long[][] seenTicks = new long[bots][];
+        long[][] seenChecksums = new long[bots][];
+        int[] seenCount = new int[bots];
+        int[] slots = new int[bots];
+        int[] playersSeen = new int[bots];
+        AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[bots];
+        for (int b = 0; b < bots; b++) {
+            int bot = b;
+            threads[b] = new Thread(() -> {
+                TickInput input = new TickInput();
+                long[] tickLog = new long[ticks + 64];
+                long[] checksumLog = new long[tickLog.length];
+                int count = 0;
+                try (MultiplayerClient client = new MultiplayerClient("127.0.0.1", server.getPort())) {
+                    slots[bot] = client.getPlayer();
+                    NetSnapshot snapshot;
+                    do {
+                        snapshot = client.receive();
+                        if (count == tickLog.length) {
+                            tickLog = Arrays.copyOf(tickLog, count * 2);
+                            checksumLog = Arrays.copyOf(checksumLog, count * 2);
+                        }
+                        tickLog[count] = snapshot.tick;
+                        checksumLog[count] = snapshot.checksum();
+                        count++;
+                        steer(snapshot, client.getPlayer(), input);
+                        client.send(input);
+                    } while (snapshot.tick < ticks);
+                    playersSeen[bot] = snapshot.playerCount;
+                } catch (IOException e) {
+                    System.out.println("Bot " + bot + ": " + e.getMessage());
+                    failures.incrementAndGet();
+                }
+                seenTicks[bot] = tickLog;
+                seenChecksums[bot] = checksumLog;
+                seenCount[bot] = count;
+            }, "bot-" + b);
+        }
+        for (int b = 0; b < bots - 1; b++) {
+            threads[b].start();
+        }
+        Thread.sleep(ticks / 2 * tickNanos / 1_000_000L);
+        threads[bots - 1].start(); // Late joiner
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        server.stop();
+        serverThread.join();
+
+        boolean ok = failures.get() == 0;
+        MultiplayerWorld world = server.getWorld();
+        System.out.printf("%4s %5s %10s %10s %10s %8s %6s%n", "bot", "slot", "snapshots", "mismatches", "inputs", "score", "hits");
+        for (int b = 0; b < bots; b++) {
+            int mismatches = 0;
+            for (int i = 0; i < seenCount[b]; i++) {
+                long tick = seenTicks[b][i];
+                if (server.getTick() - tick < (1 << 14) && server.getChecksum(tick) != seenChecksums[b][i]) {
+                    mismatches++;
+                }
+            }
+            long inputs = server.getInputsReceived(slots[b]);
+            System.out.printf("%4d %5d %10d %10d %10d %8d %6d%n", b, slots[b], seenCount[b], mismatches, inputs,
+                    world.getScore(slots[b]), world.getHits(slots[b]));
+            if (mismatches > 0) {
+                System.out.println("FAIL: bot " + b + " decoded snapshots that differ from the server's state");
+                ok = false;
+            }
+            if (inputs < seenCount[b] * 9L / 10) {
+                System.out.println("FAIL: only " + inputs + " of bot " + b + "'s inputs reached the server");
+                ok = false;
+            }
+            if (playersSeen[b] != bots) {
+                System.out.println("FAIL: bot " + b + " saw " + playersSeen[b] + " players at the end, not " + bots);
+                ok = false;
+            }
+        }
+
+        long sent = Math.max(1, server.getSnapshotsSent());
+        System.out.printf("%d snapshots: %.1f bytes each as deltas, %.1f in full (%.1fx smaller); %d skipped; %d pooled buffers%n",
+                server.getSnapshotsSent(), (double) server.getDeltaBytes() / sent, (double) server.getFullBytes() / sent,
+                (double) server.getFullBytes() / Math.max(1, server.getDeltaBytes()), server.getSkipped(),
+                server.getBuffersAllocated());
+        if (server.getBuffersAllocated() > bots * 17) {
+            System.out.println("FAIL: " + server.getBuffersAllocated() + " buffers allocated; they are not being reused");
+            ok = false;
+        }
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Authoritative server for a localhost multiplayer match. One thread runs a non-blocking
+ * java.nio selector loop over TCP that accepts players, reads their input and, between
+ * selects, steps a {@link MultiplayerWorld} at a fixed tick rate. After every tick each
+ * player is sent a {@link NetSnapshot} delta-compressed against the last snapshot sent to
+ * it (TCP delivers in order, so the client always holds that one).
+ *
+ * Outgoing snapshots are written into direct ByteBuffers from a pool and go back to it
+ * once the socket has taken them, so steady play allocates no buffers. A player whose
+ * socket falls MAX_QUEUED snapshots behind is skipped until it drains; its next delta is
+ * simply from an older baseline.
+ *
+ * Messages are framed as a 2-byte length and a type byte: WELCOME (player slot,
+ * difficulty, tick length in nanoseconds) and SNAPSHOT to clients, INPUT (the client's
+ * latest snapshot tick, then the arrow and mouse flags of {@link Replay}, then mouse x
+ * and y if it moved) from them. A full match gets REJECTED and disconnected, and so does
+ * a client whose message is longer than MAX_INPUT_FRAME or doesn't parse.
+ */
+public class MultiplayerServer implements Runnable {
+    public static final int DEFAULT_PORT = 47800;
+
+    // Message types
+    static final int WELCOME = 1;
+    static final int SNAPSHOT = 2;
+    static final int REJECTED = 3;
+    static final int INPUT = 16;
+
+    static final int MAX_FRAME = 0xFFFF; // Largest message after the length
+    static final int BUFFER_SIZE = MAX_FRAME + 2;
+    static final int MAX_INPUT_FRAME = 32; // Largest message accepted from a client; INPUT needs far less
+    private static final int MAX_QUEUED = 16; // Snapshots waiting on one socket before it is skipped
+    private static final int CHECKSUM_HISTORY = 1 << 14; // Ticks of state checksums kept
+
+    /**
+     * Direct buffers for outgoing messages, reused once written. Only used by the server thread.
+     */
+    static class BufferPool {
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private int allocated;
+
+        ByteBuffer acquire() {
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                allocated++;
+            }
+            buffer.clear();
+            return buffer;
+        }
+
+        void release(ByteBuffer buffer) {
+            free.push(buffer);
+        }
+
+        int getAllocated() {
+            return allocated;
+        }
+    }
+
+    // One connected player
+    private static class Client {
+        final SocketChannel channel;
+        final int player;
+        final ByteBuffer in = ByteBuffer.allocateDirect(4 * (MAX_INPUT_FRAME + 2));
+        final ArrayDeque<ByteBuffer> queued = new ArrayDeque<>();
+        final NetSnapshot baseline = new NetSnapshot();
+        boolean hasBaseline;
+
+        Client(SocketChannel channel, int player) {
+            this.channel = channel;
+            this.player = player;
+        }
+    }
+
+    private final MultiplayerWorld world;
+    private final long tickNanos;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final BufferPool pool = new BufferPool();
+    private final Client[] clients = new Client[MultiplayerWorld.MAX_PLAYERS];
+    private final NetSnapshot state = new NetSnapshot();
+    private final ByteBuffer delta = ByteBuffer.allocateDirect(BUFFER_SIZE); // From the previous tick, shared
+    private final long[] checksums = new long[CHECKSUM_HISTORY];
+    private ByteBuffer fullScratch; // Only while measuring full snapshot sizes
+    private volatile boolean running = true;
+
+    // Statistics
+    private long snapshotsSent;
+    private long deltaBytes;
+    private long fullBytes;
+    private long skipped;
+    private final long[] inputsReceived = new long[MultiplayerWorld.MAX_PLAYERS]; // Per slot, ever
+
+    /**
+     * Listens on localhost; port 0 picks a free one (see getPort()).
+     */
+    public MultiplayerServer(int port, MultiplayerWorld world, long tickNanos) throws IOException {
+        this.world = world;
+        this.tickNanos = tickNanos;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Runs the match until stop() is called.
+     */
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000L));
+                } else {
+                    selector.selectNow();
+                }
+                handleReady();
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    tick();
+                    // After a stall, tick on from now rather than catching up in a burst
+                    nextTick = Math.max(nextTick + tickNanos, now - tickNanos);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Multiplayer server stopped: " + e.getMessage());
+        } finally {
+            for (Client client : clients) {
+                if (client != null) {
+                    disconnect(client);
+                }
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                System.out.println("Error closing multiplayer server: " + e.getMessage());
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void handleReady() throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Client client = (Client) key.attachment();
+            if (key.isReadable()) {
+                read(client);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(client);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            int player = world.join();
+            if (player < 0) {
+                // Best effort: a one-off heap buffer, then close
+                ByteBuffer reply = ByteBuffer.allocate(3);
+                reply.putShort((short) 1).put((byte) REJECTED).flip();
+                channel.write(reply);
+                channel.close();
+                continue;
+            }
+            Client client = new Client(channel, player);
+            clients[player] = client;
+            channel.register(selector, SelectionKey.OP_READ, client);
+
+            ByteBuffer welcome = pool.acquire();
+            welcome.position(2);
+            welcome.put((byte) WELCOME);
+            welcome.put((byte) player);
+            welcome.put((byte) world.getDifficulty().ordinal());
+            NetSnapshot.putVarint(welcome, tickNanos);
+            send(client, welcome);
+        }
+    }
+
+    // A client that sends an oversized or malformed frame is dropped; the match goes on
+    private void read(Client client) {
+        ByteBuffer in = client.in;
+        try {
+            if (client.channel.read(in) < 0) {
+                disconnect(client);
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= 2) {
+                int length = in.getShort(in.position()) & 0xFFFF;
+                if (length > MAX_INPUT_FRAME) {
+                    System.out.println("Dropping player " + client.player + ": " + length + "-byte message");
+                    disconnect(client);
+                    return;
+                }
+                if (in.remaining() < 2 + length) {
+                    break;
+                }
+                in.position(in.position() + 2);
+                ByteBuffer frame = in.slice();
+                frame.limit(length);
+                in.position(in.position() + length);
+                if ((frame.get() & 0xFF) == INPUT) {
+                    readInput(client, frame);
+                }
+            }
+            in.compact();
+        } catch (IOException e) {
+            disconnect(client);
+        } catch (RuntimeException e) {
+            System.out.println("Dropping player " + client.player + ": malformed message (" + e + ")");
+            disconnect(client);
+        }
+    }
+
+    // Latest input wins; a mouse move stays pending until a tick has used it
+    private void readInput(Client client, ByteBuffer in) {
+        NetSnapshot.getVarint(in); // The client's latest snapshot tick
+        int flags = in.get() & 0xFF;
+        TickInput input = world.getInput(client.player);
+        input.up = (flags & Replay.UP) != 0;
+        input.down = (flags & Replay.DOWN) != 0;
+        input.left = (flags & Replay.LEFT) != 0;
+        input.right = (flags & Replay.RIGHT) != 0;
+        input.mouseControl = (flags & Replay.MOUSE_CONTROL) != 0;
+        if ((flags & Replay.MOUSE_MOVED) != 0) {
+            input.mouseMoved = true;
+            input.mouseX = NetSnapshot.unzigzag(NetSnapshot.getVarint(in));
+            input.mouseY = NetSnapshot.unzigzag(NetSnapshot.getVarint(in));
+        }
+        inputsReceived[client.player]++;
+    }
+
+    private void tick() {
+        world.step();
+        for (int i = 0; i < MultiplayerWorld.MAX_PLAYERS; i++) {
+            if (clients[i] != null) {
+                world.getInput(i).mouseMoved = false;
+            }
+        }
+        state.copyWorld(world);
+        checksums[(int) (state.tick % CHECKSUM_HISTORY)] = state.checksum();
+        int fullSize = 0;
+        if (fullScratch != null) {
+            fullScratch.clear();
+            state.encode(null, fullScratch);
+            fullSize = fullScratch.position();
+        }
+
+        // Most players hold the previous tick, so that delta is encoded once and copied
+        boolean deltaEncoded = false;
+        for (Client client : clients) {
+            if (client == null) {
+                continue;
+            }
+            if (client.queued.size() >= MAX_QUEUED) {
+                skipped++;
+                continue;
+            }
+            ByteBuffer message = pool.acquire();
+            message.position(2);
+            message.put((byte) SNAPSHOT);
+            try {
+                if (client.hasBaseline && client.baseline.tick == state.tick - 1) {
+                    if (!deltaEncoded) {
+                        delta.clear();
+                        state.encode(client.baseline, delta);
+                        delta.flip();
+                        deltaEncoded = true;
+                    }
+                    message.put(delta);
+                    delta.rewind();
+                } else {
+                    state.encode(client.hasBaseline ? client.baseline : null, message);
+                }
+            } catch (BufferOverflowException e) {
+                System.out.println("Snapshot of tick " + state.tick + " is too large to send; dropping player " + client.player);
+                pool.release(message);
+                disconnect(client);
+                continue;
+            }
+            deltaBytes += message.position() - 3;
+            fullBytes += fullSize;
+            snapshotsSent++;
+            client.baseline.copyFrom(state);
+            client.hasBaseline = true;
+            send(client, message);
+        }
+    }
+
+    // Fills in the frame length, queues the message and writes what the socket will take
+    private void send(Client client, ByteBuffer message) {
+        message.putShort(0, (short) (message.position() - 2));
+        message.flip();
+        client.queued.add(message);
+        flush(client);
+    }
+
+    private void flush(Client client) {
+        try {
+            while (!client.queued.isEmpty()) {
+                ByteBuffer head = client.queued.peek();
+                client.channel.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                pool.release(client.queued.poll());
+            }
+            SelectionKey key = client.channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(client.queued.isEmpty() ? SelectionKey.OP_READ
+                        : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    private void disconnect(Client client) {
+        if (clients[client.player] != client) {
+            return;
+        }
+        clients[client.player] = null;
+        world.leave(client.player);
+        while (!client.queued.isEmpty()) {
+            pool.release(client.queued.poll());
+        }
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    /**
+     * Makes the server also encode every tick in full, to report how much the deltas save.
+     * Call before run().
+     */
+    void measureFullSize() {
+        fullScratch = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    // Statistics and state, for reading once the server thread has finished
+    long getFullBytes() {
+        return fullBytes;
+    }
+
+    long getSnapshotsSent() {
+        return snapshotsSent;
+    }
+
+    long getDeltaBytes() {
+        return deltaBytes;
+    }
+
+    long getSkipped() {
+        return skipped;
+    }
+
+    long getInputsReceived(int player) {
+        return inputsReceived[player];
+    }
+
+    int getBuffersAllocated() {
+        return pool.getAllocated();
+    }
+
+    long getChecksum(long tick) {
+        return checksums[(int) (tick % CHECKSUM_HISTORY)];
+    }
+
+    long getTick() {
+        return world.getTick();
+    }
+
+    MultiplayerWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * Runs a match for local players to join: {@code java -cp out MultiplayerServer [port] [difficulty]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Difficulty difficulty = args.length > 1 ? Difficulty.valueOf(args[1].toUpperCase()) : Difficulty.MEDIUM;
+        MultiplayerServer server = new MultiplayerServer(port, createWorld(difficulty, System.nanoTime()),
+                GameLoop.DEFAULT_TICK_NANOS);
+        System.out.println("Multiplayer server on 127.0.0.1:" + server.getPort() + ", " + difficulty);
+        server.run();
+    }
+
+    /**
+     * A match with the game's sprite sizes and, when the sprites can be loaded, their pixel masks.
+     */
+    static MultiplayerWorld createWorld(Difficulty difficulty, long seed) {
+        CollisionMask[] masks = Replay.spriteMasks();
+        return new MultiplayerWorld(difficulty, seed, Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH,
+                Game.BULLET_HEIGHT, masks == null ? null : masks[0], masks == null ? null : masks[1]);
+    }
+}
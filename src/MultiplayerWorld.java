@@ -0,0 +1,158 @@
+/**
+ * Headless simulation of several planes flying through one shared bullet field, as run by
+ * the {@link MultiplayerServer}. The bullets, spawning and plane handling are a
+ * {@link GameWorld}'s, so each plane moves and gets hit exactly as in the single-player
+ * game; that world's own plane is not used.
+ *
+ * A hit plane explodes where it is, sits out RESPAWN_TICKS and comes back at its start
+ * position. Players score the difficulty's multiplier for every tick they are flying.
+ * There are no levels: a match goes on at one difficulty for as long as the server runs.
+ */
+public class MultiplayerWorld {
+    public static final int MAX_PLAYERS = 8;
+    public static final int RESPAWN_TICKS = 50;
+
+    private final GameWorld field;
+    private final Plane[] planes = new Plane[MAX_PLAYERS];
+    private final TickInput[] inputs = new TickInput[MAX_PLAYERS];
+    private final boolean[] joined = new boolean[MAX_PLAYERS];
+    private final int[] scores = new int[MAX_PLAYERS];
+    private final int[] hits = new int[MAX_PLAYERS];
+    private final int[] respawnTicks = new int[MAX_PLAYERS]; // Ticks left exploding, 0 while flying
+    private int playerCount;
+    private long tick;
+
+    /**
+     * The masks may be null for plain bounding-box collisions, as in GameWorld.
+     */
+    public MultiplayerWorld(Difficulty difficulty, long seed, int planeWidth, int planeHeight,
+                            int bulletWidth, int bulletHeight, CollisionMask planeMask, CollisionMask bulletMask) {
+        field = new GameWorld(planeWidth, planeHeight, bulletWidth, bulletHeight);
+        field.setCollisionMasks(planeMask, bulletMask);
+        field.reset(difficulty, seed);
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            planes[i] = new Plane(0, 0, planeWidth, planeHeight);
+            inputs[i] = new TickInput();
+            inputs[i].mouseControl = false;
+        }
+    }
+
+    /**
+     * Adds a player at its start position and returns its slot, or -1 when the match is full.
+     */
+    public int join() {
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            if (!joined[i]) {
+                joined[i] = true;
+                scores[i] = 0;
+                hits[i] = 0;
+                respawnTicks[i] = 0;
+                inputs[i].clear();
+                inputs[i].mouseControl = false;
+                placeAtStart(i);
+                playerCount++;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void leave(int player) {
+        if (joined[player]) {
+            joined[player] = false;
+            playerCount--;
+        }
+    }
+
+    // Start positions are spread down the left edge so planes don't begin on top of each other
+    private void placeAtStart(int player) {
+        Plane plane = planes[player];
+        int lane = GameWorld.HEIGHT * (player + 1) / (MAX_PLAYERS + 1) - plane.getHeight() / 2;
+        plane.setX(100);
+        plane.setY(Math.max(0, Math.min(GameWorld.HEIGHT - plane.getHeight(), lane)));
+        plane.setVelocityX(0);
+        plane.setVelocityY(0);
+        plane.setExploding(false);
+        plane.savePosition();
+    }
+
+    /**
+     * The input the player's plane flies with on the next step; set it before stepping.
+     */
+    public TickInput getInput(int player) {
+        return inputs[player];
+    }
+
+    /**
+     * Advances the match one tick: planes move, bullets move, hits are checked, bullets spawn.
+     */
+    public void step() {
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            if (!joined[i]) {
+                continue;
+            }
+            if (respawnTicks[i] > 0) {
+                if (--respawnTicks[i] == 0) {
+                    placeAtStart(i);
+                } else {
+                    planes[i].savePosition();
+                }
+            } else {
+                field.movePlane(planes[i], inputs[i]);
+            }
+        }
+        field.updateBullets();
+
+        int multiplier = field.getScoreMultiplier();
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            if (!joined[i] || respawnTicks[i] > 0) {
+                continue;
+            }
+            if (field.isHit(planes[i])) {
+                planes[i].setExploding(true);
+                respawnTicks[i] = RESPAWN_TICKS;
+                hits[i]++;
+            } else {
+                scores[i] += multiplier;
+            }
+        }
+        field.spawnBullets();
+        tick++;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public boolean isJoined(int player) {
+        return joined[player];
+    }
+
+    public Plane getPlane(int player) {
+        return planes[player];
+    }
+
+    public int getScore(int player) {
+        return scores[player];
+    }
+
+    public int getHits(int player) {
+        return hits[player];
+    }
+
+    public boolean isExploding(int player) {
+        return respawnTicks[player] > 0;
+    }
+
+    public BulletPool getBullets() {
+        return field.getBullets();
+    }
+
+    public Difficulty getDifficulty() {
+        return field.getDifficulty();
+    }
+}
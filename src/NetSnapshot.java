@@ -0,0 +1,404 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * What a multiplayer client sees of one tick: every player's plane and score, and every
+ * bullet by id (sorted by id, so two snapshots can be merged in one pass).
+ *
+ * Snapshots travel delta-compressed against a baseline, an earlier snapshot the receiver
+ * is known to hold (over TCP, simply the last one sent to it). Bullets fly in straight
+ * lines, so a bullet in the baseline costs nothing unless it left or is not where its
+ * velocity puts it; only spawned and removed bullets are listed, ids as gaps from the
+ * previous one. Player fields are sent only when changed, as zigzag varint deltas.
+ * With no baseline the same encoding is a full snapshot (everything is new).
+ *
+ * Layout: tick, ticks since the baseline (0 = none), players (count, then per player its
+ * slot, a mask of changed fields and their deltas), removed bullet ids, spawned bullets
+ * (id, x, y, velocity), then corrections (id, x and y off the prediction).
+ */
+public class NetSnapshot {
+    public static final int EXPLODING = 1; // Player flag
+
+    // Changed-field mask per player
+    private static final int X = 1;
+    private static final int Y = 2;
+    private static final int SCORE = 4;
+    private static final int HITS = 8;
+    private static final int FLAGS = 16;
+
+    public long tick;
+
+    public int playerCount;
+    public final int[] playerId = new int[MultiplayerWorld.MAX_PLAYERS];
+    public final int[] playerX = new int[MultiplayerWorld.MAX_PLAYERS];
+    public final int[] playerY = new int[MultiplayerWorld.MAX_PLAYERS];
+    public final int[] playerScore = new int[MultiplayerWorld.MAX_PLAYERS];
+    public final int[] playerHits = new int[MultiplayerWorld.MAX_PLAYERS];
+    public final int[] playerFlags = new int[MultiplayerWorld.MAX_PLAYERS];
+
+    public int bulletCount;
+    public int[] bulletId = new int[64];
+    public int[] bulletX = new int[64];
+    public int[] bulletY = new int[64];
+    public int[] bulletVelocityX = new int[64];
+
+    // Scratch for sorting bullets by id (id << 32 | pool index) and for decoding
+    private long[] order = new long[64];
+    private int[] removed = new int[16];
+    private int[] spawnedId = new int[16], spawnedX = new int[16], spawnedY = new int[16], spawnedVelocity = new int[16];
+    private int[] correctedId = new int[16], correctedX = new int[16], correctedY = new int[16];
+
+    /**
+     * Copies the match's players and bullets.
+     */
+    public void copyWorld(MultiplayerWorld world) {
+        tick = world.getTick();
+        playerCount = 0;
+        for (int i = 0; i < MultiplayerWorld.MAX_PLAYERS; i++) {
+            if (world.isJoined(i)) {
+                Plane plane = world.getPlane(i);
+                int p = playerCount++;
+                playerId[p] = i;
+                playerX[p] = plane.getX();
+                playerY[p] = plane.getY();
+                playerScore[p] = world.getScore(i);
+                playerHits[p] = world.getHits(i);
+                playerFlags[p] = world.isExploding(i) ? EXPLODING : 0;
+            }
+        }
+
+        // Pool order changes as bullets are removed, so sort by id
+        BulletPool bullets = world.getBullets();
+        int count = bullets.size();
+        ensureBullets(count);
+        if (order.length < count) {
+            order = new long[Math.max(count, order.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) bullets.getId(i) << 32) | i;
+        }
+        Arrays.sort(order, 0, count);
+        for (int k = 0; k < count; k++) {
+            int i = (int) order[k];
+            bulletId[k] = bullets.getId(i);
+            bulletX[k] = bullets.getX(i);
+            bulletY[k] = bullets.getY(i);
+            bulletVelocityX[k] = bullets.getVelocityX(i);
+        }
+        bulletCount = count;
+    }
+
+    public void copyFrom(NetSnapshot other) {
+        tick = other.tick;
+        playerCount = other.playerCount;
+        System.arraycopy(other.playerId, 0, playerId, 0, playerCount);
+        System.arraycopy(other.playerX, 0, playerX, 0, playerCount);
+        System.arraycopy(other.playerY, 0, playerY, 0, playerCount);
+        System.arraycopy(other.playerScore, 0, playerScore, 0, playerCount);
+        System.arraycopy(other.playerHits, 0, playerHits, 0, playerCount);
+        System.arraycopy(other.playerFlags, 0, playerFlags, 0, playerCount);
+        ensureBullets(other.bulletCount);
+        bulletCount = other.bulletCount;
+        System.arraycopy(other.bulletId, 0, bulletId, 0, bulletCount);
+        System.arraycopy(other.bulletX, 0, bulletX, 0, bulletCount);
+        System.arraycopy(other.bulletY, 0, bulletY, 0, bulletCount);
+        System.arraycopy(other.bulletVelocityX, 0, bulletVelocityX, 0, bulletCount);
+    }
+
+    private void ensureBullets(int count) {
+        if (count > bulletId.length) {
+            int capacity = Math.max(count, bulletId.length * 2);
+            bulletId = Arrays.copyOf(bulletId, capacity);
+            bulletX = Arrays.copyOf(bulletX, capacity);
+            bulletY = Arrays.copyOf(bulletY, capacity);
+            bulletVelocityX = Arrays.copyOf(bulletVelocityX, capacity);
+        }
+    }
+
+    /**
+     * Index of the player in the given slot, or -1.
+     */
+    public int indexOfPlayer(int id) {
+        for (int p = 0; p < playerCount; p++) {
+            if (playerId[p] == id) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes this snapshot as a delta from baseline (null for a full snapshot).
+     * Throws BufferOverflowException if it doesn't fit.
+     */
+    public void encode(NetSnapshot baseline, ByteBuffer out) {
+        long elapsed = baseline == null ? 0 : tick - baseline.tick;
+        putVarint(out, tick);
+        putVarint(out, elapsed);
+
+        putVarint(out, playerCount);
+        for (int p = 0; p < playerCount; p++) {
+            int b = baseline == null ? -1 : baseline.indexOfPlayer(playerId[p]);
+            int baseX = b < 0 ? 0 : baseline.playerX[b], baseY = b < 0 ? 0 : baseline.playerY[b];
+            int baseScore = b < 0 ? 0 : baseline.playerScore[b], baseHits = b < 0 ? 0 : baseline.playerHits[b];
+            int baseFlags = b < 0 ? 0 : baseline.playerFlags[b];
+            int mask = (playerX[p] != baseX ? X : 0) | (playerY[p] != baseY ? Y : 0)
+                    | (playerScore[p] != baseScore ? SCORE : 0) | (playerHits[p] != baseHits ? HITS : 0)
+                    | (playerFlags[p] != baseFlags ? FLAGS : 0);
+            out.put((byte) playerId[p]);
+            out.put((byte) mask);
+            if ((mask & X) != 0) {
+                putVarint(out, zigzag(playerX[p] - baseX));
+            }
+            if ((mask & Y) != 0) {
+                putVarint(out, zigzag(playerY[p] - baseY));
+            }
+            if ((mask & SCORE) != 0) {
+                putVarint(out, zigzag(playerScore[p] - baseScore));
+            }
+            if ((mask & HITS) != 0) {
+                putVarint(out, zigzag(playerHits[p] - baseHits));
+            }
+            if ((mask & FLAGS) != 0) {
+                putVarint(out, playerFlags[p]);
+            }
+        }
+
+        int baseCount = baseline == null ? 0 : baseline.bulletCount;
+        int[] baseIds = baseline == null ? null : baseline.bulletId;
+
+        // Removed: in the baseline, not here
+        int removedCount = 0;
+        for (int i = 0, j = 0; i < baseCount; i++) {
+            while (j < bulletCount && bulletId[j] < baseIds[i]) {
+                j++;
+            }
+            if (j == bulletCount || bulletId[j] != baseIds[i]) {
+                removedCount++;
+            }
+        }
+        putVarint(out, removedCount);
+        int last = 0;
+        for (int i = 0, j = 0; i < baseCount; i++) {
+            while (j < bulletCount && bulletId[j] < baseIds[i]) {
+                j++;
+            }
+            if (j == bulletCount || bulletId[j] != baseIds[i]) {
+                putVarint(out, baseIds[i] - last);
+                last = baseIds[i];
+            }
+        }
+
+        // Spawned: here, not in the baseline
+        int spawnedCount = 0;
+        for (int j = 0, i = 0; j < bulletCount; j++) {
+            while (i < baseCount && baseIds[i] < bulletId[j]) {
+                i++;
+            }
+            if (i == baseCount || baseIds[i] != bulletId[j]) {
+                spawnedCount++;
+            }
+        }
+        putVarint(out, spawnedCount);
+        last = 0;
+        for (int j = 0, i = 0; j < bulletCount; j++) {
+            while (i < baseCount && baseIds[i] < bulletId[j]) {
+                i++;
+            }
+            if (i == baseCount || baseIds[i] != bulletId[j]) {
+                putVarint(out, bulletId[j] - last);
+                last = bulletId[j];
+                putVarint(out, zigzag(bulletX[j]));
+                putVarint(out, zigzag(bulletY[j]));
+                putVarint(out, zigzag(bulletVelocityX[j]));
+            }
+        }
+
+        // Corrections: in both, but not where the baseline's velocity puts them
+        int correctedCount = 0;
+        for (int j = 0, i = 0; j < bulletCount; j++) {
+            while (i < baseCount && baseIds[i] < bulletId[j]) {
+                i++;
+            }
+            if (i < baseCount && baseIds[i] == bulletId[j] && isMispredicted(baseline, i, j, elapsed)) {
+                correctedCount++;
+            }
+        }
+        putVarint(out, correctedCount);
+        last = 0;
+        for (int j = 0, i = 0; j < bulletCount; j++) {
+            while (i < baseCount && baseIds[i] < bulletId[j]) {
+                i++;
+            }
+            if (i < baseCount && baseIds[i] == bulletId[j] && isMispredicted(baseline, i, j, elapsed)) {
+                putVarint(out, bulletId[j] - last);
+                last = bulletId[j];
+                putVarint(out, zigzag(bulletX[j] - predictX(baseline, i, elapsed)));
+                putVarint(out, zigzag(bulletY[j] - baseline.bulletY[i]));
+            }
+        }
+    }
+
+    private boolean isMispredicted(NetSnapshot baseline, int i, int j, long elapsed) {
+        return bulletX[j] != predictX(baseline, i, elapsed) || bulletY[j] != baseline.bulletY[i]
+                || bulletVelocityX[j] != baseline.bulletVelocityX[i];
+    }
+
+    private static int predictX(NetSnapshot baseline, int i, long elapsed) {
+        return (int) (baseline.bulletX[i] + baseline.bulletVelocityX[i] * elapsed);
+    }
+
+    /**
+     * Reads a snapshot written by encode() into this one. baseline must be the snapshot it
+     * was encoded against (it may be null or anything for a full snapshot) and must not be this.
+     */
+    public void decode(NetSnapshot baseline, ByteBuffer in) {
+        tick = getVarint(in);
+        long elapsed = getVarint(in);
+        if (elapsed == 0) {
+            baseline = null;
+        } else if (baseline == null || baseline.tick != tick - elapsed) {
+            throw new IllegalStateException("Snapshot " + tick + " is a delta from tick " + (tick - elapsed)
+                    + ", not from " + (baseline == null ? "nothing" : String.valueOf(baseline.tick)));
+        }
+
+        playerCount = (int) getVarint(in);
+        for (int p = 0; p < playerCount; p++) {
+            int id = in.get() & 0xFF;
+            int mask = in.get() & 0xFF;
+            int b = baseline == null ? -1 : baseline.indexOfPlayer(id);
+            playerId[p] = id;
+            playerX[p] = (b < 0 ? 0 : baseline.playerX[b]) + ((mask & X) != 0 ? unzigzag(getVarint(in)) : 0);
+            playerY[p] = (b < 0 ? 0 : baseline.playerY[b]) + ((mask & Y) != 0 ? unzigzag(getVarint(in)) : 0);
+            playerScore[p] = (b < 0 ? 0 : baseline.playerScore[b]) + ((mask & SCORE) != 0 ? unzigzag(getVarint(in)) : 0);
+            playerHits[p] = (b < 0 ? 0 : baseline.playerHits[b]) + ((mask & HITS) != 0 ? unzigzag(getVarint(in)) : 0);
+            playerFlags[p] = (mask & FLAGS) != 0 ? (int) getVarint(in) : (b < 0 ? 0 : baseline.playerFlags[b]);
+        }
+
+        int removedCount = (int) getVarint(in);
+        if (removed.length < removedCount) {
+            removed = new int[Math.max(removedCount, removed.length * 2)];
+        }
+        int last = 0;
+        for (int k = 0; k < removedCount; k++) {
+            last += (int) getVarint(in);
+            removed[k] = last;
+        }
+
+        int spawnedCount = (int) getVarint(in);
+        if (spawnedId.length < spawnedCount) {
+            int capacity = Math.max(spawnedCount, spawnedId.length * 2);
+            spawnedId = new int[capacity];
+            spawnedX = new int[capacity];
+            spawnedY = new int[capacity];
+            spawnedVelocity = new int[capacity];
+        }
+        last = 0;
+        for (int k = 0; k < spawnedCount; k++) {
+            last += (int) getVarint(in);
+            spawnedId[k] = last;
+            spawnedX[k] = unzigzag(getVarint(in));
+            spawnedY[k] = unzigzag(getVarint(in));
+            spawnedVelocity[k] = unzigzag(getVarint(in));
+        }
+
+        int correctedCount = (int) getVarint(in);
+        if (correctedId.length < correctedCount) {
+            int capacity = Math.max(correctedCount, correctedId.length * 2);
+            correctedId = new int[capacity];
+            correctedX = new int[capacity];
+            correctedY = new int[capacity];
+        }
+        last = 0;
+        for (int k = 0; k < correctedCount; k++) {
+            last += (int) getVarint(in);
+            correctedId[k] = last;
+            correctedX[k] = unzigzag(getVarint(in));
+            correctedY[k] = unzigzag(getVarint(in));
+        }
+
+        // Merge the surviving baseline bullets (moved on, then corrected) with the spawned ones
+        int baseCount = baseline == null ? 0 : baseline.bulletCount;
+        ensureBullets(baseCount - removedCount + spawnedCount);
+        int count = 0, r = 0, s = 0, c = 0;
+        for (int i = 0; i <= baseCount; i++) {
+            int id = i < baseCount ? baseline.bulletId[i] : Integer.MAX_VALUE;
+            while (s < spawnedCount && spawnedId[s] < id) {
+                bulletId[count] = spawnedId[s];
+                bulletX[count] = spawnedX[s];
+                bulletY[count] = spawnedY[s];
+                bulletVelocityX[count] = spawnedVelocity[s];
+                count++;
+                s++;
+            }
+            if (i == baseCount) {
+                break;
+            }
+            if (r < removedCount && removed[r] == id) {
+                r++;
+                continue;
+            }
+            bulletId[count] = id;
+            bulletX[count] = predictX(baseline, i, elapsed);
+            bulletY[count] = baseline.bulletY[i];
+            bulletVelocityX[count] = baseline.bulletVelocityX[i];
+            if (c < correctedCount && correctedId[c] == id) {
+                bulletX[count] += correctedX[c];
+                bulletY[count] += correctedY[c];
+                c++;
+            }
+            count++;
+        }
+        bulletCount = count;
+    }
+
+    /**
+     * Hash of everything in the snapshot, for checking that both ends agree.
+     */
+    public long checksum() {
+        long hash = tick;
+        for (int p = 0; p < playerCount; p++) {
+            hash = hash * 31 + playerId[p];
+            hash = hash * 31 + playerX[p];
+            hash = hash * 31 + playerY[p];
+            hash = hash * 31 + playerScore[p];
+            hash = hash * 31 + playerHits[p];
+            hash = hash * 31 + playerFlags[p];
+        }
+        for (int i = 0; i < bulletCount; i++) {
+            hash = hash * 31 + bulletId[i];
+            hash = hash * 31 + bulletX[i];
+            hash = hash * 31 + bulletY[i];
+            hash = hash * 31 + bulletVelocityX[i];
+        }
+        return hash;
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static long zigzag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+}
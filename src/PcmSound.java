@@ -0,0 +1,63 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A decoded sound as signed 16-bit PCM samples (interleaved when there is more than one channel).
+ */
+public class PcmSound {
+    private final int sampleRate;
+    private final int channels;
+    private final short[] samples;
+
+    public PcmSound(int sampleRate, int channels, short[] samples) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.samples = samples;
+    }
+
+    /**
+     * Decodes an audio file and converts it to 16-bit mono at its own sample rate.
+     */
+    public static PcmSound decode(File file) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream audioStream = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat baseFormat = audioStream.getFormat();
+            AudioFormat targetFormat = new AudioFormat(
+                    AudioFormat.Encoding.PCM_SIGNED,
+                    baseFormat.getSampleRate(),
+                    16,
+                    1,
+                    2,
+                    baseFormat.getSampleRate(),
+                    false
+            );
+            try (AudioInputStream convertedStream = AudioSystem.getAudioInputStream(targetFormat, audioStream)) {
+                byte[] bytes = convertedStream.readAllBytes();
+                short[] samples = new short[bytes.length / 2];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = (short) ((bytes[2 * i] & 0xFF) | (bytes[2 * i + 1] << 8));
+                }
+                return new PcmSound((int) baseFormat.getSampleRate(), 1, samples);
+            }
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getFrameCount() {
+        return samples.length / channels;
+    }
+
+    public short[] getSamples() {
+        return samples;
+    }
+}
@@ -1,29 +1,25 @@
-import java.awt.*;
-import java.awt.image.BufferedImage;
-
 public class Plane {
     private int x, y;
+    private int prevX, prevY; // Position at the start of the last tick, for render interpolation
     private double velocityX, velocityY;
-    private BufferedImage image;
+    private int width, height;
     private boolean exploding;
     
-    public Plane(int x, int y, BufferedImage image) {
+    public Plane(int x, int y, int width, int height) {
         this.x = x;
         this.y = y;
-        this.image = image;
+        this.prevX = x;
+        this.prevY = y;
+        this.width = width;
+        this.height = height;
         this.velocityX = 0;
         this.velocityY = 0;
         this.exploding = false;
     }
     
-    public void draw(Graphics2D g) {
-        // Draw the plane image
-        g.drawImage(image, x, y, null);
-    }
-    
-    public Rectangle getBounds() {
-        // Return the bounding rectangle for collision detection
-        return new Rectangle(x, y, image.getWidth(), image.getHeight());
+    public void savePosition() {
+        prevX = x;
+        prevY = y;
     }
     
     // Getters and setters
@@ -43,6 +39,14 @@ public class Plane {
         this.y = y;
     }
     
+    public int getPrevX() {
+        return prevX;
+    }
+    
+    public int getPrevY() {
+        return prevY;
+    }
+    
     public double getVelocityX() {
         return velocityX;
     }
@@ -60,11 +64,11 @@ public class Plane {
     }
     
     public int getWidth() {
-        return image.getWidth();
+        return width;
     }
     
     public int getHeight() {
-        return image.getHeight();
+        return height;
     }
     
     public boolean isExploding() {
@@ -0,0 +1,112 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+
+/**
+ * Draws the {@link FrameProfiler}s of the render and simulation threads: a p50/p99/max table per phase, the live bullet count,
+ * the last GC pause and rolling graphs of frame intervals (with render work and GC
+ * markers) and tick times. The table text is rebuilt a few times a second; the graphs
+ * are plain rectangle fills every frame.
+ */
+public class ProfilerOverlay {
+    public static final int WIDTH = 330;
+    private static final long TEXT_REFRESH_NANOS = 250_000_000L;
+    private static final int LINE_HEIGHT = 13;
+    private static final int GRAPH_HEIGHT = 48;
+    private static final long FRAME_GRAPH_NANOS = 33_333_333L; // Top of the frame graph: two 60 Hz frames
+    private static final long TICK_GRAPH_NANOS = 1_000_000L;   // Top of the tick graph
+
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final Color PANEL = new Color(0, 0, 0, 180);
+    private static final Color TEXT = new Color(220, 255, 220);
+    private static final Color INTERVAL_BAR = new Color(80, 200, 80);
+    private static final Color WORK_BAR = new Color(240, 200, 40);
+    private static final Color TICK_BAR = new Color(90, 150, 255);
+    private static final Color GC_MARK = new Color(255, 60, 60);
+    private static final Color TARGET_LINE = new Color(255, 255, 255, 90);
+
+    private final String[] lines = new String[FrameProfiler.PHASES + 3];
+    private long textUpdated;
+
+    public int getHeight() {
+        return 10 + lines.length * LINE_HEIGHT + 2 * (GRAPH_HEIGHT + 20);
+    }
+
+    /**
+     * frames holds the render phases, ticks the simulation phases (the same profiler may be both).
+     */
+    public void draw(Graphics2D g2d, FrameProfiler frames, FrameProfiler ticks, int x, int y) {
+        long now = System.nanoTime();
+        if (lines[0] == null || now - textUpdated >= TEXT_REFRESH_NANOS) {
+            updateText(frames, ticks);
+            textUpdated = now;
+        }
+
+        g2d.setColor(PANEL);
+        g2d.fillRect(x, y, WIDTH, getHeight());
+        g2d.setFont(FONT);
+        g2d.setColor(TEXT);
+        int lineY = y + 14;
+        for (String line : lines) {
+            g2d.drawString(line, x + 8, lineY);
+            lineY += LINE_HEIGHT;
+        }
+
+        // Frame intervals, with the render work inside each one and GC markers
+        int graphX = x + (WIDTH - FrameProfiler.WINDOW) / 2;
+        int graphY = lineY + 4;
+        g2d.drawString("frame interval / work (0-33 ms)", graphX, graphY);
+        graphY += 4;
+        int bottom = graphY + GRAPH_HEIGHT;
+        for (int i = 0; i < FrameProfiler.WINDOW; i++) {
+            int column = graphX + FrameProfiler.WINDOW - 1 - i;
+            int interval = barHeight(frames.recent(FrameProfiler.INTERVAL, i), FRAME_GRAPH_NANOS);
+            int work = barHeight(frames.recent(FrameProfiler.FRAME, i) + frames.recent(FrameProfiler.PRESENT, i),
+                    FRAME_GRAPH_NANOS);
+            g2d.setColor(INTERVAL_BAR);
+            g2d.fillRect(column, bottom - interval, 1, interval);
+            g2d.setColor(WORK_BAR);
+            g2d.fillRect(column, bottom - work, 1, work);
+            if (frames.recentGcMillis(i) > 0) {
+                g2d.setColor(GC_MARK);
+                g2d.fillRect(column, graphY, 1, GRAPH_HEIGHT);
+            }
+        }
+        g2d.setColor(TARGET_LINE);
+        g2d.fillRect(graphX, bottom - GRAPH_HEIGHT / 2, FrameProfiler.WINDOW, 1); // 16.7 ms
+
+        // Tick times
+        graphY = bottom + 16;
+        g2d.setColor(TEXT);
+        g2d.drawString("tick (0-1 ms)", graphX, graphY);
+        graphY += 4;
+        bottom = graphY + GRAPH_HEIGHT;
+        g2d.setColor(TICK_BAR);
+        for (int i = 0; i < FrameProfiler.WINDOW; i++) {
+            int height = barHeight(ticks.recent(FrameProfiler.TICK, i), TICK_GRAPH_NANOS);
+            g2d.fillRect(graphX + FrameProfiler.WINDOW - 1 - i, bottom - height, 1, height);
+        }
+    }
+
+    private static int barHeight(long nanos, long top) {
+        return (int) Math.min(GRAPH_HEIGHT, nanos * GRAPH_HEIGHT / top);
+    }
+
+    private void updateText(FrameProfiler frames, FrameProfiler ticks) {
+        lines[0] = String.format("Profiler (F3)  bullets %d  GCs %d, last %d ms",
+                frames.getBulletCount(), frames.getGcCount(), frames.getLastGcPauseMillis());
+        lines[1] = String.format("Repainted %.1f%% of the scene in %d rect%s", 100 * frames.getRepaintedFraction(),
+                frames.getRepaintedRects(), frames.getRepaintedRects() == 1 ? "" : "s");
+        lines[2] = String.format("%-16s %8s %8s %8s", "phase (us)", "p50", "p99", "max");
+        for (int phase = 0; phase < FrameProfiler.PHASES; phase++) {
+            FrameProfiler profiler = phase <= FrameProfiler.TICK ? ticks : frames;
+            if (profiler.getSampleCount(phase) == 0) {
+                lines[phase + 3] = String.format("%-16s %8s %8s %8s", FrameProfiler.PHASE_NAMES[phase], "-", "-", "-");
+            } else {
+                lines[phase + 3] = String.format("%-16s %8.1f %8.1f %8.1f", FrameProfiler.PHASE_NAMES[phase],
+                        profiler.percentile(phase, 50) / 1e3, profiler.percentile(phase, 99) / 1e3,
+                        profiler.max(phase) / 1e3);
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * A recorded run that can be re-simulated headless at full speed.
+ *
+ * Layout: magic, version, difficulty, seed, plane and bullet sizes (varints), a checksum
+ * of the collision masks (0 for none), run flags (version 2 on: whether the autopilot
+ * flew), the tick stream written by ReplayRecorder, then
+ * END, the final tick count, the final score and the outcome. Playing it back resets a
+ * GameWorld with the same seed and feeds it the same input, so the score and the tick
+ * the run ended on come out identical.
+ */
+public class Replay {
+    static final int MAGIC = 0x50445250; // "PDRP"
+    static final int VERSION = 2;
+
+    // Run flags
+    static final int RUN_AUTOPILOT = 1;
+
+    // Tick flags
+    static final int UP = 1;
+    static final int DOWN = 2;
+    static final int LEFT = 4;
+    static final int RIGHT = 8;
+    static final int MOUSE_CONTROL = 16;
+    static final int MOUSE_MOVED = 32; // Followed by x and y deltas
+    static final int END = 64; // Never combined with other flags
+    static final int REPEAT = 128; // Followed by the number of further identical ticks
+
+    // Longest run a replay may hold: twelve hours of play
+    static final long MAX_TICKS = 12 * 3600 * 1_000_000_000L / GameLoop.DEFAULT_TICK_NANOS;
+
+    static final int OUTCOME_GAME_OVER = 0;
+    static final int OUTCOME_LEVEL_COMPLETED = 1;
+
+    /**
+     * What re-simulating a replay produced.
+     */
+    public static class Result {
+        public final int score;
+        public final long ticks;
+        public final boolean gameOver;
+        public final boolean levelCompleted;
+
+        Result(int score, long ticks, boolean gameOver, boolean levelCompleted) {
+            this.score = score;
+            this.ticks = ticks;
+            this.gameOver = gameOver;
+            this.levelCompleted = levelCompleted;
+        }
+    }
+
+    private final byte[] data;
+    private final Difficulty difficulty;
+    private final long seed;
+    private final int planeWidth, planeHeight, bulletWidth, bulletHeight;
+    private final long maskChecksum;
+    private final int runFlags;
+    private final int ticksStart;
+    private final long claimedTicks;
+    private final int claimedScore;
+    private final int outcome;
+
+    private int position; // Read cursor, used while parsing and playing
+
+    private Replay(byte[] data) throws IOException {
+        this.data = data;
+        try {
+            if (readInt() != MAGIC) {
+                throw new IOException("Not a replay");
+            }
+            int version = readByte();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            difficulty = Difficulty.values()[readByte()];
+            seed = readLong();
+            planeWidth = (int) readVarint();
+            planeHeight = (int) readVarint();
+            bulletWidth = (int) readVarint();
+            bulletHeight = (int) readVarint();
+            maskChecksum = readLong();
+            runFlags = version >= 2 ? readByte() : 0;
+            ticksStart = position;
+
+            // Skip to the footer
+            long ticks = 0;
+            int flags;
+            while ((flags = readByte()) != END) {
+                long count = skipTick(flags);
+                if (count < 1 || count > MAX_TICKS - ticks) {
+                    throw new IOException("Replay is longer than " + MAX_TICKS + " ticks");
+                }
+                ticks += count;
+            }
+            claimedTicks = readVarint();
+            claimedScore = (int) readVarint();
+            outcome = readByte();
+            if (ticks != claimedTicks) {
+                throw new IOException("Replay has " + ticks + " ticks but claims " + claimedTicks);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated replay", e);
+        }
+    }
+
+    public static Replay read(byte[] data) throws IOException {
+        return new Replay(data);
+    }
+
+    public static Replay load(Path file) throws IOException {
+        return new Replay(Files.readAllBytes(file));
+    }
+
+    // Returns how many ticks the record starting with these flags stands for
+    private long skipTick(int flags) {
+        if ((flags & MOUSE_MOVED) != 0) {
+            readVarint();
+            readVarint();
+            return 1;
+        }
+        return (flags & REPEAT) != 0 ? 1 + readVarint() : 1;
+    }
+
+    /**
+     * Re-simulates the run with the given masks (null for bounding boxes). Throws if the
+     * replay still has input once the run has ended.
+     */
+    public synchronized Result play(CollisionMask planeMask, CollisionMask bulletMask) throws IOException {
+        GameWorld world = new GameWorld(planeWidth, planeHeight, bulletWidth, bulletHeight);
+        world.setCollisionMasks(planeMask, bulletMask);
+        world.reset(difficulty, seed);
+
+        TickInput input = new TickInput();
+        int cursor = position;
+        position = ticksStart;
+        try {
+            playTicks(world, input);
+        } finally {
+            position = cursor;
+        }
+        return new Result(world.getScore(), world.getTick(), world.isGameOver(), world.isLevelCompleted());
+    }
+
+    private void playTicks(GameWorld world, TickInput input) throws IOException {
+        int flags;
+        while ((flags = readByte()) != END) {
+            input.up = (flags & UP) != 0;
+            input.down = (flags & DOWN) != 0;
+            input.left = (flags & LEFT) != 0;
+            input.right = (flags & RIGHT) != 0;
+            input.mouseControl = (flags & MOUSE_CONTROL) != 0;
+            input.mouseMoved = (flags & MOUSE_MOVED) != 0;
+            long repeats = 1;
+            if (input.mouseMoved) {
+                input.mouseX += unzigzag(readVarint());
+                input.mouseY += unzigzag(readVarint());
+            } else if ((flags & REPEAT) != 0) {
+                repeats += readVarint();
+            }
+            for (long i = 0; i < repeats; i++) {
+                if (world.isGameOver() || world.isLevelCompleted()) {
+                    throw new IOException("Replay has input after its run ended at tick " + world.getTick());
+                }
+                world.step(input);
+            }
+        }
+    }
+
+    /**
+     * Re-simulates the run with the masks it was recorded with; see masksFor.
+     */
+    public Result play() throws IOException {
+        CollisionMask[] masks = masksFor(maskChecksum, planeWidth, planeHeight, bulletWidth, bulletHeight);
+        return play(masks[0], masks[1]);
+    }
+
+    /**
+     * True if the replay was recorded with these sprite sizes and mask checksum.
+     */
+    public boolean isRecordedWith(int planeWidth, int planeHeight, int bulletWidth, int bulletHeight, long maskChecksum) {
+        return this.planeWidth == planeWidth && this.planeHeight == planeHeight && this.bulletWidth == bulletWidth
+                && this.bulletHeight == bulletHeight && this.maskChecksum == maskChecksum;
+    }
+
+    /**
+     * True if the result reproduces the recorded score, end tick and outcome.
+     */
+    public boolean matches(Result result) {
+        boolean completed = outcome == OUTCOME_LEVEL_COMPLETED;
+        return result.score == claimedScore && result.ticks == claimedTicks
+                && result.levelCompleted == completed && result.gameOver == !completed;
+    }
+
+    public static long maskChecksum(CollisionMask planeMask, CollisionMask bulletMask) {
+        if (planeMask == null || bulletMask == null) {
+            return 0;
+        }
+        return planeMask.checksum() * 31 + bulletMask.checksum();
+    }
+
+    private static volatile CollisionMask[] spriteMasks;
+
+    /**
+     * Finds the collision masks a replay was recorded with: none, the real sprites' masks
+     * (from the asset pack or the source images), or solid boxes (the loading placeholders).
+     */
+    static CollisionMask[] masksFor(long checksum, int planeWidth, int planeHeight, int bulletWidth, int bulletHeight)
+            throws IOException {
+        if (checksum == 0) {
+            return new CollisionMask[2];
+        }
+        CollisionMask[] sprites = spriteMasks();
+        if (sprites != null && maskChecksum(sprites[0], sprites[1]) == checksum) {
+            return sprites;
+        }
+        CollisionMask[] solid = {CollisionMask.solid(planeWidth, planeHeight), CollisionMask.solid(bulletWidth, bulletHeight)};
+        if (maskChecksum(solid[0], solid[1]) == checksum) {
+            return solid;
+        }
+        throw new IOException("Replay was recorded with different sprites");
+    }
+
+    // Built once and shared; masks are immutable, so parallel playback only reads them
+    static CollisionMask[] spriteMasks() {
+        CollisionMask[] masks = spriteMasks;
+        if (masks != null) {
+            return masks;
+        }
+        synchronized (Replay.class) {
+            if (spriteMasks == null) {
+                try {
+                    AssetPack assets = AssetPack.load();
+                    spriteMasks = new CollisionMask[] {
+                            Game.createMask(Game.loadSprite(assets, "plane", "plane.png", Game.PLANE_WIDTH, Game.PLANE_HEIGHT)),
+                            Game.createMask(Game.loadSprite(assets, "bullet", "bullet.png", Game.BULLET_WIDTH, Game.BULLET_HEIGHT))
+                    };
+                } catch (IOException e) {
+                    System.out.println("Sprites unavailable for replay masks: " + e.getMessage());
+                    return null;
+                }
+            }
+            return spriteMasks;
+        }
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getClaimedScore() {
+        return claimedScore;
+    }
+
+    /**
+     * True if the autopilot flew some or all of the run.
+     */
+    public boolean isAutopilot() {
+        return (runFlags & RUN_AUTOPILOT) != 0;
+    }
+
+    public long getClaimedTicks() {
+        return claimedTicks;
+    }
+
+    public boolean isLevelCompleted() {
+        return outcome == OUTCOME_LEVEL_COMPLETED;
+    }
+
+    public int getSize() {
+        return data.length;
+    }
+
+    private static int unzigzag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private int readByte() {
+        return data[position++] & 0xFF;
+    }
+
+    private int readInt() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private long readLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Plays replay files and checks each reproduces its recorded result:
+     * {@code java -cp out Replay file.replay...}. With no files, records random-input
+     * sessions and checks they play back exactly. Exits with status 1 on a mismatch.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean ok = true;
+        if (args.length > 0) {
+            for (String arg : args) {
+                Replay replay = Replay.load(Paths.get(arg));
+                long start = System.nanoTime();
+                Result result = replay.play();
+                double millis = (System.nanoTime() - start) / 1e6;
+                boolean match = replay.matches(result);
+                ok &= match;
+                System.out.printf("%s: %s score %d (claimed %d), ended at tick %d (claimed %d), %s in %.1f ms%n",
+                        arg, replay.difficulty, result.score, replay.claimedScore, result.ticks, replay.claimedTicks,
+                        match ? "OK" : "MISMATCH", millis);
+            }
+        } else {
+            ok = selfCheck(200);
+        }
+        if (!ok) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays one session with random held keys and mouse moves on the world (using
+     * sessionMasks) and returns it recorded as a replay.
+     */
+    static byte[] recordRandomSession(GameWorld world, Difficulty difficulty, Random random) {
+        ReplayRecorder recorder = new ReplayRecorder();
+        TickInput input = new TickInput();
+        CollisionMask[] masks = sessionMasks();
+        world.setCollisionMasks(masks[0], masks[1]);
+        world.reset(difficulty, random.nextLong());
+        recorder.begin(difficulty, world.getSeed(), Game.PLANE_WIDTH, Game.PLANE_HEIGHT,
+                Game.BULLET_WIDTH, Game.BULLET_HEIGHT, maskChecksum(masks[0], masks[1]));
+        while (!world.isGameOver() && !world.isLevelCompleted()) {
+            if (random.nextInt(20) == 0) {
+                input.up = random.nextBoolean();
+                input.down = !input.up && random.nextBoolean();
+                input.left = random.nextInt(4) == 0;
+                input.right = !input.left && random.nextBoolean();
+            }
+            if (random.nextInt(200) == 0) {
+                input.mouseControl = !input.mouseControl;
+            }
+            if (input.mouseControl && random.nextInt(8) == 0) {
+                input.mouseX = random.nextInt(GameWorld.WIDTH);
+                input.mouseY = random.nextInt(GameWorld.HEIGHT);
+                input.mouseMoved = true;
+            }
+            recorder.record(input);
+            world.step(input);
+            input.mouseMoved = false;
+        }
+        return recorder.finish(world.getScore(), world.getTick(), world.isLevelCompleted());
+    }
+
+    /**
+     * The masks generated sessions use: the sprites' when available, otherwise solid boxes.
+     */
+    static CollisionMask[] sessionMasks() {
+        CollisionMask[] masks = spriteMasks();
+        if (masks == null) {
+            masks = new CollisionMask[] {
+                    CollisionMask.solid(Game.PLANE_WIDTH, Game.PLANE_HEIGHT),
+                    CollisionMask.solid(Game.BULLET_WIDTH, Game.BULLET_HEIGHT)
+            };
+        }
+        return masks;
+    }
+
+    // Records random sessions, then replays them
+    private static boolean selfCheck(int sessions) throws IOException {
+        Random random = new Random(11);
+        GameWorld world = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+        long totalBytes = 0, totalTicks = 0, playNanos = 0;
+        boolean ok = true;
+
+        for (int s = 0; s < sessions; s++) {
+            byte[] bytes = recordRandomSession(world, Difficulty.values()[s % 3], random);
+
+            Replay replay = Replay.read(bytes);
+            long start = System.nanoTime();
+            Result result = replay.play();
+            playNanos += System.nanoTime() - start;
+            if (!replay.matches(result) || result.score != world.getScore() || result.ticks != world.getTick()) {
+                System.out.printf("Session %d: recorded score %d at tick %d, replayed %d at tick %d%n",
+                        s, world.getScore(), world.getTick(), result.score, result.ticks);
+                ok = false;
+            }
+            totalBytes += bytes.length;
+            totalTicks += world.getTick();
+        }
+        System.out.printf("%d sessions, %d ticks: %.2f bytes/tick, replayed at %.0f ticks/s, %s%n",
+                sessions, totalTicks, (double) totalBytes / totalTicks, totalTicks / (playNanos / 1e9),
+                ok ? "all reproduced exactly" : "MISMATCHES");
+        return ok;
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * Records one run as a replay: the world's seed and setup, then the TickInput of every
+ * simulated tick. Ticks are packed into a flags byte (arrows, mouse mode, mouse moved);
+ * a run of identical ticks without mouse movement becomes one byte plus a varint count,
+ * and mouse positions are zigzag-varint deltas from the last recorded position.
+ * Recording reuses one growing buffer, so the per-tick path does not allocate.
+ * See {@link Replay} for the layout and playback.
+ */
+public class ReplayRecorder {
+    private byte[] data = new byte[4096];
+    private int size;
+    private boolean recording;
+    private int runFlagsPosition; // Where the header's run flags byte is
+
+    // Run-length state
+    private int pendingFlags = -1;
+    private int pendingCount;
+    private int lastMouseX, lastMouseY;
+
+    /**
+     * Starts a new replay, discarding anything unfinished.
+     */
+    public void begin(Difficulty difficulty, long seed, int planeWidth, int planeHeight,
+                      int bulletWidth, int bulletHeight, long maskChecksum) {
+        size = 0;
+        pendingFlags = -1;
+        pendingCount = 0;
+        lastMouseX = 0;
+        lastMouseY = 0;
+        writeInt(Replay.MAGIC);
+        writeByte(Replay.VERSION);
+        writeByte(difficulty.ordinal());
+        writeLong(seed);
+        writeVarint(planeWidth);
+        writeVarint(planeHeight);
+        writeVarint(bulletWidth);
+        writeVarint(bulletHeight);
+        writeLong(maskChecksum);
+        runFlagsPosition = size;
+        writeByte(0);
+        recording = true;
+    }
+
+    /**
+     * Marks the replay as flown (at least partly) by the autopilot; verifiers reject such runs.
+     */
+    public void markAutopilot() {
+        if (recording) {
+            data[runFlagsPosition] |= Replay.RUN_AUTOPILOT;
+        }
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Records the input for the tick about to be simulated.
+     */
+    public void record(TickInput input) {
+        if (!recording) {
+            return;
+        }
+        int flags = (input.up ? Replay.UP : 0) | (input.down ? Replay.DOWN : 0)
+                | (input.left ? Replay.LEFT : 0) | (input.right ? Replay.RIGHT : 0)
+                | (input.mouseControl ? Replay.MOUSE_CONTROL : 0);
+        if (input.mouseMoved) {
+            flushPending();
+            writeByte(flags | Replay.MOUSE_MOVED);
+            writeVarint(zigzag(input.mouseX - lastMouseX));
+            writeVarint(zigzag(input.mouseY - lastMouseY));
+            lastMouseX = input.mouseX;
+            lastMouseY = input.mouseY;
+        } else if (flags == pendingFlags) {
+            pendingCount++;
+        } else {
+            flushPending();
+            pendingFlags = flags;
+            pendingCount = 1;
+        }
+    }
+
+    /**
+     * Ends the replay with the run's result and returns the encoded bytes.
+     */
+    public byte[] finish(int score, long ticks, boolean levelCompleted) {
+        flushPending();
+        writeByte(Replay.END);
+        writeVarint(ticks);
+        writeVarint(score);
+        writeByte(levelCompleted ? Replay.OUTCOME_LEVEL_COMPLETED : Replay.OUTCOME_GAME_OVER);
+        recording = false;
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Drops the current replay (the run was abandoned).
+     */
+    public void cancel() {
+        recording = false;
+    }
+
+    private void flushPending() {
+        if (pendingCount == 1) {
+            writeByte(pendingFlags);
+        } else if (pendingCount > 1) {
+            writeByte(pendingFlags | Replay.REPEAT);
+            writeVarint(pendingCount - 1);
+        }
+        pendingFlags = -1;
+        pendingCount = 0;
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        data[size++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            data[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            data[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks submitted high scores by re-simulating their replays. A batch is split in halves
+ * recursively on a ForkJoinPool, so idle workers steal the remaining halves and uneven
+ * replay lengths still keep every core busy. Each replay runs on its own GameWorld and
+ * only shares the immutable collision masks.
+ */
+public class ReplayVerifier {
+    private static final int LEAF_SIZE = 4; // Replays per task before splitting stops
+
+    /**
+     * A replay together with the difficulty and score it is claimed to have reached.
+     */
+    public static class Submission {
+        public final String name;
+        public final byte[] data;
+        public final Difficulty claimedDifficulty;
+        public final int claimedScore;
+
+        public Submission(String name, byte[] data, Difficulty claimedDifficulty, int claimedScore) {
+            this.name = name;
+            this.data = data;
+            this.claimedDifficulty = claimedDifficulty;
+            this.claimedScore = claimedScore;
+        }
+
+        /**
+         * Reads a replay saved by the game; the claim comes from its name
+         * (time-DIFFICULTY-score.replay), or from the replay itself if the name doesn't have one.
+         */
+        public static Submission fromFile(Path file) throws IOException {
+            byte[] data = Files.readAllBytes(file);
+            String name = file.getFileName().toString();
+            String[] parts = name.replace(".replay", "").split("-");
+            if (parts.length == 3) {
+                try {
+                    return new Submission(name, data, Difficulty.valueOf(parts[1]), Integer.parseInt(parts[2]));
+                } catch (IllegalArgumentException e) {
+                    // Fall through to the replay's own claim
+                }
+            }
+            try {
+                Replay replay = Replay.read(data);
+                return new Submission(name, data, replay.getDifficulty(), replay.getClaimedScore());
+            } catch (IOException e) {
+                return new Submission(name, data, null, -1);
+            }
+        }
+    }
+
+    /**
+     * The outcome of checking one submission.
+     */
+    public static class Verdict {
+        public final String name;
+        public final boolean valid;
+        public final String reason;
+        public final int score;
+        public final long ticks;
+
+        Verdict(String name, boolean valid, String reason, int score, long ticks) {
+            this.name = name;
+            this.valid = valid;
+            this.reason = reason;
+            this.score = score;
+            this.ticks = ticks;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + (valid ? "VALID" : "REJECTED") + " - " + reason;
+        }
+    }
+
+    // Checks submissions[from, to), splitting the range until it is small
+    private static class VerifyRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Submission> submissions;
+        private final Verdict[] verdicts;
+        private final int from, to;
+
+        VerifyRange(List<Submission> submissions, Verdict[] verdicts, int from, int to) {
+            this.submissions = submissions;
+            this.verdicts = verdicts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    verdicts[i] = verify(submissions.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new VerifyRange(submissions, verdicts, from, middle),
+                    new VerifyRange(submissions, verdicts, middle, to));
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public ReplayVerifier() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ReplayVerifier(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Verifies the whole batch; verdicts come back in submission order.
+     */
+    public Verdict[] verifyAll(List<Submission> submissions) {
+        Verdict[] verdicts = new Verdict[submissions.size()];
+        pool.invoke(new VerifyRange(submissions, verdicts, 0, submissions.size()));
+        return verdicts;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Re-simulates one submission and compares the result with its claim. The replay must
+     * have been recorded with the game's own sprite sizes and collision masks; its header
+     * is not trusted to pick them. Runs the autopilot flew are rejected.
+     */
+    public static Verdict verify(Submission submission) {
+        Replay replay;
+        Replay.Result result;
+        try {
+            replay = Replay.read(submission.data);
+            if (replay.isAutopilot()) {
+                return new Verdict(submission.name, false, "flown by the autopilot", -1, -1);
+            }
+            CollisionMask[] masks = Replay.sessionMasks();
+            if (!replay.isRecordedWith(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT,
+                    Replay.maskChecksum(masks[0], masks[1]))) {
+                return new Verdict(submission.name, false, "not recorded with the game's sprites", -1, -1);
+            }
+            result = replay.play(masks[0], masks[1]);
+        } catch (IOException | RuntimeException e) {
+            return new Verdict(submission.name, false, "unreadable replay: " + e.getMessage(), -1, -1);
+        }
+        if (replay.getDifficulty() != submission.claimedDifficulty) {
+            return new Verdict(submission.name, false, "claimed " + submission.claimedDifficulty
+                    + " but replay is " + replay.getDifficulty(), result.score, result.ticks);
+        }
+        if (result.score != submission.claimedScore) {
+            return new Verdict(submission.name, false, "claimed " + submission.claimedScore
+                    + " but replay scores " + result.score, result.score, result.ticks);
+        }
+        if (!replay.matches(result)) {
+            return new Verdict(submission.name, false, "replay footer does not match its simulation",
+                    result.score, result.ticks);
+        }
+        return new Verdict(submission.name, true, replay.getDifficulty() + " score " + result.score
+                + " reproduced, ended at tick " + result.ticks, result.score, result.ticks);
+    }
+
+    /**
+     * {@code java -cp out ReplayVerifier [file-or-directory...]} verifies saved replays
+     * (default: the replays directory). {@code java -cp out ReplayVerifier --bench [sessions]}
+     * generates sessions and times verifying them on 1, 2, 4... workers up to the core count.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--bench")) {
+            bench(args.length > 1 ? Integer.parseInt(args[1]) : 4000);
+            return;
+        }
+
+        List<Submission> submissions = new ArrayList<>();
+        for (String arg : args.length > 0 ? args : new String[] {"replays"}) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*.replay")) {
+                    for (Path file : files) {
+                        submissions.add(Submission.fromFile(file));
+                    }
+                }
+            } else {
+                submissions.add(Submission.fromFile(path));
+            }
+        }
+
+        ReplayVerifier verifier = new ReplayVerifier();
+        long start = System.nanoTime();
+        Verdict[] verdicts = verifier.verifyAll(submissions);
+        double millis = (System.nanoTime() - start) / 1e6;
+        verifier.shutdown();
+
+        int valid = 0;
+        for (Verdict verdict : verdicts) {
+            System.out.println(verdict);
+            valid += verdict.valid ? 1 : 0;
+        }
+        System.out.printf("%d of %d valid, verified in %.1f ms on %d cores%n", valid, verdicts.length, millis,
+                Runtime.getRuntime().availableProcessors());
+        if (valid < verdicts.length) {
+            System.exit(1);
+        }
+    }
+
+    private static void bench(int sessions) {
+        Random random = new Random(21);
+        GameWorld world = new GameWorld(Game.PLANE_WIDTH, Game.PLANE_HEIGHT, Game.BULLET_WIDTH, Game.BULLET_HEIGHT);
+        List<Submission> submissions = new ArrayList<>();
+        long ticks = 0;
+        for (int i = 0; i < sessions; i++) {
+            Difficulty difficulty = Difficulty.values()[i % 3];
+            byte[] data = Replay.recordRandomSession(world, difficulty, random);
+            // Every tenth claim is inflated, so the rejections are exercised too
+            int claimed = world.getScore() + (i % 10 == 0 ? 100 : 0);
+            submissions.add(new Submission("session-" + i, data, difficulty, claimed));
+            ticks += world.getTick();
+        }
+        System.out.printf("%d sessions, %d ticks%n", sessions, ticks);
+
+        // Let the JIT settle before anything is timed
+        ReplayVerifier warmup = new ReplayVerifier(1);
+        for (int i = 0; i < 3; i++) {
+            warmup.verifyAll(submissions);
+        }
+        warmup.shutdown();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int workers = 1; ; workers = Math.min(workers * 2, cores)) {
+            ReplayVerifier verifier = new ReplayVerifier(workers);
+            long start = System.nanoTime();
+            Verdict[] verdicts = verifier.verifyAll(submissions);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            verifier.shutdown();
+
+            int valid = 0;
+            for (Verdict verdict : verdicts) {
+                valid += verdict.valid ? 1 : 0;
+            }
+            double rate = sessions / seconds;
+            if (workers == 1) {
+                baseline = rate;
+            }
+            System.out.printf("%2d workers: %8.0f replays/s, %10.0f ticks/s, speedup %.2fx, %d valid%n",
+                    workers, rate, ticks / seconds, rate / baseline, valid);
+            if (workers == cores) {
+                break;
+            }
+        }
+    }
+}
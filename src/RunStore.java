@@ -0,0 +1,583 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every run, finished or abandoned, kept on disk in memory-mapped files so the history
+ * can grow to millions of runs without living on the heap.
+ *
+ * The .dat file holds fixed-width records (timestamp, seed, score, ticks, difficulty,
+ * outcome, flags) in the order they were appended (and so in time order). Each
+ * difficulty has an .idx file of (score, record) keys: a sorted prefix plus a short
+ * unsorted tail of recent runs, merged into the prefix whenever the tail fills up. Top-K
+ * and percentile queries binary-search or walk the prefix and scan the tail; time-range
+ * queries binary-search the records by timestamp.
+ *
+ * Runs the autopilot flew, or played with tuned balance, are kept in the records but
+ * left out of the indexes, so they never rank against the player's own runs.
+ */
+public class RunStore {
+    private static final int MAGIC_RUNS = 0x52554E53; // "RUNS"
+    private static final int MAGIC_INDEX = 0x52494458; // "RIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int INDEX_HEADER_BYTES = 24; // Adds the sorted prefix length
+    private static final int MERGING = -1; // Sorted length while a merge is rewriting the prefix
+    private static final int RECORD_BYTES = 32;
+    private static final int KEY_BYTES = 8;
+    private static final int MAX_TAIL = 1024; // Unsorted index entries before a merge
+    private static final int INITIAL_CAPACITY = 1024;
+    // Offsets and mappings are ints, which caps the store at about 67 million runs
+    static final int MAX_RUNS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+    // How a run ended (game over and level completed match the replay outcomes)
+    public static final int OUTCOME_GAME_OVER = 0;
+    public static final int OUTCOME_LEVEL_COMPLETED = 1;
+    public static final int OUTCOME_ABANDONED = 2;
+
+    // Run flags; flagged runs are not ranked
+    public static final int FLAG_AUTOPILOT = 1;
+    public static final int FLAG_TUNED = 2; // Spawn rate or bullet speed changed from the defaults
+
+    /**
+     * One run, finished or abandoned. Duration is in simulation ticks.
+     */
+    public static class Run {
+        public final long timestamp;
+        public final long seed;
+        public final Difficulty difficulty;
+        public final int score;
+        public final int ticks;
+        public final int outcome;
+        public final int flags;
+
+        public Run(long timestamp, long seed, Difficulty difficulty, int score, int ticks) {
+            this(timestamp, seed, difficulty, score, ticks, OUTCOME_GAME_OVER, 0);
+        }
+
+        public Run(long timestamp, long seed, Difficulty difficulty, int score, int ticks, int outcome, int flags) {
+            this.timestamp = timestamp;
+            this.seed = seed;
+            this.difficulty = difficulty;
+            this.score = score;
+            this.ticks = ticks;
+            this.outcome = outcome;
+            this.flags = flags;
+        }
+
+        public boolean isRanked() {
+            return flags == 0;
+        }
+
+        @Override
+        public String toString() {
+            String ended = outcome == OUTCOME_ABANDONED ? ", abandoned" : outcome == OUTCOME_LEVEL_COMPLETED ? ", completed" : "";
+            String how = (flags & FLAG_AUTOPILOT) != 0 ? ", autopilot" : (flags & FLAG_TUNED) != 0 ? ", tuned" : "";
+            return difficulty + " " + score + " (" + ticks + " ticks" + ended + how + ", seed " + seed + ", at " + timestamp + ")";
+        }
+    }
+
+    // A file mapped read-write whose mapping grows by doubling
+    private static class MappedFile {
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+
+        MappedFile(Path path, long minimumBytes) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(Math.max(minimumBytes, channel.size()));
+        }
+
+        private void map(long bytes) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+
+        void ensureCapacity(long bytes) throws IOException {
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Run store file would pass 2 GB");
+            }
+            if (bytes > buffer.capacity()) {
+                long size = buffer.capacity();
+                while (size < bytes) {
+                    size = Math.min(size * 2, Integer.MAX_VALUE); // The largest mapping there is
+                }
+                map(size);
+            }
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private final MappedFile runs;
+    private final MappedFile[] indexes = new MappedFile[Difficulty.values().length];
+    private volatile int runCount;
+    private long lastTimestamp;
+
+    // Scratch for sorting index tails; queries and appends are synchronized
+    private final long[] tailScratch = new long[MAX_TAIL];
+
+    private ExecutorService writer;
+
+    private RunStore(String baseName) throws IOException {
+        runs = new MappedFile(new File(baseName + ".dat").toPath(), HEADER_BYTES + (long) INITIAL_CAPACITY * RECORD_BYTES);
+        int stored = checkHeader(runs, MAGIC_RUNS);
+        long fits = (runs.channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        runCount = (int) Math.min(stored, fits);
+        if (runCount > 0) {
+            lastTimestamp = runs.buffer.getLong(recordOffset(runCount - 1));
+        }
+
+        for (Difficulty difficulty : Difficulty.values()) {
+            Path path = new File(baseName + "." + difficulty.name().toLowerCase() + ".idx").toPath();
+            MappedFile index = new MappedFile(path, INDEX_HEADER_BYTES + (long) INITIAL_CAPACITY * KEY_BYTES);
+            indexes[difficulty.ordinal()] = index;
+            checkHeader(index, MAGIC_INDEX);
+            recoverIndex(difficulty);
+        }
+    }
+
+    /**
+     * Opens (or creates) the store at baseName.dat plus one baseName.difficulty.idx per difficulty.
+     */
+    public static RunStore open(String baseName) throws IOException {
+        return new RunStore(baseName);
+    }
+
+    // Writes a fresh header into an empty file; returns the stored count
+    private static int checkHeader(MappedFile file, int magic) throws IOException {
+        MappedByteBuffer b = file.buffer;
+        int found = b.getInt(0);
+        if (found == 0) {
+            b.putInt(0, magic);
+            b.putInt(4, VERSION);
+            b.putInt(8, 0);
+            b.putInt(12, 0);
+            if (magic == MAGIC_INDEX) {
+                b.putInt(16, 0);
+            }
+            return 0;
+        }
+        if (found != magic || b.getInt(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " run store file");
+        }
+        return b.getInt(8);
+    }
+
+    // Index header: count at 8, records it has seen at 12, sorted prefix length at 16
+    private void recoverIndex(Difficulty difficulty) throws IOException {
+        MappedFile index = indexes[difficulty.ordinal()];
+        int covered = index.buffer.getInt(12);
+        if (covered > runCount || indexCount(index) > covered || sortedCount(index) == MERGING
+                || sortedCount(index) > indexCount(index)) {
+            // Ahead of the records (they were cut short) or stopped mid-merge; rebuild it
+            System.out.println("Rebuilding " + difficulty + " run index");
+            index.buffer.putInt(8, 0);
+            setSortedCount(index, 0);
+            covered = 0;
+        }
+        for (int i = covered; i < runCount; i++) {
+            if (runs.buffer.get(recordOffset(i) + 24) == difficulty.ordinal() && runs.buffer.get(recordOffset(i) + 26) == 0) {
+                // A crash between adding a key and updating covered leaves the key in already
+                long key = key(runs.buffer.getInt(recordOffset(i) + 16), i);
+                if (!containsKey(index, key)) {
+                    addKey(index, key);
+                }
+            }
+        }
+        index.buffer.putInt(12, runCount);
+    }
+
+    private static int recordOffset(int record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+
+    // Scores are non-negative, so keys sort by score and then by record number
+    private static long key(int score, int record) {
+        return ((long) score << 32) | record;
+    }
+
+    private static int indexCount(MappedFile index) {
+        return index.buffer.getInt(8);
+    }
+
+    private static int sortedCount(MappedFile index) {
+        return index.buffer.getInt(16);
+    }
+
+    private static void setSortedCount(MappedFile index, int sorted) {
+        index.buffer.putInt(16, sorted);
+    }
+
+    /**
+     * Appends a run and indexes it. Timestamps earlier than the last run's are raised to it,
+     * keeping the records in time order.
+     */
+    public synchronized void append(Run run) throws IOException {
+        int record = runCount;
+        if (record >= MAX_RUNS) {
+            throw new IOException("Run history full (" + MAX_RUNS + " runs)");
+        }
+        runs.ensureCapacity(HEADER_BYTES + (long) (record + 1) * RECORD_BYTES);
+        long timestamp = Math.max(run.timestamp, lastTimestamp);
+        int offset = recordOffset(record);
+        MappedByteBuffer b = runs.buffer;
+        b.putLong(offset, timestamp);
+        b.putLong(offset + 8, run.seed);
+        b.putInt(offset + 16, Math.max(0, run.score));
+        b.putInt(offset + 20, run.ticks);
+        b.put(offset + 24, (byte) run.difficulty.ordinal());
+        b.put(offset + 25, (byte) run.outcome);
+        b.put(offset + 26, (byte) run.flags);
+        b.putInt(8, record + 1); // Count last, so a crash never exposes a half-written record
+        lastTimestamp = timestamp;
+        runCount = record + 1;
+
+        if (run.isRanked()) {
+            addKey(indexes[run.difficulty.ordinal()], key(Math.max(0, run.score), record));
+        }
+        for (MappedFile index : indexes) {
+            index.buffer.putInt(12, runCount);
+        }
+    }
+
+    /**
+     * Appends a run on a background thread, keeping file growth and index merges off the caller.
+     */
+    public synchronized void record(Run run) {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "run-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        writer.execute(() -> {
+            try {
+                append(run);
+            } catch (IOException e) {
+                System.out.println("Error recording run: " + e.getMessage());
+            }
+        });
+    }
+
+    private void addKey(MappedFile index, long key) throws IOException {
+        int count = indexCount(index);
+        index.ensureCapacity(INDEX_HEADER_BYTES + (long) (count + 1) * KEY_BYTES);
+        index.buffer.putLong(INDEX_HEADER_BYTES + count * KEY_BYTES, key);
+        index.buffer.putInt(8, count + 1);
+        if (count + 1 - sortedCount(index) >= MAX_TAIL) {
+            mergeTail(index);
+        }
+    }
+
+    // Sorts the tail and merges it into the sorted prefix in place, filling from the end
+    private void mergeTail(MappedFile index) {
+        MappedByteBuffer b = index.buffer;
+        int count = indexCount(index);
+        int sorted = sortedCount(index);
+        int tail = count - sorted;
+        for (int i = 0; i < tail; i++) {
+            tailScratch[i] = b.getLong(INDEX_HEADER_BYTES + (sorted + i) * KEY_BYTES);
+        }
+        Arrays.sort(tailScratch, 0, tail);
+        setSortedCount(index, MERGING);
+        int i = sorted - 1, j = tail - 1;
+        for (int k = count - 1; j >= 0; k--) {
+            long fromPrefix = i >= 0 ? b.getLong(INDEX_HEADER_BYTES + i * KEY_BYTES) : Long.MIN_VALUE;
+            if (fromPrefix > tailScratch[j]) {
+                b.putLong(INDEX_HEADER_BYTES + k * KEY_BYTES, fromPrefix);
+                i--;
+            } else {
+                b.putLong(INDEX_HEADER_BYTES + k * KEY_BYTES, tailScratch[j--]);
+            }
+        }
+        setSortedCount(index, count);
+    }
+
+    // Copies and sorts the unsorted tail into tailScratch; returns its length
+    private int sortedTail(MappedFile index) {
+        int sorted = sortedCount(index);
+        int tail = indexCount(index) - sorted;
+        for (int i = 0; i < tail; i++) {
+            tailScratch[i] = index.buffer.getLong(INDEX_HEADER_BYTES + (sorted + i) * KEY_BYTES);
+        }
+        Arrays.sort(tailScratch, 0, tail);
+        return tail;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Ranked runs at a difficulty (those the player flew at the default balance).
+     */
+    public synchronized int getRunCount(Difficulty difficulty) {
+        return indexCount(indexes[difficulty.ordinal()]);
+    }
+
+    public synchronized Run get(int record) {
+        if (record < 0 || record >= runCount) {
+            throw new IndexOutOfBoundsException("Run " + record + " of " + runCount);
+        }
+        int offset = recordOffset(record);
+        MappedByteBuffer b = runs.buffer;
+        return new Run(b.getLong(offset), b.getLong(offset + 8), Difficulty.values()[b.get(offset + 24)],
+                b.getInt(offset + 16), b.getInt(offset + 20), b.get(offset + 25), b.get(offset + 26));
+    }
+
+    /**
+     * The k best ranked runs at a difficulty, best first (the later run first on a tie).
+     */
+    public synchronized List<Run> topK(Difficulty difficulty, int k) {
+        MappedFile index = indexes[difficulty.ordinal()];
+        int tail = sortedTail(index);
+        int i = sortedCount(index) - 1, j = tail - 1;
+        List<Run> top = new ArrayList<>(Math.min(k, i + 1 + tail));
+        while (top.size() < k && (i >= 0 || j >= 0)) {
+            long fromPrefix = i >= 0 ? index.buffer.getLong(INDEX_HEADER_BYTES + i * KEY_BYTES) : Long.MIN_VALUE;
+            long best;
+            if (j < 0 || fromPrefix > tailScratch[j]) {
+                best = fromPrefix;
+                i--;
+            } else {
+                best = tailScratch[j--];
+            }
+            top.add(get((int) best));
+        }
+        return top;
+    }
+
+    /**
+     * Percentage of ranked runs at a difficulty that scored below the given score.
+     */
+    public synchronized double percentileRank(Difficulty difficulty, int score) {
+        MappedFile index = indexes[difficulty.ordinal()];
+        int total = indexCount(index);
+        if (total == 0) {
+            return 0;
+        }
+        long bound = key(Math.max(0, score), 0);
+        int sorted = sortedCount(index);
+        int below = lowerBound(index, sorted, bound);
+        for (int i = sorted; i < total; i++) {
+            if (index.buffer.getLong(INDEX_HEADER_BYTES + i * KEY_BYTES) < bound) {
+                below++;
+            }
+        }
+        return 100.0 * below / total;
+    }
+
+    private static boolean containsKey(MappedFile index, long key) {
+        int sorted = sortedCount(index);
+        int at = lowerBound(index, sorted, key);
+        if (at < sorted && index.buffer.getLong(INDEX_HEADER_BYTES + at * KEY_BYTES) == key) {
+            return true;
+        }
+        for (int i = sorted, n = indexCount(index); i < n; i++) {
+            if (index.buffer.getLong(INDEX_HEADER_BYTES + i * KEY_BYTES) == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // First position in the sorted prefix whose key is >= the given key
+    private static int lowerBound(MappedFile index, int sorted, long key) {
+        int lo = 0, hi = sorted;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.buffer.getLong(INDEX_HEADER_BYTES + mid * KEY_BYTES) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // First record with a timestamp >= the given one
+    private int firstAtOrAfter(long timestamp) {
+        int lo = 0, hi = runCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs.buffer.getLong(recordOffset(mid)) < timestamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Number of runs finished in [from, to), in epoch milliseconds.
+     */
+    public synchronized int countBetween(long from, long to) {
+        return Math.max(0, firstAtOrAfter(to) - firstAtOrAfter(from));
+    }
+
+    /**
+     * Up to limit runs finished in [from, to), oldest first.
+     */
+    public synchronized List<Run> runsBetween(long from, long to, int limit) {
+        int start = firstAtOrAfter(from);
+        int end = Math.min(firstAtOrAfter(to), start + limit);
+        List<Run> result = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Waits for queued runs to be written, then syncs and closes the files.
+     */
+    public void close() throws IOException {
+        ExecutorService w;
+        synchronized (this) {
+            w = writer;
+        }
+        if (w != null) {
+            w.shutdown();
+            try {
+                w.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            runs.close();
+            for (MappedFile index : indexes) {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Fills a scratch store with runs and times appends, reopening and each query,
+     * checking the query results against brute force over the same runs.
+     * {@code java -cp out RunStore [runs]}
+     */
+    public static void main(String[] args) throws IOException {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("runs");
+        String base = dir.resolve("runs").toString();
+        Random random = new Random(7);
+        int[] scores = new int[total];
+        byte[] difficulties = new byte[total];
+        boolean[] ranked = new boolean[total];
+        long startTime = 1_700_000_000_000L;
+
+        RunStore store = RunStore.open(base);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            Difficulty difficulty = Difficulty.values()[random.nextInt(3)];
+            scores[i] = random.nextInt(5000);
+            difficulties[i] = (byte) difficulty.ordinal();
+            ranked[i] = i % 10 != 5 || i == total - 1; // Some autopilot runs; the last stays ranked for the crash below
+            store.append(new Run(startTime + i * 1000L, random.nextLong(), difficulty, scores[i], random.nextInt(5000),
+                    i % 3, ranked[i] ? 0 : FLAG_AUTOPILOT));
+        }
+        System.out.printf("Appended %d runs in %.0f ms (%.2f us/run)%n", total,
+                (System.nanoTime() - start) / 1e6, (System.nanoTime() - start) / 1e3 / total);
+        store.close();
+
+        // As if the process died after indexing the last run but before marking it covered
+        int lastDifficulty = difficulties[total - 1];
+        Path lastIndex = dir.resolve("runs." + Difficulty.values()[lastDifficulty].name().toLowerCase() + ".idx");
+        try (FileChannel channel = FileChannel.open(lastIndex, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, total - 1), 12);
+        }
+
+        start = System.nanoTime();
+        store = RunStore.open(base);
+        System.out.printf("Reopened in %.2f ms, %d runs%n", (System.nanoTime() - start) / 1e6, store.getRunCount());
+
+        boolean ok = store.getRunCount() == total && store.get(total - 1).outcome == (total - 1) % 3
+                && store.get(Math.min(5, total - 1)).isRanked() == ranked[Math.min(5, total - 1)];
+        int[] perDifficulty = new int[Difficulty.values().length];
+        for (int i = 0; i < total; i++) {
+            perDifficulty[difficulties[i]] += ranked[i] ? 1 : 0;
+        }
+        for (Difficulty difficulty : Difficulty.values()) {
+            if (store.getRunCount(difficulty) != perDifficulty[difficulty.ordinal()]) {
+                System.out.println("FAIL: " + difficulty + " index has " + store.getRunCount(difficulty) + " runs, not "
+                        + perDifficulty[difficulty.ordinal()]);
+                ok = false;
+            }
+        }
+        List<Run> top = store.topK(Difficulty.HARD, 10);
+        double rank = store.percentileRank(Difficulty.HARD, 2500);
+        int inRange = store.countBetween(startTime + 1000L * total / 4, startTime + 1000L * total / 2);
+        int[] hard = new int[total];
+        int hardCount = 0, below = 0;
+        for (int i = 0; i < total; i++) {
+            if (difficulties[i] == Difficulty.HARD.ordinal() && ranked[i]) {
+                hard[hardCount++] = scores[i];
+                below += scores[i] < 2500 ? 1 : 0;
+            }
+        }
+        Arrays.sort(hard, 0, hardCount);
+        for (int i = 0; i < top.size(); i++) {
+            ok &= top.get(i).score == hard[hardCount - 1 - i];
+        }
+        ok &= Math.abs(rank - 100.0 * below / hardCount) < 1e-9;
+        ok &= inRange == total / 4;
+        System.out.println("Best HARD run: " + top.get(0) + ", 2500 beats " + String.format("%.2f%%", rank));
+
+        // Warm up, then average each query
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int repeats = 10_000;
+            long topNanos = 0, rankNanos = 0, rangeNanos = 0;
+            for (int q = 0; q < repeats; q++) {
+                long t0 = System.nanoTime();
+                sink += store.topK(Difficulty.HARD, 10).size();
+                long t1 = System.nanoTime();
+                sink += (long) store.percentileRank(Difficulty.values()[q % 3], q % 5000);
+                long t2 = System.nanoTime();
+                long from = startTime + 1000L * random.nextInt(total);
+                sink += store.countBetween(from, from + 3_600_000L);
+                long t3 = System.nanoTime();
+                topNanos += t1 - t0;
+                rankNanos += t2 - t1;
+                rangeNanos += t3 - t2;
+            }
+            if (pass == 1) {
+                System.out.printf("Average: top-10 %.1f us, percentile rank %.1f us, time range %.1f us%n",
+                        topNanos / 1e3 / repeats, rankNanos / 1e3 / repeats, rangeNanos / 1e3 / repeats);
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+        store.close();
+
+        for (File f : dir.toFile().listFiles()) {
+            f.delete();
+        }
+        dir.toFile().delete();
+        if (!ok) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
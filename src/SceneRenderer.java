@@ -0,0 +1,14 @@
+import java.awt.Graphics2D;
+
+/**
+ * Draws gameplay frames from world snapshots: the background, the bullets, the plane or
+ * its explosion, then the HUD. Menus and frozen screens are always drawn with Java2D;
+ * only the moving scene goes through the renderer the game picked.
+ */
+public interface SceneRenderer {
+    /**
+     * Draws the snapshot's scene over the whole of g. alpha (0-1) interpolates moving
+     * sprites between the previous tick and the snapshot's.
+     */
+    void draw(Graphics2D g, WorldSnapshot snapshot, double alpha);
+}
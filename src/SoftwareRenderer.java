@@ -0,0 +1,272 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Scene renderer that composites the background, bullets and plane itself, straight into
+ * the int[] pixels of one TYPE_INT_RGB framebuffer, then blits that once. Sprites are kept
+ * as premultiplied ARGB arrays with the transparent ends of every row trimmed, so a blend
+ * is a few integer ops per covered pixel with no per-call Java2D overhead; without a GPU
+ * this beats one drawImage per bullet once there are more than a handful.
+ *
+ * The HUD is drawn over the framebuffer with Java2D by the given callback (a few cached
+ * layer blits), so it still costs nothing per bullet.
+ */
+public class SoftwareRenderer implements SceneRenderer {
+    private final int width, height;
+    private final BiConsumer<Graphics2D, WorldSnapshot> hud;
+    private final BufferedImage frame;
+    private final int[] pixels;
+    private final Graphics2D frameGraphics;
+    private FrameProfiler profiler; // Null unless the phases are being timed
+
+    // The snapshot images, converted when its resourcesVersion changes
+    private long loadedVersion = -1;
+    private final int[] background;
+    private int[][] spritePixels = new int[0][];
+    private int[] spriteWidth = new int[0], spriteHeight = new int[0];
+    private int[][] rowStart = new int[0][], rowEnd = new int[0][]; // Visible columns per row, end exclusive
+
+    public SoftwareRenderer(int width, int height, BiConsumer<Graphics2D, WorldSnapshot> hud) {
+        this.width = width;
+        this.height = height;
+        this.hud = hud;
+        frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        background = new int[width * height];
+        frameGraphics = frame.createGraphics();
+        frameGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void draw(Graphics2D g, WorldSnapshot snapshot, double alpha) {
+        FrameProfiler profiler = this.profiler;
+        long start = System.nanoTime();
+        if (snapshot.resourcesVersion != loadedVersion) {
+            load(snapshot);
+        }
+        System.arraycopy(background, 0, pixels, 0, pixels.length);
+        long backgroundDone = System.nanoTime();
+
+        long bulletsDone = backgroundDone;
+        if (!snapshot.gameOver || snapshot.explosion) {
+            double back = snapshot.gameOver ? 0 : 1.0 - alpha;
+            int bullet = snapshot.bulletSprite;
+            for (int i = 0, n = snapshot.bulletCount; i < n; i++) {
+                int x = (int) Math.round(snapshot.bulletX[i] - snapshot.bulletVelocityX[i] * back);
+                blend(bullet, x, snapshot.bulletY[i]);
+            }
+            bulletsDone = System.nanoTime();
+
+            if (snapshot.explosion) {
+                blend(snapshot.explosionSprite, snapshot.planeX, snapshot.planeY);
+            } else {
+                blend(snapshot.planeSprite, interpolate(snapshot.planePrevX, snapshot.planeX, alpha),
+                        interpolate(snapshot.planePrevY, snapshot.planeY, alpha));
+            }
+        }
+        long planeDone = System.nanoTime();
+
+        hud.accept(frameGraphics, snapshot);
+        long hudDone = System.nanoTime();
+        g.drawImage(frame, 0, 0, null);
+
+        if (profiler != null) {
+            // The final blit counts as background, as with the retained Java2D frame
+            profiler.record(FrameProfiler.BACKGROUND, backgroundDone - start + System.nanoTime() - hudDone);
+            profiler.record(FrameProfiler.BULLETS, bulletsDone - backgroundDone);
+            profiler.record(FrameProfiler.PLANE, planeDone - bulletsDone);
+            profiler.record(FrameProfiler.HUD, hudDone - planeDone);
+            profiler.begin();
+        }
+    }
+
+    // Same rounding as Game's, so both backends put sprites on the same pixels
+    private static int interpolate(int previous, int current, double alpha) {
+        if (Math.abs(current - previous) > GameWorld.WIDTH / 2) {
+            return current;
+        }
+        return (int) Math.round(previous + (current - previous) * alpha);
+    }
+
+    /**
+     * Blends a sprite over the framebuffer at (x, y), clipped to the screen:
+     * dst = src + dst * (255 - srcAlpha) / 255 per channel, with src premultiplied.
+     */
+    private void blend(int sprite, int x, int y) {
+        int[] src = spritePixels[sprite];
+        int w = spriteWidth[sprite];
+        int[] starts = rowStart[sprite], ends = rowEnd[sprite];
+        int top = Math.max(0, -y), bottom = Math.min(spriteHeight[sprite], height - y);
+        int left = -x, right = width - x; // Visible sprite columns
+        int[] dst = pixels;
+        for (int row = top; row < bottom; row++) {
+            int c0 = Math.max(starts[row], left), c1 = Math.min(ends[row], right);
+            int s = row * w;
+            int d = (y + row) * width + x;
+            for (int c = c0; c < c1; c++) {
+                int p = src[s + c];
+                int inverse = 255 - (p >>> 24);
+                if (inverse == 0) {
+                    dst[d + c] = p;
+                } else if (inverse != 255) {
+                    // Red and blue scaled together in one int, each rounded x / 255
+                    int q = dst[d + c];
+                    int rb = (q & 0xFF00FF) * inverse + 0x800080;
+                    rb = ((rb + ((rb >>> 8) & 0xFF00FF)) >>> 8) & 0xFF00FF;
+                    int gr = ((q >>> 8) & 0xFF) * inverse + 0x80;
+                    gr = (gr + (gr >>> 8)) >>> 8;
+                    dst[d + c] = (p & 0xFFFFFF) + rb + (gr << 8);
+                }
+            }
+        }
+    }
+
+    private void load(WorldSnapshot snapshot) {
+        loadedVersion = snapshot.resourcesVersion;
+        Arrays.fill(background, 0);
+        BufferedImage image = snapshot.background;
+        if (image != null) {
+            int w = Math.min(width, image.getWidth()), h = Math.min(height, image.getHeight());
+            image.getRGB(0, 0, w, h, background, 0, width);
+        }
+
+        SpriteAtlas sprites = snapshot.sprites;
+        int count = Math.max(snapshot.planeSprite, Math.max(snapshot.bulletSprite, snapshot.explosionSprite)) + 1;
+        spritePixels = new int[count][];
+        spriteWidth = new int[count];
+        spriteHeight = new int[count];
+        rowStart = new int[count][];
+        rowEnd = new int[count][];
+        for (int sprite = 0; sprite < count; sprite++) {
+            int w = sprites.getWidth(sprite), h = sprites.getHeight(sprite);
+            int[] argb = premultiplied(sprites.getImage(), sprites.getSourceX(sprite), sprites.getSourceY(sprite), w, h);
+            int[] starts = new int[h], ends = new int[h];
+            for (int row = 0; row < h; row++) {
+                int first = 0, last = w;
+                while (first < w && argb[row * w + first] >>> 24 == 0) {
+                    first++;
+                }
+                while (last > first && argb[row * w + last - 1] >>> 24 == 0) {
+                    last--;
+                }
+                starts[row] = first;
+                ends[row] = last;
+            }
+            spritePixels[sprite] = argb;
+            spriteWidth[sprite] = w;
+            spriteHeight[sprite] = h;
+            rowStart[sprite] = starts;
+            rowEnd[sprite] = ends;
+        }
+    }
+
+    // Premultiplied ARGB of a region; copied as is from premultiplied int images, so the
+    // colours are exactly what Java2D blends from the same image
+    private static int[] premultiplied(BufferedImage image, int x, int y, int w, int h) {
+        int[] argb = new int[w * h];
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE) {
+            image.getRaster().getDataElements(x, y, w, h, argb);
+            return argb;
+        }
+        image.getRGB(x, y, w, h, argb, 0, w);
+        for (int i = 0; i < argb.length; i++) {
+            int p = argb[i];
+            int a = p >>> 24;
+            if (a != 255) {
+                int r = ((p >>> 16) & 0xFF) * a + 127, g = ((p >>> 8) & 0xFF) * a + 127, b = (p & 0xFF) * a + 127;
+                argb[i] = (a << 24) | (r / 255 << 16) | (g / 255 << 8) | b / 255;
+            }
+        }
+        return argb;
+    }
+
+    /**
+     * Benchmark mode: frames per second of the Java2D backend (full redraws and dirty
+     * regions) and this one as the bullet count grows, drawing into an offscreen frame with
+     * the bullets moving every frame; each software frame is also checked against a Java2D
+     * redraw, allowing one step of rounding per channel:
+     * {@code java -Djava.awt.headless=true -cp out SoftwareRenderer [bulletCount,...]}.
+     * Exits with status 1 if the frames differ.
+     */
+    public static void main(String[] args) {
+        String[] parts = (args.length > 0 ? args[0] : "10,100,1000,5000,20000").split(",");
+        Game game = new Game();
+        game.getResourcesLoaded().join();
+        BufferedImage target = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage reference = new BufferedImage(GameWorld.WIDTH, GameWorld.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        Graphics2D referenceG = reference.createGraphics();
+        int[] actual = new int[GameWorld.WIDTH * GameWorld.HEIGHT];
+        int[] expected = new int[actual.length];
+        Random random = new Random(23);
+        String[] backends = {"java2d", "java2d-dirty", "software"};
+        boolean ok = true;
+
+        System.out.printf("%8s %12s %12s %12s %10s%n", "bullets", "java2d fps", "dirty fps", "software fps", "max diff");
+        for (String part : parts) {
+            int count = Integer.parseInt(part.trim());
+            double[] fps = new double[backends.length];
+            for (int b = 0; b < backends.length; b++) {
+                game.setSoftwareRendering(b == 2);
+                game.setDirtyRendering(b == 1);
+                game.startLevel(Difficulty.MEDIUM);
+                Benchmarks.fill(game.getWorld().getBullets(), count, random);
+                drawFrames(game, g, count, random, 300_000_000L);
+                fps[b] = drawFrames(game, g, count, random, 1_000_000_000L);
+            }
+
+            // Software frame against a Java2D redraw of the same snapshot, mid-way between ticks
+            int maxDiff = 0;
+            for (int i = 0; i < 10; i++) {
+                drawFrames(game, g, count, random, 0);
+                game.renderFrame(g, 0.5);
+                game.drawReferenceScene(referenceG, 0.5);
+                target.getRGB(0, 0, GameWorld.WIDTH, GameWorld.HEIGHT, actual, 0, GameWorld.WIDTH);
+                reference.getRGB(0, 0, GameWorld.WIDTH, GameWorld.HEIGHT, expected, 0, GameWorld.WIDTH);
+                for (int p = 0; p < actual.length; p++) {
+                    for (int shift = 0; shift < 24; shift += 8) {
+                        int diff = Math.abs(((actual[p] >>> shift) & 0xFF) - ((expected[p] >>> shift) & 0xFF));
+                        maxDiff = Math.max(maxDiff, diff);
+                    }
+                }
+            }
+            System.out.printf("%8d %12.1f %12.1f %12.1f %10d%n", count, fps[0], fps[1], fps[2], maxDiff);
+            if (maxDiff > 1) {
+                System.out.println("FAIL: software frames with " + count + " bullets differ from Java2D");
+                ok = false;
+            }
+        }
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    // Moves the bullets (keeping count of them) and draws frames for roughly the given time,
+    // or just one; returns frames per second
+    private static double drawFrames(Game game, Graphics2D g, int count, Random random, long nanos) {
+        long start = System.nanoTime();
+        long frames = 0;
+        long elapsed;
+        do {
+            GameWorld world = game.getWorld();
+            world.updateBullets();
+            BulletPool bullets = world.getBullets();
+            while (bullets.size() < count) {
+                bullets.spawn(GameWorld.WIDTH, random.nextInt(GameWorld.HEIGHT - 30), 60, 30, GameWorld.MEDIUM_BULLET_SPEED);
+            }
+            game.publishSnapshot();
+            game.renderFrame(g, 1.0);
+            frames++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return frames / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.Arrays;
+
+/**
+ * Uniform grid broad phase over the playfield.
+ * Each bullet is filed under the cell holding its top-left corner (bullets outside
+ * the playfield are clamped into the border cells), and queries widen their search
+ * by the largest bullet size so bullets straddling cells are still found.
+ * The grid is rebuilt once per tick with a counting sort into flat int arrays, so it
+ * allocates nothing in steady state, and a query only touches the cells around
+ * the area asked about.
+ */
+public class SpatialGrid {
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+
+    // cellStart[c]..cellStart[c + 1] is the range of cellItems belonging to cell c
+    private final int[] cellStart;
+    private final int[] cellFill;
+    private int[] cellItems = new int[256];
+    private int[] itemCell = new int[256];
+
+    private BulletPool bullets;
+    private int maxItemWidth;
+    private int maxItemHeight;
+
+    public SpatialGrid(int width, int height, int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cellStart = new int[columns * rows + 1];
+        this.cellFill = new int[columns * rows];
+    }
+
+    /**
+     * Re-indexes every bullet in the pool. Call after bullets have moved and before querying.
+     */
+    public void rebuild(BulletPool bullets) {
+        this.bullets = bullets;
+        int n = bullets.size();
+        if (itemCell.length < n) {
+            int capacity = Math.max(n, itemCell.length * 2);
+            itemCell = new int[capacity];
+            cellItems = new int[capacity];
+        }
+
+        // Count bullets per cell
+        Arrays.fill(cellFill, 0);
+        int maxW = 0, maxH = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = row(bullets.getY(i)) * columns + column(bullets.getX(i));
+            itemCell[i] = cell;
+            cellFill[cell]++;
+            maxW = Math.max(maxW, bullets.getWidth(i));
+            maxH = Math.max(maxH, bullets.getHeight(i));
+        }
+        maxItemWidth = maxW;
+        maxItemHeight = maxH;
+
+        // Prefix sums give each cell's start offset; cellFill becomes the write cursor
+        int offset = 0;
+        for (int c = 0; c < cellFill.length; c++) {
+            cellStart[c] = offset;
+            offset += cellFill[c];
+            cellFill[c] = cellStart[c];
+        }
+        cellStart[cellFill.length] = offset;
+
+        for (int i = 0; i < n; i++) {
+            cellItems[cellFill[itemCell[i]]++] = i;
+        }
+    }
+
+    /**
+     * Returns the index of a bullet overlapping the given box, or -1 if there is none.
+     */
+    public int firstOverlap(int x, int y, int width, int height) {
+        if (bullets == null) {
+            return -1;
+        }
+        int c0 = column(x - maxItemWidth), c1 = column(x + width);
+        int r0 = row(y - maxItemHeight), r1 = row(y + height);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+                    int i = cellItems[k];
+                    if (GameWorld.intersects(x, y, width, height,
+                            bullets.getX(i), bullets.getY(i), bullets.getWidth(i), bullets.getHeight(i))) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the indices of bullets overlapping the given box into out and returns how many
+     * were found. Stops early once out is full.
+     */
+    public int queryOverlaps(int x, int y, int width, int height, int[] out) {
+        if (bullets == null) {
+            return 0;
+        }
+        int found = 0;
+        int c0 = column(x - maxItemWidth), c1 = column(x + width);
+        int r0 = row(y - maxItemHeight), r1 = row(y + height);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+                    int i = cellItems[k];
+                    if (GameWorld.intersects(x, y, width, height,
+                            bullets.getX(i), bullets.getY(i), bullets.getWidth(i), bullets.getHeight(i))) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int column(int x) {
+        int c = Math.floorDiv(x, cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    private int row(int y) {
+        int r = Math.floorDiv(y, cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+}
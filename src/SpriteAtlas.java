@@ -0,0 +1,97 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs several sprites side by side into one compatible image and draws them as
+ * sub-rectangles, so every sprite blit reads from the same (managed) surface.
+ * Add all sprites, call pack(), then draw by the id add() returned.
+ */
+public class SpriteAtlas {
+    private static final int PADDING = 1; // Keeps neighbours from bleeding into each other
+
+    private final List<BufferedImage> pending = new ArrayList<>();
+    private int[] sx, sy, sw, sh;
+    private BufferedImage image;
+
+    public int add(BufferedImage sprite) {
+        if (image != null) {
+            throw new IllegalStateException("Atlas already packed");
+        }
+        pending.add(sprite);
+        return pending.size() - 1;
+    }
+
+    /**
+     * Lays the sprites out in a single row and copies them into the atlas image.
+     */
+    public void pack() {
+        int count = pending.size();
+        sx = new int[count];
+        sy = new int[count];
+        sw = new int[count];
+        sh = new int[count];
+
+        int width = 0, height = 1, transparency = Transparency.OPAQUE;
+        for (int i = 0; i < count; i++) {
+            BufferedImage sprite = pending.get(i);
+            sx[i] = width;
+            sw[i] = sprite.getWidth();
+            sh[i] = sprite.getHeight();
+            width += sw[i] + PADDING;
+            height = Math.max(height, sh[i]);
+            transparency = Math.max(transparency, CompatibleImages.transparencyOf(sprite));
+        }
+
+        image = CompatibleImages.create(Math.max(1, width), height, transparency);
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        for (int i = 0; i < count; i++) {
+            g.drawImage(pending.get(i), sx[i], sy[i], null);
+        }
+        g.dispose();
+        pending.clear();
+    }
+
+    public void draw(Graphics2D g, int sprite, int x, int y) {
+        int left = sx[sprite], top = sy[sprite];
+        int w = sw[sprite], h = sh[sprite];
+        g.drawImage(image, x, y, x + w, y + h, left, top, left + w, top + h, null);
+    }
+
+    /**
+     * Draws only the part of the sprite at (x, y) inside the given clip rectangle.
+     */
+    public void draw(Graphics2D g, int sprite, int x, int y, int clipX, int clipY, int clipWidth, int clipHeight) {
+        int x0 = Math.max(x, clipX), y0 = Math.max(y, clipY);
+        int x1 = Math.min(x + sw[sprite], clipX + clipWidth), y1 = Math.min(y + sh[sprite], clipY + clipHeight);
+        if (x0 < x1 && y0 < y1) {
+            int dx = sx[sprite] - x, dy = sy[sprite] - y;
+            g.drawImage(image, x0, y0, x1, y1, x0 + dx, y0 + dy, x1 + dx, y1 + dy, null);
+        }
+    }
+
+    public int getWidth(int sprite) {
+        return sw[sprite];
+    }
+
+    public int getHeight(int sprite) {
+        return sh[sprite];
+    }
+
+    // Where the sprite sits in getImage()
+    public int getSourceX(int sprite) {
+        return sx[sprite];
+    }
+
+    public int getSourceY(int sprite) {
+        return sy[sprite];
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Player input sampled for a single simulation tick.
+ * Plain fields only, so it can be filled in by Swing listeners, bots or replays.
+ */
+public class TickInput {
+    // Arrow keys currently held down
+    public boolean up, down, left, right;
+
+    // Mouse steering
+    public boolean mouseControl = true;
+    public boolean mouseMoved;
+    public int mouseX, mouseY;
+
+    public void clear() {
+        up = down = left = right = false;
+        mouseMoved = false;
+    }
+
+    public void copyFrom(TickInput other) {
+        up = other.up;
+        down = other.down;
+        left = other.left;
+        right = other.right;
+        mouseControl = other.mouseControl;
+        mouseMoved = other.mouseMoved;
+        mouseX = other.mouseX;
+        mouseY = other.mouseY;
+    }
+}
@@ -0,0 +1,87 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * Everything the renderer needs to draw one gameplay frame, copied out of the world and
+ * the game after a tick: bullet positions in primitive arrays, the plane, the HUD values,
+ * the screen state and the images to draw with. Snapshots are handed from the simulation
+ * to the render thread through a {@link TripleBuffer}; the game fills one only before
+ * publishing it and the renderer only reads it, so plain fields are enough.
+ */
+public class WorldSnapshot {
+    // Bullets in pool order; velocityX is per tick, for interpolating back to the last tick
+    public int bulletCount;
+    public int[] bulletX = new int[64];
+    public int[] bulletY = new int[64];
+    public int[] bulletVelocityX = new int[64];
+
+    public int planeX, planeY, planePrevX, planePrevY;
+    public int score;
+    public long tick;
+    public boolean gameOver, levelCompleted;
+
+    // Game state around the world
+    public Difficulty difficulty = Difficulty.EASY;
+    public boolean levelSelect = true;
+    public boolean paused;
+    public boolean explosion;
+    public boolean autopilot;
+    public int highScoresVersion;
+
+    // What to draw with; resourcesVersion changes whenever any of these do
+    public BufferedImage background;
+    public SpriteAtlas sprites;
+    public int planeSprite, bulletSprite, explosionSprite;
+    public long resourcesVersion;
+
+    // System.nanoTime() of the tick this shows, and the tick length then
+    public long tickNanos;
+    public long tickLength = GameLoop.DEFAULT_TICK_NANOS;
+
+    /**
+     * Copies the world's bullets, plane, score and state, growing the arrays if needed.
+     */
+    public void copyWorld(GameWorld world) {
+        BulletPool bullets = world.getBullets();
+        int count = bullets.size();
+        if (count > bulletX.length) {
+            int capacity = Math.max(count, bulletX.length * 2);
+            bulletX = new int[capacity];
+            bulletY = new int[capacity];
+            bulletVelocityX = new int[capacity];
+        }
+        for (int i = 0; i < count; i++) {
+            bulletX[i] = bullets.getX(i);
+            bulletY[i] = bullets.getY(i);
+            bulletVelocityX[i] = bullets.getVelocityX(i);
+        }
+        bulletCount = count;
+
+        Plane plane = world.getPlane();
+        planeX = plane.getX();
+        planeY = plane.getY();
+        planePrevX = plane.getPrevX();
+        planePrevY = plane.getPrevY();
+        score = world.getScore();
+        tick = world.getTick();
+        gameOver = world.isGameOver();
+        levelCompleted = world.isLevelCompleted();
+    }
+
+    /**
+     * True while this shows moving gameplay rather than a menu or a frozen screen.
+     */
+    public boolean isScene() {
+        if (paused || levelSelect) {
+            return false;
+        }
+        return explosion || (!gameOver && !levelCompleted);
+    }
+
+    /**
+     * How far a frame drawn at frameNanos is between the previous tick and this one, 0-1.
+     */
+    public double alphaAt(long frameNanos) {
+        double alpha = (double) (frameNanos - tickNanos) / tickLength;
+        return Math.max(0.0, Math.min(1.0, alpha));
+    }
+}